@@ -75,6 +75,7 @@ import java.lang.annotation.Target;
  *  <li>Detect when the declared output type of an @Bean method does not satisfy the type expected by
  *   uses of bean's qualified name in an injection point.</li>
  *  <li>Ensure expected beans passed in types are of compatible types.</li>
+ *  <li>Report beans that none of a root's {@link Verified#entryPoints()} depend on.</li>
  * </ul>
  * <p>
  * Restrictions on the use of @Value annotations.
@@ -139,4 +140,13 @@ public @interface Verified {
    * @return whether or not this is a root @Configuration bean.
    */
   boolean root() default false;
+  
+  /**
+   * The beans a {@link Verified#root()} = true class is used for, those the application looks up from the context.
+   * When any are listed, beans that no entry point depends on, directly or transitively, are reported as unreachable,
+   * and the annotation processor's generated registrars and wirings may leave them out with the option
+   * -Aaptspring.pruneUnreachable=true.  Only allowed on root classes.
+   * @return the names of the entry point beans, empty to treat every bean as reachable.
+   */
+  String[] entryPoints() default {};
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.processing.DefinitionContentInspector;
+import com.salesforce.apt.graph.processing.DefinitionGraphInpector;
+import com.salesforce.apt.graph.processing.DefinitionJoiner;
+import com.salesforce.apt.graph.processing.Verifier.ErrorListener;
+import com.salesforce.apt.graph.types.AssignabilityUtils;
+
+/**
+ * Content inspection alone, of graphs already joined and inspected for cycles.  Graphs are acyclic, as content
+ * inspection does not run on graphs with cycles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefinitionContentInspectorBenchmark {
+
+  @Param({"3", "5"})
+  public int depth;
+  
+  @Param({"2", "4"})
+  public int fanOut;
+  
+  @Param({"0.0", "0.5"})
+  public double diamonds;
+  
+  @Param({"1", "10", "50"})
+  public int beansPerDefinition;
+  
+  @Param({"STUB", "REFLECTION"})
+  public Assignability assignability;
+  
+  private GraphShape shape;
+  
+  private AssignabilityUtils assignabilityUtils;
+  
+  private Set<DefinitionModel> heads;
+  
+  private InMemoryDefinitionModelStore store;
+  
+  private ErrorListener errors;
+  
+  @Setup(Level.Trial)
+  public void setUpShape() {
+    shape = new GraphShape(depth, fanOut, diamonds, beansPerDefinition, 0.0);
+    assignabilityUtils = assignability.create();
+  }
+  
+  @Setup(Level.Invocation)
+  public void setUpGraph() {
+    List<DefinitionModel> definitions = shape.build();
+    store = new InMemoryDefinitionModelStore();
+    errors = new ErrorListener();
+    new DefinitionJoiner().joinDefinitions(definitions, store, errors);
+    heads = new DefinitionGraphInpector().inspectDefinitionGraph(definitions, errors);
+    if (errors.hasError()) {
+      throw new IllegalStateException("Graph of shape " + shape + " is invalid: " + errors.getErrors());
+    }
+  }
+  
+  @Benchmark
+  public ErrorListener inspect() {
+    new DefinitionContentInspector().inspectDefinitionGraph(heads, errors, assignabilityUtils, store);
+    return errors;
+  }
+  
+}
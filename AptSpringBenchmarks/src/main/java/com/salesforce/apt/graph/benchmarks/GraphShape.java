@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+
+/**
+ * The shape of a synthetic graph of definitions, as a tree of imports with extra edges.
+ * <p>
+ * The root definition imports {@code fanOut} definitions, each of which imports {@code fanOut} more, down to
+ * {@code depth} levels.  Each definition provides {@code beansPerDefinition} beans of type String, each of which
+ * depends on the bean of the same index in the definition's first import, as a CharSequence.  A definition also imports
+ * a random definition of the level below that is not its child with probability {@code diamonds}, and imports its
+ * parent, forming a cycle, with probability {@code cycleDensity}.  Graphs of a shape are always the same.
+ * </p>
+ */
+public class GraphShape {
+
+  public static final String PACKAGE = "bench";
+  
+  private static final String BEAN_TYPE = "java.lang.String";
+  
+  private static final String DEPENDENCY_TYPE = "java.lang.CharSequence";
+  
+  private final int depth;
+  
+  private final int fanOut;
+  
+  private final double diamonds;
+  
+  private final int beansPerDefinition;
+  
+  private final double cycleDensity;
+  
+  /**
+   * Shape of a graph.
+   * 
+   * @param depth levels of imports, 1 is the root alone.
+   * @param fanOut imports of each definition that is not a leaf.
+   * @param diamonds probability of a definition having a shared import.
+   * @param beansPerDefinition beans provided by each definition.
+   * @param cycleDensity probability of a definition importing its parent.
+   */
+  public GraphShape(int depth, int fanOut, double diamonds, int beansPerDefinition, double cycleDensity) {
+    this.depth = depth;
+    this.fanOut = fanOut;
+    this.diamonds = diamonds;
+    this.beansPerDefinition = beansPerDefinition;
+    this.cycleDensity = cycleDensity;
+  }
+  
+  /**
+   * Build a new, unjoined, graph of definitions, as parsed in a single round of processing.
+   * 
+   * @return all definitions of the graph, root first.
+   */
+  public List<DefinitionModel> build() {
+    Random random = new Random(depth * 31L + fanOut);
+    List<DefinitionModel> output = new ArrayList<>();
+    List<List<String>> levels = new ArrayList<>();
+    int count = 0;
+    for (int level = 0; level < depth; level++) {
+      List<String> names = new ArrayList<>();
+      int width = level == 0 ? 1 : levels.get(level - 1).size() * fanOut;
+      for (int i = 0; i < width; i++) {
+        names.add(PACKAGE + ".Def" + count++);
+      }
+      levels.add(names);
+    }
+    for (int level = 0; level < depth; level++) {
+      List<String> names = levels.get(level);
+      List<String> below = level + 1 < depth ? levels.get(level + 1) : Collections.emptyList();
+      for (int i = 0; i < names.size(); i++) {
+        List<String> imports = new ArrayList<>(below.isEmpty() ? Collections.emptyList()
+            : below.subList(i * fanOut, (i + 1) * fanOut));
+        if (!below.isEmpty() && random.nextDouble() < diamonds) {
+          String shared = below.get(random.nextInt(below.size()));
+          if (!imports.contains(shared)) {
+            imports.add(shared);
+          }
+        }
+        if (level > 0 && random.nextDouble() < cycleDensity) {
+          imports.add(levels.get(level - 1).get(i / fanOut));
+        }
+        output.add(definition(names.get(i), imports.isEmpty() || below.isEmpty() ? null : imports.get(0), imports));
+      }
+    }
+    return output;
+  }
+  
+  private DefinitionModel definition(String name, String firstImport, List<String> imports) {
+    DefinitionModel model = new DefinitionModel(name);
+    model.addDependencyNames(imports);
+    for (int bean = 0; bean < beansPerDefinition; bean++) {
+      List<InstanceDependencyModel> dependencies = firstImport == null ? Collections.emptyList()
+          : Collections.singletonList(new InstanceDependencyModel(beanName(firstImport, bean), DEPENDENCY_TYPE));
+      String beanName = beanName(name, bean);
+      model.addDefinition(new InstanceModel(beanName, name, name + "." + beanName + "(...)", BEAN_TYPE, dependencies,
+          Collections.emptyList()));
+    }
+    return model;
+  }
+  
+  private static String beanName(String definition, int bean) {
+    String simpleName = definition.substring(definition.lastIndexOf('.') + 1);
+    return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1) + "Bean" + bean;
+  }
+  
+  /**
+   * Number of definitions in graphs of this shape.
+   * 
+   * @return the number of definitions.
+   */
+  public int size() {
+    int size = 0;
+    int width = 1;
+    for (int level = 0; level < depth; level++) {
+      size += width;
+      width *= fanOut;
+    }
+    return size;
+  }
+  
+  @Override
+  public String toString() {
+    return "depth " + depth + ", fan out " + fanOut + ", diamonds " + diamonds + ", beans " + beansPerDefinition
+        + ", cycles " + cycleDensity;
+  }
+  
+}
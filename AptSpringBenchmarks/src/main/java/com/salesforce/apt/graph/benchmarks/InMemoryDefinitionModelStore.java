@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
+
+/**
+ * Holds stored models in memory, without serializing them, so that benchmarks of verification measure verification.
+ * The content hash of a stored model is that of its identity.
+ */
+public class InMemoryDefinitionModelStore implements DefinitionModelStore {
+
+  private final DigestStrategy digestStrategy = DigestStrategies.SHA_256;
+  
+  private final Map<String, DefinitionModel> stored = new ConcurrentHashMap<>();
+  
+  @Override
+  public List<DefinitionModel> lookup(String name) {
+    DefinitionModel model = stored.get(name);
+    return model == null ? Collections.emptyList() : new ArrayList<>(Collections.singletonList(model));
+  }
+
+  @Override
+  public boolean store(DefinitionModel model) {
+    model.setDigestAlgorithm(digestStrategy.getAlgorithm());
+    model.setContentHash(digestStrategy.getAlgorithm(),
+        digestStrategy.hash(ByteBuffer.wrap(model.getIdentity().getBytes(StandardCharsets.UTF_8))));
+    stored.put(model.getIdentity(), model);
+    return true;
+  }
+  
+  public int size() {
+    return stored.size();
+  }
+  
+  public void clear() {
+    stored.clear();
+  }
+  
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.Resource;
+import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.apt.StringResource;
+import com.salesforce.apt.graph.model.storage.classpath.ClasspathUrlResourceLoader;
+import com.salesforce.apt.graph.model.storage.classpath.GsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.classpath.TestFileStore;
+
+/**
+ * Round trips of models of increasing size through each store.
+ * <ul>
+ * <li>GSON_FILE: {@link GsonDefinitionModelStore} writing json files with {@link TestFileStore}, read back through a
+ * {@link ClasspathUrlResourceLoader}, as models in dependencies are.</li>
+ * <li>CLASS_FILE: {@link ClassFileGsonDefinitionModelStore} writing generated sources to memory, read back from
+ * {@link StringResource}s of the json, as the AptResourceLoader reads the constant of a generated class.</li>
+ * </ul>
+ * Stored models hold their own beans as provided instances, as verified models do.  The store benchmark reports the
+ * bytes it writes as a secondary result, see {@link StoredBytes}, run it with "-prof gc", or through
+ * {@link #main(String[])}, for the allocation per operation.  Storing locks a model, so each store invocation stores a
+ * new one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+
+  public enum StoreKind { GSON_FILE, CLASS_FILE }
+  
+  /**
+   * A new model for each store, only used by the store benchmark so that lookups are not slowed by building models.
+   */
+  @State(Scope.Thread)
+  public static class ModelToStore {
+    
+    private DefinitionModel model;
+    
+    @Setup(Level.Invocation)
+    public void setUpModel(StoreBenchmark benchmark) {
+      model = benchmark.model();
+    }
+  }
+  
+  /**
+   * The bytes written by the store benchmark, reported as a rate next to its throughput.  Divided by the score of the
+   * store benchmark it is the size of a stored model, as gc.alloc.rate.norm is gc.alloc.rate divided by the score.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class StoredBytes {
+    
+    public long bytes;
+    
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+  
+  @Param({"1", "10", "100", "1000"})
+  public int beansPerModel;
+  
+  @Param({"GSON_FILE", "CLASS_FILE"})
+  public StoreKind store;
+  
+  private Path root;
+  
+  private DefinitionModelStore definitionStore;
+  
+  private String identity;
+  
+  private ClasspathUrlResourceLoader loader;
+  
+  private long lastWritten;
+  
+  @Setup(Level.Trial)
+  public void setUpStore() throws IOException {
+    root = Files.createTempDirectory("aptspring-store-benchmark");
+    DefinitionModel model = model();
+    identity = model.getIdentity();
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    new GsonDefinitionModelStore(name -> Collections.emptyList(), m -> json).store(model);
+    switch (store) {
+      case GSON_FILE:
+        TestFileStore files = new TestFileStore(root.toFile());
+        loader = new ClasspathUrlResourceLoader(root.toFile());
+        definitionStore = new GsonDefinitionModelStore(loader, m -> new CountingOutputStream(files.store(m)));
+        definitionStore.store(model());
+        break;
+      case CLASS_FILE:
+        String data = new String(json.toByteArray(), StandardCharsets.UTF_8);
+        definitionStore = new ClassFileGsonDefinitionModelStore(
+            name -> identity.equals(name) ? Collections.<Resource>singletonList(new StringResource(name, data))
+                : Collections.<Resource>emptyList(),
+            m -> new CountingOutputStream(new ByteArrayOutputStream()));
+        break;
+      default:
+        throw new IllegalArgumentException(store.name());
+    }
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDownStore() throws IOException {
+    if (loader != null) {
+      loader.close();
+    }
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+  
+  private DefinitionModel model() {
+    DefinitionModel model = new GraphShape(1, 1, 0.0, beansPerModel, 0.0).build().get(0);
+    model.addAllProvidedInstances(model.getObjectDefinitions());
+    return model;
+  }
+  
+  @Benchmark
+  public boolean store(ModelToStore toStore, StoredBytes written) {
+    boolean stored = definitionStore.store(toStore.model);
+    if (!definitionStore.flush().isEmpty()) {
+      throw new IllegalStateException("Could not store " + toStore.model.getIdentity());
+    }
+    written.bytes += lastWritten;
+    return stored;
+  }
+  
+  /**
+   * Reads only the header of the model, the rest is read when first used.
+   * 
+   * @return the models read.
+   */
+  @Benchmark
+  public List<DefinitionModel> lookup() {
+    return definitionStore.lookup(identity);
+  }
+  
+  /**
+   * Reads the whole model.
+   * 
+   * @return the provided instances of the model read.
+   */
+  @Benchmark
+  public int lookupAndMaterialize() {
+    return definitionStore.lookup(identity).get(0).getProvidedInstances().size();
+  }
+  
+  /**
+   * Counts the bytes written to a stream, to report the size of stored models.
+   */
+  private final class CountingOutputStream extends FilterOutputStream {
+    
+    private long count = 0;
+    
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+    
+    @Override
+    public void write(int value) throws IOException {
+      out.write(value);
+      count++;
+    }
+    
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      out.write(buffer, offset, length);
+      count += length;
+    }
+    
+    @Override
+    public void close() throws IOException {
+      lastWritten = count;
+      super.close();
+    }
+  }
+  
+  /**
+   * Run the store benchmarks with the GC profiler, reporting the allocation per operation.
+   * 
+   * @param args ignored.
+   * @throws RunnerException if the benchmarks fail.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(StoreBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build())
+        .run();
+  }
+  
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The raw bytes of a stored model's content hash.  The algorithm that produced it is recorded on the
+ * {@link DefinitionModel} holding it.  Stored as upper case hex, as the hashes were before being held as bytes.
+ */
+@JsonAdapter(ContentHash.HexAdapter.class)
+public final class ContentHash {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+  
+  private final byte[] hash;
+  
+  public ContentHash(byte[] hash) {
+    if (hash == null) {
+      throw new IllegalArgumentException("Hash may not be null");
+    }
+    this.hash = hash.clone();
+  }
+  
+  /**
+   * Parse hex encoded bytes.
+   * 
+   * @param hex an even length string of hex digits, of either case.
+   * @return the hash.
+   * @throws IllegalArgumentException if the string is not hex encoded bytes.
+   */
+  public static ContentHash fromHex(String hex) {
+    if (hex == null || hex.length() % 2 != 0) {
+      throw new IllegalArgumentException("Not hex encoded bytes: " + hex);
+    }
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(hex.charAt(i * 2), 16);
+      int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException("Not hex encoded bytes: " + hex);
+      }
+      bytes[i] = (byte) (high << 4 | low);
+    }
+    return new ContentHash(bytes);
+  }
+  
+  public byte[] getBytes() {
+    return hash.clone();
+  }
+  
+  /**
+   * Upper case hex of the hash.
+   * 
+   * @return hex encoded hash.
+   */
+  public String toHex() {
+    char[] hexChars = new char[hash.length * 2];
+    for (int j = 0; j < hash.length; j++) {
+      int value = hash[j] & 0xFF;
+      hexChars[j * 2] = HEX[value >>> 4];
+      hexChars[j * 2 + 1] = HEX[value & 0x0F];
+    }
+    return new String(hexChars);
+  }
+  
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ContentHash && Arrays.equals(hash, ((ContentHash) other).hash);
+  }
+  
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(hash);
+  }
+  
+  @Override
+  public String toString() {
+    return toHex();
+  }
+  
+  static final class HexAdapter extends TypeAdapter<ContentHash> {
+
+    @Override
+    public void write(JsonWriter out, ContentHash value) throws IOException {
+      if (value == null) {
+        out.nullValue();
+      } else {
+        out.value(value.toHex());
+      }
+    }
+
+    @Override
+    public ContentHash read(JsonReader in) throws IOException {
+      String hex = in.nextString();
+      try {
+        return fromHex(hex);
+      } catch (IllegalArgumentException ex) {
+        throw new JsonParseException(ex.getMessage(), ex);
+      }
+    }
+  }
+  
+}
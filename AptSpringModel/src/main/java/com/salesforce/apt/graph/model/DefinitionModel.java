@@ -29,16 +29,37 @@ package com.salesforce.apt.graph.model;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.lang.model.element.TypeElement;
 
 public class DefinitionModel extends AbstractModel {
 
+  /**
+   * Digest algorithm of models that do not record one.
+   */
+  public static final String DEFAULT_DIGEST_ALGORITHM = "SHA-256";
+
+  /**
+   * Populates the bulky sections of a stored model (its object definitions, provided instances and computed expected
+   * beans) the first time any of them are read.  Allows stores to materialize only the header of a model that is
+   * used for joining and integrity checks.
+   */
+  @FunctionalInterface
+  public interface DeferredSections {
+    
+    void materialize(List<InstanceModel> objectDefinitions, List<InstanceModel> providedInstances,
+        Set<ExpectedModel> computedExpected);
+  
+  }
+
   private final List<InstanceModel> objectDefinitions = new ArrayList<>();
   private final List<ExpectedModel> expectedDefinitions = new ArrayList<>();
   private final List<String> dependencyNames = new ArrayList<>();
@@ -47,12 +68,22 @@ public class DefinitionModel extends AbstractModel {
   //carefully account for this by setting the value anywhere it may be used.
   private transient List<DefinitionModel> dependencies;
   private final List<InstanceModel> providedInstances = new ArrayList<>();
-  private final Set<ExpectedModel> computedExpected = new HashSet<>();
-  private String sha256;          //when read from/written to file.
+  //sorted so that serialization is canonical, identical inputs must produce byte identical models.
+  private final Set<ExpectedModel> computedExpected = new TreeSet<>(Comparator.comparing(ExpectedModel::getIdentity));
+  private transient ContentHash sha256;             //when read from/written to file.
+  private transient Future<ContentHash> pendingSha256;  //while being written behind.
+  private transient String sha256Algorithm;
+  private transient ContentHasher contentHasher;     //when read from file
   private String sourceLocation;  //when read from file
   private final boolean rootNode;
   
-  private final Map<String, String> dependencyNameToSha256 = new HashMap<>();  
+  //algorithm of the dependency hashes, absent in models stored before it was recorded, which used SHA-256.
+  private String digestAlgorithm;
+  private final Map<String, ContentHash> dependencyNameToSha256 = new TreeMap<>();
+  //supertype closure, with generic arguments, of each bean type defined by this model.
+  private final Map<String, List<String>> typeHierarchy = new TreeMap<>();
+  
+  private transient DeferredSections deferredSections;
   
   private transient boolean lockedSourceRead = false;                  //phase 1
   private transient boolean lockedDefintionsMerged = false;            //phase 2
@@ -132,6 +163,7 @@ public class DefinitionModel extends AbstractModel {
 
   public void addDefinition(InstanceModel model) {
     failIfLockRead();
+    materializeDeferredSections();
     this.objectDefinitions.add(model);
   }
 
@@ -155,8 +187,30 @@ public class DefinitionModel extends AbstractModel {
     return Collections.unmodifiableList(dependencyNames);
   }
   
+  /**
+   * The supertypes of the types of the beans this model defines, so that the assignability of those beans can be
+   * checked without the compiler, see {@link com.salesforce.apt.graph.types.impl.TypeHierarchyAssignabilityUtils}.
+   * 
+   * @return bean types to all of their supertypes, with generic arguments.
+   */
+  public Map<String, List<String>> getTypeHierarchy() {
+    lockSourceRead();
+    return Collections.unmodifiableMap(typeHierarchy);
+  }
+  
+  public void addTypeHierarchy(String type, List<String> supertypes) {
+    failIfLockRead();
+    typeHierarchy.put(type, new ArrayList<>(supertypes));
+  }
+  
+  public void addAllTypeHierarchy(Map<String, List<String>> typeHierarchy) {
+    failIfLockRead();
+    typeHierarchy.forEach((type, supertypes) -> this.typeHierarchy.put(type, new ArrayList<>(supertypes)));
+  }
+  
   public List<InstanceModel> getObjectDefinitions() {
     lockSourceRead();
+    materializeDeferredSections();
     return Collections.unmodifiableList(objectDefinitions);
   }
 
@@ -171,29 +225,52 @@ public class DefinitionModel extends AbstractModel {
   
   public List<InstanceModel> getProvidedInstances() {
     lockAnalyzed();
+    materializeDeferredSections();
     return Collections.unmodifiableList(providedInstances);
   }
   
   public void addAllProvidedInstances(Collection<InstanceModel> providedInstances) {
     failIfLockedAnalyzed();
+    materializeDeferredSections();
     this.providedInstances.addAll(providedInstances);
   }
 
   public Set<ExpectedModel> getComputedExpected() {
     lockAnalyzed();
+    materializeDeferredSections();
     return Collections.unmodifiableSet(computedExpected);
   }
   
   public void addAllComputedExpected(Collection<ExpectedModel> computedExpected) {
     failIfLockedAnalyzed();
+    materializeDeferredSections();
     this.computedExpected.addAll(computedExpected);
   }
   
   public void addComputedExpected(ExpectedModel computedExpected) {
     failIfLockedAnalyzed();
+    materializeDeferredSections();
     this.computedExpected.add(computedExpected);
   }
   
+  /**
+   * Used by stores that read a model's header eagerly, the deferred sections will be populated the first time
+   * the object definitions, provided instances, or computed expected beans are read.
+   * 
+   * @param deferredSections populates the sections of this model that have not yet been read.
+   */
+  public void deferSections(DeferredSections deferredSections) {
+    failIfLockRead();
+    this.deferredSections = deferredSections;
+  }
+  
+  private synchronized void materializeDeferredSections() {
+    if (deferredSections != null) {
+      deferredSections.materialize(objectDefinitions, providedInstances, computedExpected);
+      deferredSections = null;
+    }
+  }
+  
   /**
    * For the purposes of identification of the object definition class, the location of the class suffices.
    *
@@ -215,15 +292,130 @@ public class DefinitionModel extends AbstractModel {
   }
 
   
+  /**
+   * Hashes the stored content of a model read from a file with algorithms other than the one it was read with.
+   */
+  @FunctionalInterface
+  public interface ContentHasher {
+    
+    /**
+     * Hash the content of the model.
+     * 
+     * @param algorithm name of the digest algorithm to use.
+     * @return the hash of the stored content.
+     */
+    ContentHash hash(String algorithm);
+  }
+  
+  /**
+   * Hex of the content hash, see {@link #getContentHash()}.  Named for the only algorithm once supported.
+   * 
+   * @return hex of the content hash, or null if not read or written.
+   */
   public String getSha256() {
+    ContentHash hash = getContentHash();
+    return hash == null ? null : hash.toHex();
+  }
+
+  /**
+   * Hex encoded SHA-256 of the content of the model, see {@link #setContentHash(String, ContentHash)}.
+   * 
+   * @param sha256 hex encoded SHA-256
+   */
+  public void setSha256(String sha256) {
+    setContentHash(DEFAULT_DIGEST_ALGORITHM, ContentHash.fromHex(sha256));
+  }
+  
+  /**
+   * The hash of the content of this model as read from, or written to a file, locks the model.
+   * 
+   * @return the content hash, null if not read or written.
+   */
+  public ContentHash getContentHash() {
     lockAnalyzed();
+    resolvePendingContentHash();
     return sha256;
   }
+  
+  private synchronized void resolvePendingContentHash() {
+    if (pendingSha256 != null) {
+      try {
+        sha256 = pendingSha256.get();
+      } catch (ExecutionException ex) {
+        throw new IllegalStateException("Could not compute the content hash of " + getIdentity(), ex.getCause());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted computing the content hash of " + getIdentity(), ex);
+      }
+      pendingSha256 = null;
+    }
+  }
+  
+  /**
+   * The content hash as if computed by a specific algorithm, so that models that recorded their dependencies hashes
+   * with other algorithms can be verified against this one.
+   * 
+   * @param algorithm of the hash to get.
+   * @return the hash, or null if this model's content was never hashed with, and can not be rehashed with the algorithm.
+   */
+  public ContentHash getContentHash(String algorithm) {
+    lockAnalyzed();
+    if (algorithm.equalsIgnoreCase(sha256Algorithm)) {
+      resolvePendingContentHash();
+      return sha256;
+    }
+    return contentHasher == null ? null : contentHasher.hash(algorithm);
+  }
 
-  public void setSha256(String sha256) {
+  /**
+   * Record the hash of the content of this model as read from, or written to a file, locking the model.
+   * 
+   * @param algorithm the digest algorithm used.
+   * @param hash of the stored content.
+   */
+  public void setContentHash(String algorithm, ContentHash hash) {
     failIfLockedAnalyzed();
     lockAnalyzed();
-    this.sha256 = sha256;
+    this.sha256Algorithm = algorithm;
+    this.sha256 = hash;
+  }
+  
+  /**
+   * Record the hash of the content of this model while it is being written, locking the model.  Readers of the hash
+   * block until it is computed.
+   * 
+   * @param algorithm the digest algorithm used.
+   * @param hash completes with the hash of the stored content.
+   */
+  public void setPendingContentHash(String algorithm, Future<ContentHash> hash) {
+    failIfLockedAnalyzed();
+    lockAnalyzed();
+    this.sha256Algorithm = algorithm;
+    this.pendingSha256 = hash;
+  }
+  
+  /**
+   * Allow the stored content of a model read from a file to be rehashed, see {@link #getContentHash(String)}.
+   * 
+   * @param contentHasher hashes the stored content.
+   */
+  public void setContentHasher(ContentHasher contentHasher) {
+    failIfLockedAnalyzed();
+    this.contentHasher = contentHasher;
+  }
+  
+  /**
+   * The algorithm of the hashes of the dependencies, see {@link #getDependencyContentHashes()}.
+   * 
+   * @return the name of the algorithm.
+   */
+  public String getDigestAlgorithm() {
+    return digestAlgorithm == null ? DEFAULT_DIGEST_ALGORITHM : digestAlgorithm;
+  }
+
+  public void setDigestAlgorithm(String digestAlgorithm) {
+    failIfLockedAnalyzed();
+    this.digestAlgorithm = digestAlgorithm;
   }
 
   public boolean isLockedSourceRead() {
@@ -258,19 +450,46 @@ public class DefinitionModel extends AbstractModel {
   }
 
   
+  /**
+   * Hex of the hashes of the dependencies, see {@link #getDependencyContentHashes()}.
+   * 
+   * @return dependency names to hex of their content hashes.
+   */
   public Map<String, String> getDependencyNameToSha256() {
     lockDefintionsMerged();
-    return Collections.unmodifiableMap(dependencyNameToSha256);
+    Map<String, String> hexes = new TreeMap<>();
+    dependencyNameToSha256.forEach((name, hash) -> hexes.put(name, hash == null ? null : hash.toHex()));
+    return Collections.unmodifiableMap(hexes);
   }
 
   public void addDependencyNameToSha256(String dependencyName, String sha256) {
-    failIfLockedAnalyzed();
-    dependencyNameToSha256.put(dependencyName, sha256);
+    addDependencyContentHash(dependencyName, ContentHash.fromHex(sha256));
   }
 
   public void addAllDependencyNameToSha256(Map<String, String>  dependencyNameToSha256) {
     failIfLockedAnalyzed();
-    dependencyNameToSha256.putAll(dependencyNameToSha256);
+    dependencyNameToSha256.forEach(this::addDependencyNameToSha256);
+  }
+  
+  /**
+   * The content hashes of the dependencies this model was verified against, computed with
+   * the algorithm of {@link #getDigestAlgorithm()}.
+   * 
+   * @return dependency names to their content hashes.
+   */
+  public Map<String, ContentHash> getDependencyContentHashes() {
+    lockDefintionsMerged();
+    return Collections.unmodifiableMap(dependencyNameToSha256);
+  }
+  
+  public void addDependencyContentHash(String dependencyName, ContentHash hash) {
+    failIfLockedAnalyzed();
+    dependencyNameToSha256.put(dependencyName, hash);
+  }
+  
+  public void addAllDependencyContentHashes(Map<String, ContentHash> dependencyContentHashes) {
+    failIfLockedAnalyzed();
+    this.dependencyNameToSha256.putAll(dependencyContentHashes);
   }
 
   public String getSourceLocation() {
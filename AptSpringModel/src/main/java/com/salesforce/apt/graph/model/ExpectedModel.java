@@ -27,15 +27,15 @@
 package com.salesforce.apt.graph.model;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.lang.model.element.Element;
 
 public class ExpectedModel extends BaseInstanceModel {
 
-  //only used in computed expected entities.
-  private final Map<String, String> definitionsReferencingToType = new HashMap<>();
+  //only used in computed expected entities, sorted so that serialization is canonical.
+  private final Map<String, String> definitionsReferencingToType = new TreeMap<>();
   
   public ExpectedModel(String identifier, Element source) {
     super(identifier, source, null);
@@ -26,6 +26,7 @@
  */
 package com.salesforce.apt.graph.model.storage;
 
+import java.util.Collections;
 import java.util.List;
 
 import com.salesforce.apt.graph.model.DefinitionModel;
@@ -42,4 +43,14 @@ public interface DefinitionModelStore {
 
   boolean store(DefinitionModel model);
   
+  /**
+   * Completes any stores that were accepted but not yet written, stores that write behind must have a model's
+   * content hash available (or pending) when {@link #store(DefinitionModel)} returns, and write it here.
+   * 
+   * @return the models that could not be written.
+   */
+  default List<DefinitionModel> flush() {
+    return Collections.emptyList();
+  }
+  
 }
\ No newline at end of file
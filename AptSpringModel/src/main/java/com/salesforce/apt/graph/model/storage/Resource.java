@@ -26,8 +26,10 @@
  */
 package com.salesforce.apt.graph.model.storage;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface Resource {
 
@@ -35,4 +37,23 @@ public interface Resource {
   
   InputStream getInputStream() throws IOException;
   
+  /**
+   * The full content of the resource.  Implementations that can avoid copying, for instance by memory mapping
+   * files, should override this method.
+   * 
+   * @return a read only view of the resource's content, positioned at its start.
+   * @throws IOException if the resource could not be read.
+   */
+  default ByteBuffer getContent() throws IOException {
+    try (InputStream inputStream = getInputStream()) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int length;
+      while ((length = inputStream.read(buffer)) != -1) {
+        output.write(buffer, 0, length);
+      }
+      return ByteBuffer.wrap(output.toByteArray()).asReadOnlyBuffer();
+    }
+  }
+  
 }
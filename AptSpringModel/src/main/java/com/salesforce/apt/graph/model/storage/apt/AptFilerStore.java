@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
 import javax.tools.FileObject;
 
 import com.salesforce.apt.graph.model.DefinitionModel;
@@ -40,16 +42,44 @@ public class AptFilerStore implements DefinitionOutputStreamProvider {
   
   private Filer filer;
   
+  private final FileStore fileStore;
+  
   public AptFilerStore(Filer filer) {
+    this(filer, FileStore.STANDARD);
+  }
+  
+  /**
+   * Construct a store writing the source files of models, named for a file store.
+   * 
+   * @param filer writes the source files.
+   * @param fileStore suffixes the name of the class of each model.
+   */
+  public AptFilerStore(Filer filer, FileStore fileStore) {
     this.filer = filer;
+    this.fileStore = fileStore;
   }
   
   @Override
   public OutputStream store(DefinitionModel model) throws IOException {
     FileObject output = filer
-        .createSourceFile(model.getSourcePackage() + "." +  model.getSourceClass() + "_" + FileStore.STANDARD.getPath(),
-            model.getSourceElement().get());
+        .createSourceFile(model.getSourcePackage() + "." +  model.getSourceClass() + "_" + fileStore.getPath(),
+            getTopLevelType(model.getSourceElement().get()));
     return output.openOutputStream();
   }
+  
+  /**
+   * The top level type enclosing an element, as incremental builds (gradle's isolating processors) expect the
+   * originating element of a generated file to be.
+   * 
+   * @param element the source element of a model.
+   * @return the outermost type enclosing the element, or the element itself if it is not in a type.
+   */
+  public static Element getTopLevelType(Element element) {
+    Element current = element;
+    while (current.getEnclosingElement() instanceof TypeElement) {
+      current = current.getEnclosingElement();
+    }
+    return current;
+  }
 
 }
@@ -27,8 +27,11 @@
 package com.salesforce.apt.graph.model.storage.apt;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
@@ -54,11 +57,25 @@ public class AptResourceLoader implements ResourceLoader {
     String location = name.replace('$', '.') + "_" + FileStore.STANDARD.getPath();
     TypeElement element = elements.getTypeElement(location);
     if (element != null) {
-      VariableElement dataField = (VariableElement) element.getEnclosedElements().stream()
-          .filter(e -> FIELD_NAME.equals(e.getSimpleName().toString())
-              && e.getKind() == ElementKind.FIELD).findFirst().orElse(null);
-      String data = (String) dataField.getConstantValue();
-      resources.add(new StringResource(location, data));
+      //data too long for a single constant continues in FIELD_NAME_1, FIELD_NAME_2...
+      Map<String, Object> constants = new HashMap<>();
+      for (Element enclosed : element.getEnclosedElements()) {
+        if (enclosed.getKind() == ElementKind.FIELD && enclosed.getSimpleName().toString().startsWith(FIELD_NAME)) {
+          constants.put(enclosed.getSimpleName().toString(), ((VariableElement) enclosed).getConstantValue());
+        }
+      }
+      StringBuilder data = new StringBuilder((String) constants.get(FIELD_NAME));
+      for (int part = 1; constants.containsKey(FIELD_NAME + "_" + part); part++) {
+        data.append((String) constants.get(FIELD_NAME + "_" + part));
+      }
+      resources.add(new StringResource(location, data.toString()));
+    } else {
+      //the models of the package may be bundled, see PackageBundles.
+      String packageName = name.lastIndexOf('.') == -1 ? "" : name.substring(0, name.lastIndexOf('.'));
+      String data = PackageBundles.read(elements, packageName, name);
+      if (data != null) {
+        resources.add(new StringResource(PackageBundles.bundleName(packageName) + "#" + name, data));
+      }
     }
     return resources;
   }
@@ -28,68 +28,274 @@ package com.salesforce.apt.graph.model.storage.apt;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import javax.lang.model.element.Modifier;
 
 import com.google.gson.internal.JavaVersion;
+import com.salesforce.apt.graph.model.ContentHash;
 import com.salesforce.apt.graph.model.DefinitionModel;
 import com.salesforce.apt.graph.model.storage.DefinitionOutputStreamProvider;
 import com.salesforce.apt.graph.model.storage.ResourceLoader;
 import com.salesforce.apt.graph.model.storage.classpath.FileStore;
 import com.salesforce.apt.graph.model.storage.classpath.GsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.TypeSpec;
 
+/**
+ * Stores models as java source files, each holding the json of its model in a constant, read back by
+ * {@link AptResourceLoader}.
+ * <p>
+ * When constructed with an executor, models are written behind: json serialization, source generation and hashing run
+ * on the executor, dependents that need the content hash of a model block until it is computed, and the
+ * {@link javax.annotation.processing.Filer} writes, which must happen on the processing thread, are done by
+ * {@link #flush()}.
+ * </p>
+ * <p>
+ * When constructed with {@link PackageBundles}, models are stored in a bundle per package, written by {@link #flush()}.
+ * </p>
+ */
 public class ClassFileGsonDefinitionModelStore extends GsonDefinitionModelStore {
 
   private static final String GENERATED_JAVA9 = "javax.annotation.processing.Generated";
 
   private static final String GENERATED_JAVA8 = "javax.annotation.Generated";
+  
+  private static final int MAX_CONSTANT_CHARS = 65535 / 3;
 
+  private final Executor executor;
+  
+  private final PackageBundles bundles;
+  
+  private final FileStore fileStore;
+  
+  private final List<PendingWrite> pendingWrites = new ArrayList<>();
   
   public ClassFileGsonDefinitionModelStore(ResourceLoader resourceLocator, DefinitionOutputStreamProvider definitionModelToStore) {
     super(resourceLocator, definitionModelToStore);
+    this.executor = null;
+    this.bundles = null;
+    this.fileStore = FileStore.STANDARD;
+  }
+  
+  public ClassFileGsonDefinitionModelStore(ResourceLoader resourceLocator, DefinitionOutputStreamProvider definitionModelToStore,
+      DigestStrategy digestStrategy) {
+    this(resourceLocator, definitionModelToStore, digestStrategy, (Executor) null);
+  }
+  
+  /**
+   * Construct a store that may write behind.
+   * 
+   * @param resourceLocator finds stored models.
+   * @param definitionModelToStore provides streams to store models, only called on the thread calling {@link #flush()}.
+   * @param digestStrategy hashes stored models.
+   * @param executor serializes and hashes models, null to do so when storing.
+   */
+  public ClassFileGsonDefinitionModelStore(ResourceLoader resourceLocator, DefinitionOutputStreamProvider definitionModelToStore,
+      DigestStrategy digestStrategy, Executor executor) {
+    this(resourceLocator, definitionModelToStore, digestStrategy, executor, null);
+  }
+  
+  /**
+   * Construct a store that may write behind, and may bundle the models of each package.
+   * 
+   * @param resourceLocator finds stored models.
+   * @param definitionModelToStore provides streams to store models, only called on the thread calling {@link #flush()}.
+   * @param digestStrategy hashes stored models.
+   * @param executor serializes and hashes models, null to do so when storing.
+   * @param bundles writes package bundles, null to store a class per model.
+   */
+  public ClassFileGsonDefinitionModelStore(ResourceLoader resourceLocator, DefinitionOutputStreamProvider definitionModelToStore,
+      DigestStrategy digestStrategy, Executor executor, PackageBundles bundles) {
+    super(resourceLocator, definitionModelToStore, digestStrategy);
+    this.executor = executor;
+    this.bundles = bundles;
+    this.fileStore = FileStore.STANDARD;
+  }
+  
+  /**
+   * Construct a store writing each model as it is stored to a class of its own, named for a file store, as the models
+   * of single definitions are, see {@link FileStore#DEFINITION}.
+   * 
+   * @param resourceLocator finds stored models.
+   * @param definitionModelToStore provides streams to store models, naming them for the same file store.
+   * @param digestStrategy hashes stored models.
+   * @param fileStore suffixes the name of the class of each model.
+   */
+  public ClassFileGsonDefinitionModelStore(ResourceLoader resourceLocator, DefinitionOutputStreamProvider definitionModelToStore,
+      DigestStrategy digestStrategy, FileStore fileStore) {
+    super(resourceLocator, definitionModelToStore, digestStrategy);
+    this.executor = null;
+    this.bundles = null;
+    this.fileStore = fileStore;
+  }
+  
+  private static final class Serialized {
+    private final String data;
+    private final byte[] source;
+    private final ContentHash hash;
+    
+    private Serialized(String data, byte[] source, ContentHash hash) {
+      this.data = data;
+      this.source = source;
+      this.hash = hash;
+    }
+  }
+  
+  private static final class PendingWrite {
+    private final DefinitionModel model;
+    private final Future<Serialized> serialized;
+    
+    private PendingWrite(DefinitionModel model, Future<Serialized> serialized) {
+      this.model = model;
+      this.serialized = serialized;
+    }
   }
   
   @Override
   public boolean store(DefinitionModel model) {
+    String algorithm = getDigestStrategy().getAlgorithm();
+    model.setDigestAlgorithm(algorithm);
+    if (executor == null) {
+      Serialized serialized = serialize(model);
+      if (bundles == null) {
+        write(model, serialized);
+      } else {
+        pendingWrites.add(new PendingWrite(model, CompletableFuture.completedFuture(serialized)));
+      }
+      model.setContentHash(algorithm, serialized.hash);
+      return true;
+    }
+    CompletableFuture<Serialized> serialized = new CompletableFuture<>();
+    //locks the model before it is read by the executor, so it may not change while being serialized.
+    model.setPendingContentHash(algorithm, serialized.thenApply(s -> s.hash));
+    executor.execute(() -> {
+      try {
+        serialized.complete(serialize(model));
+      } catch (RuntimeException | Error ex) {
+        serialized.completeExceptionally(ex);
+      }
+    });
+    pendingWrites.add(new PendingWrite(model, serialized));
+    return true;
+  }
+  
+  @Override
+  public List<DefinitionModel> flush() {
+    List<DefinitionModel> failed = new ArrayList<>();
+    Map<String, Map<DefinitionModel, Serialized>> packages = new TreeMap<>();
+    for (PendingWrite pendingWrite : pendingWrites) {
+      try {
+        Serialized serialized = pendingWrite.serialized.get();
+        if (bundles == null) {
+          write(pendingWrite.model, serialized);
+        } else {
+          packages.computeIfAbsent(pendingWrite.model.getSourcePackage(), p -> new LinkedHashMap<>())
+              .put(pendingWrite.model, serialized);
+        }
+      } catch (ExecutionException | IllegalStateException ex) {
+        failed.add(pendingWrite.model);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        failed.add(pendingWrite.model);
+      }
+    }
+    pendingWrites.clear();
+    for (Entry<String, Map<DefinitionModel, Serialized>> bundle : packages.entrySet()) {
+      Map<String, String> data = new TreeMap<>();
+      bundle.getValue().forEach((model, serialized) -> data.put(model.getIdentity(), serialized.data));
+      try {
+        bundles.write(bundle.getKey(), bundle.getValue().keySet(), data);
+      } catch (IOException | RuntimeException ex) {
+        failed.addAll(bundle.getValue().keySet());
+      }
+    }
+    return failed;
+  }
+  
+  private Serialized serialize(DefinitionModel model) {
     String packageName = model.getSourcePackage();
-    String className = model.getSourceClass() + "_" + FileStore.STANDARD.getPath();
+    String className = model.getSourceClass() + "_" + fileStore.getPath();
     String data = getGson().toJson(model);
+    ContentHash hash = getDigestStrategy().hash(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+    if (bundles != null) {
+      return new Serialized(data, null, hash);
+    }
     
-    FieldSpec fieldSpec = FieldSpec.builder(String.class, AptResourceLoader.FIELD_NAME)
-        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-        .initializer("$S", data)
-        .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unused").build())
-        .build();
-
-    TypeSpec classSpec = TypeSpec.classBuilder(className)
+    TypeSpec.Builder classSpec = TypeSpec.classBuilder(className)
         .addModifiers(Modifier.PUBLIC)
-        .addField(fieldSpec)
-        .addAnnotation(AnnotationSpec.builder(getGeneratedAnnotationClass()).addMember("value", "$S", "SpringApt").build())
-        .build();
+        .addAnnotation(AnnotationSpec.builder(getGeneratedAnnotationClass()).addMember("value", "$S", "SpringApt").build());
+    List<String> constants = toConstants(data);
+    for (int part = 0; part < constants.size(); part++) {
+      classSpec.addField(FieldSpec.builder(String.class,
+          part == 0 ? AptResourceLoader.FIELD_NAME : AptResourceLoader.FIELD_NAME + "_" + part)
+          .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+          .initializer("$S", constants.get(part))
+          .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unused").build())
+          .build());
+    }
     
-    JavaFile javaFile = JavaFile.builder(packageName, classSpec)
+    JavaFile javaFile = JavaFile.builder(packageName, classSpec.build())
         .build();
 
+    return new Serialized(data, javaFile.toString().getBytes(StandardCharsets.UTF_8), hash);
+  }
+  
+  private void write(DefinitionModel model, Serialized serialized) {
     try {
       OutputStream stream = getDefinitionOutputStreamProvider().store(model);
       try {
-        stream.write(javaFile.toString().getBytes(StandardCharsets.UTF_8));
+        stream.write(serialized.source);
       } finally {
         stream.close();
       }
-      model.setSha256(bytesToHex(getSha256Digest().digest(data.getBytes(StandardCharsets.UTF_8))));
-      return true;
     } catch (IOException ex) {
       throw new IllegalStateException("Could not store model to class", ex);
     }
   }
-  
-  private Class<?> getGeneratedAnnotationClass() {
+
+  /**
+   * Splits data in to the values of the constants holding it.  A constant is at most 65535 bytes of modified utf-8, up
+   * to 3 bytes a char, longer data continues in more fields.  Surrogate pairs are never split, a lone surrogate can
+   * not be written to the generated source.
+   * 
+   * @param data to store in constants.
+   * @return at least one part of the data, in order.
+   */
+  static List<String> toConstants(String data) {
+    List<String> constants = new ArrayList<>();
+    int start = 0;
+    do {
+      int end = Math.min(data.length(), start + MAX_CONSTANT_CHARS);
+      if (end < data.length() && Character.isHighSurrogate(data.charAt(end - 1))) {
+        end--;
+      }
+      constants.add(data.substring(start, end));
+      start = end;
+    } while (start < data.length());
+    return constants;
+  }
+
+  /**
+   * The @Generated annotation of the running jdk, which moved in java 9.
+   *
+   * @return the annotation's class.
+   */
+  public static Class<?> getGeneratedAnnotationClass() {
     final String generatedClass = JavaVersion.isJava9OrLater() ? GENERATED_JAVA9 : GENERATED_JAVA8;
     try {
       return Class.forName(generatedClass);
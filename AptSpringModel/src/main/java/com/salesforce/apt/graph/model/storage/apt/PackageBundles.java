@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.apt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.tools.FileObject;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.classpath.FileStore;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Stores all the models of a package in a single generated class, rather than a class per model.  The bundle holds a
+ * table of contents, the identities of the models it holds separated by commas, and a constant per model holding
+ * its json.  Json too long for a single constant continues in "__DATA_Name$1", "__DATA_Name$2"..., names no model's
+ * constant can take as only anonymous classes have such binary names.  The bundle's name, "package_aptSpring", can
+ * not collide with that of the class of a single model.
+ * <p>
+ * Models of the package already held by a bundle from a prior compilation are kept, unless their class no longer
+ * exists, so that incremental compilations of part of a package don't drop the rest of it.
+ * </p>
+ */
+public class PackageBundles {
+
+  public static final String CLASS_NAME = "package_" + FileStore.STANDARD.getPath();
+  
+  static final String TOC_FIELD = "__TOC";
+  
+  static final String DATA_FIELD_PREFIX = "__DATA_";
+  
+  static final String PART_SEPARATOR = "$";
+  
+  private final Filer filer;
+  
+  private final Elements elements;
+  
+  public PackageBundles(Filer filer, Elements elements) {
+    this.filer = filer;
+    this.elements = elements;
+  }
+  
+  /**
+   * Name of the bundle class of a package.
+   * 
+   * @param packageName the package, empty for the default package.
+   * @return the qualified name of the bundle class.
+   */
+  public static String bundleName(String packageName) {
+    return packageName.isEmpty() ? CLASS_NAME : packageName + "." + CLASS_NAME;
+  }
+  
+  private static String fieldName(String identity) {
+    return DATA_FIELD_PREFIX + identity.substring(identity.lastIndexOf('.') + 1);
+  }
+  
+  /**
+   * Read one bundled model, only the constant holding that model is read from the bundle.
+   * 
+   * @param elements of the current round.
+   * @param packageName the package whose bundle to read.
+   * @param identity of the model.
+   * @return json of the model, null if the package has no bundle, or the bundle does not hold the model.
+   */
+  public static String read(Elements elements, String packageName, String identity) {
+    TypeElement bundle = elements.getTypeElement(bundleName(packageName));
+    if (bundle == null) {
+      return null;
+    }
+    String fieldName = fieldName(identity);
+    Map<String, Object> constants = new HashMap<>();
+    for (Element element : bundle.getEnclosedElements()) {
+      if (element.getKind() == ElementKind.FIELD) {
+        String name = element.getSimpleName().toString();
+        if (TOC_FIELD.equals(name) || name.equals(fieldName) || name.startsWith(fieldName + PART_SEPARATOR)) {
+          constants.put(name, ((VariableElement) element).getConstantValue());
+        }
+      }
+    }
+    Object toc = constants.get(TOC_FIELD);
+    if (toc instanceof String && Arrays.asList(((String) toc).split(",")).contains(identity)) {
+      return join(constants, fieldName);
+    }
+    return null;
+  }
+  
+  private static String join(Map<String, Object> constants, String fieldName) {
+    Object data = constants.get(fieldName);
+    if (!(data instanceof String)) {
+      return null;
+    }
+    StringBuilder joined = new StringBuilder((String) data);
+    for (int part = 1; constants.get(fieldName + PART_SEPARATOR + part) instanceof String; part++) {
+      joined.append((String) constants.get(fieldName + PART_SEPARATOR + part));
+    }
+    return joined.toString();
+  }
+  
+  /**
+   * Read the bundled models of a package.
+   * 
+   * @param elements of the current round.
+   * @param packageName the package whose bundle to read.
+   * @return model identities to the json of their model, empty if the package has no bundle.
+   */
+  public static Map<String, String> read(Elements elements, String packageName) {
+    Map<String, String> output = new TreeMap<>();
+    TypeElement bundle = elements.getTypeElement(bundleName(packageName));
+    if (bundle == null) {
+      return output;
+    }
+    Map<String, Object> constants = new TreeMap<>();
+    for (Element element : bundle.getEnclosedElements()) {
+      if (element.getKind() == ElementKind.FIELD) {
+        constants.put(element.getSimpleName().toString(), ((VariableElement) element).getConstantValue());
+      }
+    }
+    Object toc = constants.get(TOC_FIELD);
+    if (toc instanceof String && !((String) toc).isEmpty()) {
+      for (String identity : ((String) toc).split(",")) {
+        String data = join(constants, fieldName(identity));
+        if (data != null) {
+          output.put(identity, data);
+        }
+      }
+    }
+    return output;
+  }
+  
+  /**
+   * Write the bundle of a package, retaining models of the package's existing bundle that are not replaced.
+   * 
+   * @param packageName of the models.
+   * @param models the models being stored, all in the package.
+   * @param data the json of each of the models being stored, by identity.
+   * @throws IOException if the bundle could not be written.
+   */
+  public void write(String packageName, Collection<DefinitionModel> models, Map<String, String> data) throws IOException {
+    Set<Element> originatingElements = new LinkedHashSet<>();
+    models.stream().filter(m -> m.getSourceElement().isPresent())
+        .forEach(m -> originatingElements.add(AptFilerStore.getTopLevelType(m.getSourceElement().get())));
+
+    Map<String, String> bundled = new TreeMap<>();
+    for (Entry<String, String> existing : read(elements, packageName).entrySet()) {
+      TypeElement type = elements.getTypeElement(existing.getKey().replace('$', '.'));
+      if (type != null && !data.containsKey(existing.getKey())) {
+        bundled.put(existing.getKey(), existing.getValue());
+        originatingElements.add(AptFilerStore.getTopLevelType(type));
+      }
+    }
+    bundled.putAll(data);
+    
+    TypeSpec.Builder classSpec = TypeSpec.classBuilder(CLASS_NAME)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addAnnotation(AnnotationSpec.builder(ClassFileGsonDefinitionModelStore.getGeneratedAnnotationClass())
+            .addMember("value", "$S", "SpringApt").build())
+        .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unused").build())
+        .addField(FieldSpec.builder(String.class, TOC_FIELD, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer("$S", bundled.keySet().stream().collect(Collectors.joining(","))).build());
+    for (Entry<String, String> entry : bundled.entrySet()) {
+      List<String> constants = ClassFileGsonDefinitionModelStore.toConstants(entry.getValue());
+      for (int part = 0; part < constants.size(); part++) {
+        String fieldName = fieldName(entry.getKey());
+        classSpec.addField(FieldSpec.builder(String.class, part == 0 ? fieldName : fieldName + PART_SEPARATOR + part,
+            Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("$S", constants.get(part)).build());
+      }
+    }
+    JavaFile javaFile = JavaFile.builder(packageName, classSpec.build()).build();
+    
+    FileObject output = filer.createSourceFile(bundleName(packageName),
+        originatingElements.toArray(new Element[originatingElements.size()]));
+    try (OutputStream stream = output.openOutputStream()) {
+      stream.write(javaFile.toString().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+  
+}
@@ -29,6 +29,7 @@ package com.salesforce.apt.graph.model.storage.apt;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import com.salesforce.apt.graph.model.storage.Resource;
@@ -55,4 +56,9 @@ public class StringResource implements Resource {
     return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
   }
 
+  @Override
+  public ByteBuffer getContent() throws IOException {
+    return ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+  }
+
 }
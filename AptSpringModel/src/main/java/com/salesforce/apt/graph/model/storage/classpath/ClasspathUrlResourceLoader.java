@@ -26,11 +26,14 @@
  */
 package com.salesforce.apt.graph.model.storage.classpath;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Paths;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
@@ -40,10 +43,15 @@ import java.util.List;
 import com.salesforce.apt.graph.model.storage.Resource;
 import com.salesforce.apt.graph.model.storage.ResourceLoader;
 
-public class ClasspathUrlResourceLoader implements ResourceLoader {
+/**
+ * Finds models on a class path.  Jars are kept open between reads, the loader must be closed to release them.
+ */
+public class ClasspathUrlResourceLoader implements ResourceLoader, Closeable {
 
   private ClassLoader classloader;
   
+  private final ZipFileCache zipFiles = new ZipFileCache();
+  
   public ClasspathUrlResourceLoader() {
     classloader = Thread.currentThread().getContextClassLoader();
   }
@@ -84,12 +92,46 @@ public class ClasspathUrlResourceLoader implements ResourceLoader {
       Enumeration<URL> resources = classloader.getResources(FileStore.STANDARD.getPath() + "/" 
           + name + ".json");
       while (resources.hasMoreElements()) {
-        output.add(new UrlResource(resources.nextElement()));
+        output.add(toResource(resources.nextElement()));
       }
     } catch (IOException ioe) {
       throw new IllegalStateException("Could not read classpath while looking for ForceInject models of name: " + name, ioe);
     }
     return output;
   }
+  
+  /**
+   * Files in class directories are read (or mapped) directly, entries of jars on the local file system are read
+   * through a shared open {@link java.util.zip.ZipFile}, everything else falls back to opening the url.
+   * 
+   * @param url of a model found on the class path.
+   * @return a resource to read the model from.
+   */
+  protected Resource toResource(URL url) {
+    try {
+      if ("file".equals(url.getProtocol())) {
+        return new MappedFileResource(Paths.get(url.toURI()), url.toString());
+      }
+      if ("jar".equals(url.getProtocol())) {
+        String spec = url.getFile();
+        int separator = spec.indexOf("!/");
+        if (spec.startsWith("file:") && separator > 0 && spec.indexOf("!/", separator + 2) < 0) {
+          File jar = Paths.get(new URL(spec.substring(0, separator)).toURI()).toFile();
+          return new ZipEntryResource(zipFiles, jar, spec.substring(separator + 2), url.toString());
+        }
+      }
+    } catch (URISyntaxException | MalformedURLException | IllegalArgumentException ex) {
+      //not a plain local file, let the url connection handle it.
+    }
+    return new UrlResource(url);
+  }
+  
+  /**
+   * Closes the jars opened by this loader, resources it found may no longer be read.
+   */
+  @Override
+  public void close() {
+    zipFiles.close();
+  }
 
 }
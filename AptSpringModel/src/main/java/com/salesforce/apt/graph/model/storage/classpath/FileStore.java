@@ -27,7 +27,15 @@
 package com.salesforce.apt.graph.model.storage.classpath;
 
 public enum FileStore {
-  STANDARD("aptSpring");
+  /**
+   * Models verified against the models they import, read back when a definition is imported.
+   */
+  STANDARD("aptSpring"),
+  
+  /**
+   * The model of a single definition as parsed from its own type, before it is joined with the models it imports.
+   */
+  DEFINITION("aptSpringDefinition");
 
   private final String location; 
 
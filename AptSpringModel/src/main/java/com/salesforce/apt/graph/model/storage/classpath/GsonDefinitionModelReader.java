@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.classpath;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.salesforce.apt.graph.model.ContentHash;
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.ExpectedModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.model.storage.ByteBufferInputStream;
+
+/**
+ * Reads stored {@link DefinitionModel}s with a streaming {@link JsonReader}.
+ * <p>
+ * Only the header of a model (identity, root flag, dependency names and shas, expected definitions, type hierarchy)
+ * is materialized when read.  The object definitions, provided instances and computed expected beans, which hold the
+ * transitive content of the model, are skipped and only parsed the first time they are accessed, from the retained
+ * content or from content read again, see {@link ContentSource}.
+ * </p>
+ */
+public class GsonDefinitionModelReader {
+
+  private static final String ELEMENT_LOCATION = "elementLocation";
+  private static final String ROOT_NODE = "rootNode";
+  private static final String DEPENDENCY_NAMES = "dependencyNames";
+  private static final String DEPENDENCY_NAME_TO_SHA256 = "dependencyNameToSha256";
+  private static final String DIGEST_ALGORITHM = "digestAlgorithm";
+  private static final String TYPE_HIERARCHY = "typeHierarchy";
+  private static final String EXPECTED_DEFINITIONS = "expectedDefinitions";
+  private static final String OBJECT_DEFINITIONS = "objectDefinitions";
+  private static final String PROVIDED_INSTANCES = "providedInstances";
+  private static final String COMPUTED_EXPECTED = "computedExpected";
+  
+  private static final Type STRING_LIST = new TypeToken<List<String>>() {}.getType();
+  private static final Type CONTENT_HASH_MAP = new TypeToken<Map<String, ContentHash>>() {}.getType();
+  private static final Type TYPE_HIERARCHY_MAP = new TypeToken<Map<String, List<String>>>() {}.getType();
+  private static final Type EXPECTED_LIST = new TypeToken<List<ExpectedModel>>() {}.getType();
+  private static final Type INSTANCE_LIST = new TypeToken<List<InstanceModel>>() {}.getType();
+
+  private final Gson gson;
+  
+  public GsonDefinitionModelReader(Gson gson) {
+    this.gson = gson;
+  }
+  
+  /**
+   * Provides the content of a stored model each time its deferred sections are read.
+   */
+  @FunctionalInterface
+  public interface ContentSource {
+    
+    /**
+     * The content of the stored model.
+     * 
+     * @return the utf-8 json content of the model, positioned at its start.
+     * @throws IOException if the content could not be read.
+     */
+    ByteBuffer getContent() throws IOException;
+  }
+  
+  /**
+   * Reads the header of a stored model, the remaining sections are deferred until first use.
+   * 
+   * @param content the utf-8 json content of the stored model, must not be modified after this call.
+   * @param sourceLocation where the model was read from.
+   * @return the model, with its source location set.
+   * @throws IOException if the content is not a well formed model.
+   */
+  public DefinitionModel read(ByteBuffer content, String sourceLocation) throws IOException {
+    return read(content, sourceLocation, () -> content);
+  }
+  
+  /**
+   * Reads the header of a stored model, the remaining sections are read from the source on first use, so the content
+   * the header is read from need not be retained.
+   * 
+   * @param content the utf-8 json content of the stored model.
+   * @param sourceLocation where the model was read from.
+   * @param sections provides the same content when the deferred sections are read.
+   * @return the model, with its source location set.
+   * @throws IOException if the content is not a well formed model.
+   */
+  public DefinitionModel read(ByteBuffer content, String sourceLocation, ContentSource sections) throws IOException {
+    String elementLocation = null;
+    boolean rootNode = false;
+    List<String> dependencyNames = Collections.emptyList();
+    Map<String, ContentHash> dependencyNameToSha256 = Collections.emptyMap();
+    String digestAlgorithm = null;
+    Map<String, List<String>> typeHierarchy = Collections.emptyMap();
+    List<ExpectedModel> expectedDefinitions = Collections.emptyList();
+    
+    try (JsonReader reader = newReader(content)) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case ELEMENT_LOCATION:
+            elementLocation = reader.nextString();
+            break;
+          case ROOT_NODE:
+            rootNode = reader.nextBoolean();
+            break;
+          case DEPENDENCY_NAMES:
+            dependencyNames = gson.fromJson(reader, STRING_LIST);
+            break;
+          case DEPENDENCY_NAME_TO_SHA256:
+            dependencyNameToSha256 = gson.fromJson(reader, CONTENT_HASH_MAP);
+            break;
+          case DIGEST_ALGORITHM:
+            digestAlgorithm = reader.nextString();
+            break;
+          case TYPE_HIERARCHY:
+            typeHierarchy = gson.fromJson(reader, TYPE_HIERARCHY_MAP);
+            break;
+          case EXPECTED_DEFINITIONS:
+            expectedDefinitions = gson.fromJson(reader, EXPECTED_LIST);
+            break;
+          default:
+            reader.skipValue();
+            break;
+        }
+      }
+      reader.endObject();
+    } catch (JsonParseException | IllegalStateException ex) {
+      throw new IOException("Malformed model read from " + sourceLocation, ex);
+    }
+    if (elementLocation == null) {
+      throw new IOException("Model read from " + sourceLocation + " has no " + ELEMENT_LOCATION);
+    }
+
+    //order matters, setting the digest algorithm and dependency shas locks the source read content of the model.
+    DefinitionModel model = new DefinitionModel(elementLocation, rootNode);
+    model.setSourceLocation(sourceLocation);
+    if (dependencyNames != null) {
+      model.addDependencyNames(dependencyNames);
+    }
+    if (expectedDefinitions != null) {
+      expectedDefinitions.forEach(model::addDefinition);
+    }
+    if (typeHierarchy != null) {
+      model.addAllTypeHierarchy(typeHierarchy);
+    }
+    model.deferSections((objectDefinitions, providedInstances, computedExpected) ->
+        readSections(sections, sourceLocation, objectDefinitions, providedInstances, computedExpected));
+    model.setDigestAlgorithm(digestAlgorithm);
+    if (dependencyNameToSha256 != null) {
+      model.addAllDependencyContentHashes(dependencyNameToSha256);
+    }
+    return model;
+  }
+
+  private void readSections(ContentSource sections, String sourceLocation, List<InstanceModel> objectDefinitions,
+      List<InstanceModel> providedInstances, Set<ExpectedModel> computedExpected) {
+    try (JsonReader reader = newReader(sections.getContent())) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case OBJECT_DEFINITIONS:
+            addAll(objectDefinitions, gson.fromJson(reader, INSTANCE_LIST));
+            break;
+          case PROVIDED_INSTANCES:
+            addAll(providedInstances, gson.fromJson(reader, INSTANCE_LIST));
+            break;
+          case COMPUTED_EXPECTED:
+            addAll(computedExpected, gson.fromJson(reader, EXPECTED_LIST));
+            break;
+          default:
+            reader.skipValue();
+            break;
+        }
+      }
+    } catch (IOException | JsonParseException | IllegalStateException ex) {
+      throw new IllegalStateException("Could not read deferred content of model read from " + sourceLocation, ex);
+    }
+  }
+  
+  private static <T> void addAll(Collection<T> target, List<T> values) {
+    if (values != null) {
+      target.addAll(values);
+    }
+  }
+  
+  private static JsonReader newReader(ByteBuffer content) {
+    return new JsonReader(new InputStreamReader(new ByteBufferInputStream(content.duplicate()), StandardCharsets.UTF_8));
+  }
+  
+}
@@ -27,13 +27,10 @@
 package com.salesforce.apt.graph.model.storage.classpath;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.DigestInputStream;
-import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -41,11 +38,16 @@ import java.util.List;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.salesforce.apt.graph.model.ContentHash;
 import com.salesforce.apt.graph.model.DefinitionModel;
 import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
 import com.salesforce.apt.graph.model.storage.DefinitionOutputStreamProvider;
 import com.salesforce.apt.graph.model.storage.Resource;
 import com.salesforce.apt.graph.model.storage.ResourceLoader;
+import com.salesforce.apt.graph.model.storage.classpath.GsonDefinitionModelReader.ContentSource;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
+import com.salesforce.apt.graph.model.storage.digest.DigestingOutputStream;
 
 public class GsonDefinitionModelStore implements DefinitionModelStore {
   
@@ -55,6 +57,10 @@ public class GsonDefinitionModelStore implements DefinitionModelStore {
 
   private final Gson gson;
   
+  private final GsonDefinitionModelReader reader;
+  
+  private final DigestStrategy digestStrategy;
+  
   protected Gson getGson() {
     return gson;
   }
@@ -67,15 +73,49 @@ public class GsonDefinitionModelStore implements DefinitionModelStore {
     return resourceLocator;
   }
   
+  protected DigestStrategy getDigestStrategy() {
+    return digestStrategy;
+  }
+  
+  /**
+   * Get the standard SHA-256 message digest.   Every implementation of MessageDigest must
+   * provide SHA-256 message digest
+   * @return SHA-256 message digest
+   * @deprecated models are hashed by the store's {@link #getDigestStrategy()}, see {@link DigestStrategies#SHA_256}.
+   */
+  @Deprecated
+  protected MessageDigest getSha256Digest() {
+    try {
+      return MessageDigest.getInstance(DigestStrategies.SHA_256.getAlgorithm());
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException("Your jvm doesn't implement the default MessageDigesters... namely sha256.  Fail.");
+    }
+  }
+  
   public GsonDefinitionModelStore(ResourceLoader resourceLocator,
       DefinitionOutputStreamProvider definitionModelToStore) {
+    this(resourceLocator, definitionModelToStore, DigestStrategies.SHA_256);
+  }
+  
+  /**
+   * Construct a store that hashes the models it reads and writes with a specific digest strategy.
+   * 
+   * @param resourceLocator finds stored models.
+   * @param definitionModelToStore provides streams to store models.
+   * @param digestStrategy hashes stored models, see {@link DigestStrategies}.
+   */
+  public GsonDefinitionModelStore(ResourceLoader resourceLocator,
+      DefinitionOutputStreamProvider definitionModelToStore, DigestStrategy digestStrategy) {
     gson = new GsonBuilder().setPrettyPrinting().create();
+    reader = new GsonDefinitionModelReader(gson);
     this.resourceLocator = resourceLocator; 
     this.definitionModelToStore = definitionModelToStore;
+    this.digestStrategy = digestStrategy;
   }
   
   /**
-   * Find definitions by name.
+   * Find definitions by name.  Only the header of each definition is parsed, the transitive content of the
+   * definition is parsed the first time it is accessed, see {@link GsonDefinitionModelReader}.
    * 
    * @param name the name of the definition to find.
    * @return A list of all definitions that happen to have the name (from multiple jars?)
@@ -84,11 +124,13 @@ public class GsonDefinitionModelStore implements DefinitionModelStore {
   public List<DefinitionModel> lookup(String name) {
     List<DefinitionModel> output = new ArrayList<>();
     for (Resource resource : resourceLocator.getEntries(name)) {    
-      try (DigestInputStream digestInputStream = new DigestInputStream(resource.getInputStream(), getSha256Digest()); 
-          Reader reader = new InputStreamReader(digestInputStream, StandardCharsets.UTF_8)) {
-        DefinitionModel definitionModel = gson.fromJson(reader, DefinitionModel.class);
-        definitionModel.setSourceLocation(resource.getLocation());
-        definitionModel.setSha256(bytesToHex(digestInputStream.getMessageDigest().digest()));
+      try {
+        ByteBuffer content = resource.getContent();
+        ContentHash hash = digestStrategy.hash(content);
+        ContentSource source = retain(resource, content);
+        DefinitionModel definitionModel = reader.read(content, resource.getLocation(), source);
+        definitionModel.setContentHasher(algorithm -> rehash(resource, source, algorithm));
+        definitionModel.setContentHash(digestStrategy.getAlgorithm(), hash);
         output.add(definitionModel);
       } catch (IOException ex) {
         return null;
@@ -96,7 +138,38 @@ public class GsonDefinitionModelStore implements DefinitionModelStore {
     }
     return output;
   }
- 
+  
+  /**
+   * The deferred sections of a model, and its content hasher, read the content the model was read from again.  Heap
+   * content is retained.  A mapped file stays mapped (and on some platforms locked) for as long as its buffer is
+   * reachable, so mapped content is not retained, or copied, but mapped again when it is next needed.
+   * 
+   * @param resource the model was read from.
+   * @param content of the resource, read to find the model.
+   * @return the content again, as retained, or newly read from the resource.
+   */
+  private static ContentSource retain(Resource resource, ByteBuffer content) {
+    if (!content.isDirect()) {
+      return () -> content;
+    }
+    int length = content.remaining();
+    return () -> {
+      ByteBuffer remapped = resource.getContent();
+      if (remapped.remaining() != length) {
+        throw new IOException(resource.getLocation() + " changed since its model was read");
+      }
+      return remapped;
+    };
+  }
+  
+  private static ContentHash rehash(Resource resource, ContentSource source, String algorithm) {
+    try {
+      return DigestStrategies.forAlgorithm(algorithm).hash(source.getContent());
+    } catch (IOException ex) {
+      throw new IllegalStateException("Could not rehash the model read from " + resource.getLocation(), ex);
+    }
+  }
+  
   /**
    * Hex encoded bytes from the input array. presented as a String 
    * @param bytes to convert
@@ -118,12 +191,13 @@ public class GsonDefinitionModelStore implements DefinitionModelStore {
     OutputStream stream = null;
     try {
       stream = definitionModelToStore.store(model);
-      DigestOutputStream digesterStream = new DigestOutputStream(stream, getSha256Digest());
+      model.setDigestAlgorithm(digestStrategy.getAlgorithm());
+      DigestingOutputStream digesterStream = new DigestingOutputStream(stream, digestStrategy.getDigester());
       try (OutputStreamWriter writer = new OutputStreamWriter(digesterStream, StandardCharsets.UTF_8)) {
         gson.toJson(model, writer);
       }
       digesterStream.flush();
-      model.setSha256(bytesToHex(digesterStream.getMessageDigest().digest()));
+      model.setContentHash(digestStrategy.getAlgorithm(), new ContentHash(digesterStream.getDigester().digest()));
 
       //when in incremental mode, the underlying streams throw exceptions if closed multiple times.
       try {
@@ -144,17 +218,4 @@ public class GsonDefinitionModelStore implements DefinitionModelStore {
       return false;
     }
   }
-  
-  /**
-   * Get the standard SHA-256 message digest.   Every implementation of MessageDigest must
-   * provide SHA-256 message digest
-   * @return SHA-256 message digest
-   */
-  protected MessageDigest getSha256Digest() {
-    try {
-      return MessageDigest.getInstance("SHA-256");
-    } catch (NoSuchAlgorithmException nsae) {
-      throw new IllegalStateException("Your jvm doesn't implement the default MessageDigesters... namely sha256.  Fail.");
-    }
-  }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.classpath;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.salesforce.apt.graph.model.storage.Resource;
+
+/**
+ * A model file in an exploded class directory (target/classes, an IDE's output folder).  Large files are memory
+ * mapped, small files are read in a single call in to a heap buffer as mapping them costs more than reading them.
+ * A file stays mapped for as long as its buffer is reachable, callers map the file again rather than retain mapped
+ * content.
+ */
+public class MappedFileResource implements Resource {
+
+  /**
+   * Files at least this large are memory mapped.
+   */
+  static final long MAPPING_THRESHOLD = 16 * 1024;
+  
+  private final Path path;
+  
+  private final String location;
+  
+  /**
+   * Construct a resource for a file.
+   * 
+   * @param path of the file.
+   * @param location the reported location of the file, typically the url it was found by.
+   */
+  public MappedFileResource(Path path, String location) {
+    if (path == null) {
+      throw new IllegalArgumentException("Path may not be null");
+    }
+    this.path = path;
+    this.location = location;
+  }
+
+  @Override
+  public String getLocation() {
+    return location;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return Files.newInputStream(path);
+  }
+
+  @Override
+  public ByteBuffer getContent() throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size >= MAPPING_THRESHOLD) {
+        return channel.map(MapMode.READ_ONLY, 0, size);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+        //read until full, or the file is truncated under us.
+      }
+      buffer.flip();
+      return buffer.asReadOnlyBuffer();
+    }
+  }
+
+}
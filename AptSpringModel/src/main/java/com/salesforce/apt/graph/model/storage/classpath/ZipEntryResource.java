@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.salesforce.apt.graph.model.storage.Resource;
+
+/**
+ * A model stored as an entry in a jar, read through the jar's shared {@link ZipFile}, see {@link ZipFileCache}.
+ */
+public class ZipEntryResource implements Resource {
+
+  private final ZipFileCache zipFiles;
+  
+  private final File jar;
+  
+  private final String entryName;
+  
+  private final String location;
+  
+  /**
+   * Construct a resource for a jar entry.
+   * 
+   * @param zipFiles the open jars, shared by the resources of a loader.
+   * @param jar the file containing the entry.
+   * @param entryName the name of the entry with in the jar.
+   * @param location the reported location of the entry, typically the url it was found by.
+   */
+  public ZipEntryResource(ZipFileCache zipFiles, File jar, String entryName, String location) {
+    if (zipFiles == null || jar == null || entryName == null) {
+      throw new IllegalArgumentException("Zip files, jar and entry name may not be null");
+    }
+    this.zipFiles = zipFiles;
+    this.jar = jar;
+    this.entryName = entryName;
+    this.location = location;
+  }
+  
+  @Override
+  public String getLocation() {
+    return location;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    ZipFile zipFile = zipFiles.get(jar);
+    return zipFile.getInputStream(getEntry(zipFile));
+  }
+  
+  @Override
+  public ByteBuffer getContent() throws IOException {
+    ZipFile zipFile = zipFiles.get(jar);
+    ZipEntry entry = getEntry(zipFile);
+    if (entry.getSize() < 0 || entry.getSize() > Integer.MAX_VALUE) {
+      return Resource.super.getContent();
+    }
+    byte[] content = new byte[(int) entry.getSize()];
+    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+      int offset = 0;
+      int length;
+      while (offset < content.length && (length = inputStream.read(content, offset, content.length - offset)) != -1) {
+        offset += length;
+      }
+      if (offset != content.length) {
+        throw new IOException("Truncated entry " + entryName + " in " + jar);
+      }
+    }
+    return ByteBuffer.wrap(content).asReadOnlyBuffer();
+  }
+
+  private ZipEntry getEntry(ZipFile zipFile) throws IOException {
+    ZipEntry entry = zipFile.getEntry(entryName);
+    if (entry == null) {
+      throw new IOException("No entry " + entryName + " in " + jar);
+    }
+    return entry;
+  }
+  
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.classpath;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipFile;
+
+/**
+ * Keeps a long lived {@link ZipFile} open per jar so that reading a model does not open (and parse the central
+ * directory of) the jar again as a new JarURLConnection would.  A jar is reopened if it is modified on disk, as happens
+ * when a sibling project is rebuilt in an IDE, the stale file is left open as streams read from it may still be in
+ * use.  Every file is closed when the cache is closed, by the owner of the cache, see
+ * {@link ClasspathUrlResourceLoader#close()}.
+ */
+public final class ZipFileCache implements Closeable {
+
+  private final ConcurrentMap<File, OpenZipFile> openFiles = new ConcurrentHashMap<>();
+  
+  private final List<ZipFile> staleFiles = new ArrayList<>();
+  
+  private volatile boolean closed = false;
+  
+  private static final class OpenZipFile {
+    private final ZipFile zipFile;
+    private final long lastModified;
+    private final long length;
+    
+    private OpenZipFile(ZipFile zipFile, long lastModified, long length) {
+      this.zipFile = zipFile;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+  }
+  
+  /**
+   * Get the shared open {@link ZipFile} for a jar, the returned file must not be closed by the caller.
+   * 
+   * @param jar the jar to open.
+   * @return an open zip file.
+   * @throws IOException if the jar can not be opened, or the cache is closed.
+   */
+  public ZipFile get(File jar) throws IOException {
+    File key = jar.getAbsoluteFile();
+    OpenZipFile open = openFiles.get(key);
+    long lastModified = key.lastModified();
+    long length = key.length();
+    if (!closed && open != null && open.lastModified == lastModified && open.length == length) {
+      return open.zipFile;
+    }
+    synchronized (openFiles) {
+      if (closed) {
+        throw new IOException("Cache of zip files is closed, could not open " + key);
+      }
+      open = openFiles.get(key);
+      if (open == null || open.lastModified != lastModified || open.length != length) {
+        if (open != null) {
+          staleFiles.add(open.zipFile);
+        }
+        open = new OpenZipFile(new ZipFile(key), lastModified, length);
+        openFiles.put(key, open);
+      }
+      return open.zipFile;
+    }
+  }
+  
+  /**
+   * Closes all open and stale zip files, streams read from them may no longer be used.
+   */
+  @Override
+  public void close() {
+    synchronized (openFiles) {
+      closed = true;
+      openFiles.values().forEach(open -> close(open.zipFile));
+      openFiles.clear();
+      staleFiles.forEach(ZipFileCache::close);
+      staleFiles.clear();
+    }
+  }
+  
+  private static void close(ZipFile zipFile) {
+    try {
+      zipFile.close();
+    } catch (IOException ioe) {
+      //nothing more can be done with the file.
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.digest;
+
+/**
+ * The digest strategies known to AptSpring.
+ */
+public final class DigestStrategies {
+
+  /**
+   * The default, and the algorithm of models stored before the algorithm was recorded.  Use for anything published.
+   */
+  public static final DigestStrategy SHA_256 = new MessageDigestStrategy("SHA-256");
+  
+  /**
+   * Fast, non-cryptographic, suitable for trusted local builds only.
+   */
+  public static final DigestStrategy MURMUR3_128 = new Murmur3DigestStrategy();
+  
+  private DigestStrategies() {
+  }
+  
+  /**
+   * Find the strategy for an algorithm name, as recorded in a model.
+   * 
+   * @param algorithm name of the algorithm, null for models that predate the algorithm being recorded.
+   * @return the strategy implementing the algorithm.
+   * @throws IllegalArgumentException if the algorithm is not known.
+   */
+  public static DigestStrategy forAlgorithm(String algorithm) {
+    if (algorithm == null || SHA_256.getAlgorithm().equalsIgnoreCase(algorithm)) {
+      return SHA_256;
+    }
+    if (MURMUR3_128.getAlgorithm().equalsIgnoreCase(algorithm)) {
+      return MURMUR3_128;
+    }
+    return new MessageDigestStrategy(algorithm);
+  }
+  
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.digest;
+
+import java.nio.ByteBuffer;
+
+import com.salesforce.apt.graph.model.ContentHash;
+
+/**
+ * Computes the content hashes that models use to detect changes of the stored models they were verified against.
+ * The algorithm name is stored in each model so that models written with a different strategy can still be verified.
+ * See {@link DigestStrategies} for the available strategies.
+ */
+public interface DigestStrategy {
+
+  /**
+   * Name of the algorithm, as stored in the models.
+   * 
+   * @return the algorithm's name.
+   */
+  String getAlgorithm();
+  
+  /**
+   * A reset digester confined to the calling thread, reused by subsequent calls on that thread.  It must not be
+   * passed to other threads, nor used after another call to this method on the same thread.
+   * 
+   * @return a reset digester.
+   */
+  Digester getDigester();
+  
+  /**
+   * Hash the remaining content of a buffer without consuming it.
+   * 
+   * @param content to hash.
+   * @return the hash of the content.
+   */
+  default ContentHash hash(ByteBuffer content) {
+    Digester digester = getDigester();
+    digester.update(content.duplicate());
+    return new ContentHash(digester.digest());
+  }
+  
+}
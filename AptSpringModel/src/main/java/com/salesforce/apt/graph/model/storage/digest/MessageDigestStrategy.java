@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.digest;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Digests with a jdk provided {@link MessageDigest}, one instance of which is kept per thread.
+ */
+public class MessageDigestStrategy implements DigestStrategy {
+
+  private final String algorithm;
+  
+  private final ThreadLocal<MessageDigester> digesters;
+  
+  /**
+   * Construct a strategy for a jdk message digest algorithm.
+   * 
+   * @param algorithm name of the {@link MessageDigest} algorithm, for instance "SHA-256".
+   * @throws IllegalArgumentException if the jvm does not provide the algorithm.
+   */
+  public MessageDigestStrategy(String algorithm) {
+    this.algorithm = algorithm;
+    newMessageDigest(algorithm);
+    digesters = ThreadLocal.withInitial(() -> new MessageDigester(newMessageDigest(algorithm)));
+  }
+  
+  private static MessageDigest newMessageDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalArgumentException("Your jvm doesn't implement the MessageDigest " + algorithm, nsae);
+    }
+  }
+  
+  @Override
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  @Override
+  public Digester getDigester() {
+    MessageDigester digester = digesters.get();
+    digester.messageDigest.reset();
+    return digester;
+  }
+  
+  private static final class MessageDigester implements Digester {
+    
+    private final MessageDigest messageDigest;
+    
+    private MessageDigester(MessageDigest messageDigest) {
+      this.messageDigest = messageDigest;
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int length) {
+      messageDigest.update(input, offset, length);
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+      messageDigest.update(input);
+    }
+
+    @Override
+    public byte[] digest() {
+      return messageDigest.digest();
+    }
+  }
+  
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage.digest;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The 128 bit x64 variant of MurmurHash3 (seed 0).  Much faster than SHA-256, but not a cryptographic hash, so it
+ * is only suited to detecting accidental changes in trusted local builds, never for published artifacts.
+ */
+public class Murmur3DigestStrategy implements DigestStrategy {
+
+  public static final String ALGORITHM = "MURMUR3-128";
+  
+  private final ThreadLocal<Murmur3Digester> digesters = ThreadLocal.withInitial(Murmur3Digester::new);
+  
+  @Override
+  public String getAlgorithm() {
+    return ALGORITHM;
+  }
+
+  @Override
+  public Digester getDigester() {
+    Murmur3Digester digester = digesters.get();
+    digester.reset();
+    return digester;
+  }
+
+  private static final class Murmur3Digester implements Digester {
+    
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final ByteBuffer pending = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+    private long h1;
+    private long h2;
+    private long length;
+    
+    private void reset() {
+      pending.clear();
+      h1 = 0;
+      h2 = 0;
+      length = 0;
+    }
+    
+    @Override
+    public void update(byte[] input, int offset, int length) {
+      update(ByteBuffer.wrap(input, offset, length));
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+      ByteBuffer source = input.order() == ByteOrder.LITTLE_ENDIAN ? input : input.slice().order(ByteOrder.LITTLE_ENDIAN);
+      int consumed = source.remaining();
+      length += consumed;
+      while (pending.position() > 0 && source.hasRemaining()) {
+        pending.put(source.get());
+        if (!pending.hasRemaining()) {
+          pending.flip();
+          mixBlock(pending.getLong(), pending.getLong());
+          pending.clear();
+        }
+      }
+      while (source.remaining() >= 16) {
+        mixBlock(source.getLong(), source.getLong());
+      }
+      while (source.hasRemaining()) {
+        pending.put(source.get());
+      }
+      if (source != input) {
+        input.position(input.position() + consumed);
+      }
+    }
+    
+    private void mixBlock(long k1, long k2) {
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+    
+    private static long mixK1(long k1) {
+      return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+    
+    private static long mixK2(long k2) {
+      return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+    
+    private static long fmix64(long value) {
+      long k = value;
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+    }
+
+    @Override
+    public byte[] digest() {
+      pending.flip();
+      int tail = pending.remaining();
+      long k1 = 0;
+      long k2 = 0;
+      for (int i = tail - 1; i >= 8; i--) {
+        k2 ^= (pending.get(i) & 0xFFL) << ((i - 8) * 8);
+      }
+      for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+        k1 ^= (pending.get(i) & 0xFFL) << (i * 8);
+      }
+      if (tail > 8) {
+        h2 ^= mixK2(k2);
+      }
+      if (tail > 0) {
+        h1 ^= mixK1(k1);
+      }
+      
+      h1 ^= length;
+      h2 ^= length;
+      h1 += h2;
+      h2 += h1;
+      h1 = fmix64(h1);
+      h2 = fmix64(h2);
+      h1 += h2;
+      h2 += h1;
+      
+      byte[] output = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+      reset();
+      return output;
+    }
+  }
+  
+}
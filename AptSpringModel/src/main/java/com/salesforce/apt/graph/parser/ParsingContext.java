@@ -26,14 +26,20 @@
  */
 package com.salesforce.apt.graph.parser;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 
 import com.salesforce.apt.graph.model.DefinitionModel;
 import com.salesforce.apt.graph.model.errors.ErrorMessages;
 import com.salesforce.apt.graph.model.errors.ErrorModel;
 import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.processing.VerificationMetrics;
 import com.salesforce.apt.graph.processing.Verifier;
 import com.salesforce.apt.graph.types.AssignabilityUtils;
 
@@ -47,23 +53,73 @@ public class ParsingContext {
   
   protected final DefinitionModelStore store;
   
+  protected final VerificationMetrics metrics;
+  
+  private Map<String, DefinitionModel> joinedDefinitions;
+  
   public ErrorMessages getMessageFormats() {
     return messageFormats;
   }
   
   public ParsingContext(ErrorMessages messageFormats,
       AssignabilityUtils assignabilityUtils, DefinitionModelStore store) {
+    this(messageFormats, assignabilityUtils, store, VerificationMetrics.NONE);
+  }
+  
+  /**
+   * Construct a parsing context whose verification is measured.
+   * 
+   * @param messageFormats formats of error messages.
+   * @param assignabilityUtils checks the assignability of bean types.
+   * @param store reads and writes models.
+   * @param metrics times the phases of verification.
+   */
+  public ParsingContext(ErrorMessages messageFormats,
+      AssignabilityUtils assignabilityUtils, DefinitionModelStore store, VerificationMetrics metrics) {
     this.messageFormats = messageFormats;
     this.assignabilityUtils = assignabilityUtils;
     this.store = store;
+    this.metrics = metrics;
   }
 
   public void addDefinition(DefinitionModel definition) {
     this.definitions.add(definition);
+    joinedDefinitions = null;
+  }
+  
+  /**
+   * The definitions parsed, joined to their dependencies once verified.
+   * 
+   * @return the parsed definitions.
+   */
+  public List<DefinitionModel> getDefinitions() {
+    return Collections.unmodifiableList(definitions);
+  }
+  
+  /**
+   * Find a definition, parsed or read from the store, in the graph of definitions joined during verification.
+   * Only meaningful once verification has joined the definitions, as when checking assignability.
+   * 
+   * @param identity of the definition.
+   * @return the definition, or null if it is not part of the graph.
+   */
+  public DefinitionModel getJoinedDefinition(String identity) {
+    if (joinedDefinitions == null) {
+      Map<String, DefinitionModel> index = new HashMap<>();
+      Deque<DefinitionModel> toVisit = new ArrayDeque<>(definitions);
+      while (!toVisit.isEmpty()) {
+        DefinitionModel definition = toVisit.pop();
+        if (index.putIfAbsent(definition.getIdentity(), definition) == null) {
+          toVisit.addAll(definition.getDependencies());
+        }
+      }
+      joinedDefinitions = index;
+    }
+    return joinedDefinitions.get(identity);
   }
   
   public Queue<ErrorModel> checkAndStoreValid() {
-    return new Verifier().verifyDefinitions(this.definitions, assignabilityUtils, store);
+    return new Verifier(metrics).verifyDefinitions(this.definitions, assignabilityUtils, store);
   }
   
   /**
@@ -73,5 +129,6 @@ public class ParsingContext {
    */
   public void reset() {
     definitions.clear();
+    joinedDefinitions = null;
   }
 }
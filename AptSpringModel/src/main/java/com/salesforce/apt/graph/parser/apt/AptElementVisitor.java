@@ -26,6 +26,9 @@
  */
 package com.salesforce.apt.graph.parser.apt;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.PackageElement;
@@ -36,9 +39,15 @@ import javax.lang.model.util.AbstractElementVisitor8;
 
 import com.salesforce.apt.graph.model.DefinitionModel;
 
+/**
+ * Parses definitions from types and the types nested in them.  Only types produce definitions, so members are not
+ * descended into.  Each type is parsed once per visitor, a visitor should be used for a single round of processing.
+ */
 public class AptElementVisitor extends AbstractElementVisitor8<Void, AptParsingContext> {
 
   private DefinitionParser parser;
+  
+  private final Set<TypeElement> visited = new HashSet<>();
 
   public AptElementVisitor(DefinitionParser parser) {
     this.parser = parser;
@@ -46,7 +55,9 @@ public class AptElementVisitor extends AbstractElementVisitor8<Void, AptParsingC
 
   protected Void defaultAction(Element element, AptParsingContext definitions) {
     for (Element e1 : element.getEnclosedElements()) {
-      this.visit(e1, definitions);
+      if (e1 instanceof TypeElement) {
+        this.visit(e1, definitions);
+      }
     }
     return null;
   }
@@ -58,6 +69,9 @@ public class AptElementVisitor extends AbstractElementVisitor8<Void, AptParsingC
 
   @Override
   public Void visitType(TypeElement element, AptParsingContext definitions) {
+    if (!visited.add(element)) {
+      return null;
+    }
     DefinitionModel def = parser.parseDefinition(element);
     if (def != null) {
       definitions.addDefinition(def);
@@ -67,16 +81,16 @@ public class AptElementVisitor extends AbstractElementVisitor8<Void, AptParsingC
 
   @Override
   public Void visitVariable(VariableElement element, AptParsingContext definitions) {
-    return defaultAction(element, definitions);
+    return null;
   }
 
   @Override
   public Void visitExecutable(ExecutableElement element, AptParsingContext definitions) {
-    return defaultAction(element, definitions);
+    return null;
   }
 
   @Override
   public Void visitTypeParameter(TypeParameterElement element, AptParsingContext definitions) {
-    return defaultAction(element, definitions);
+    return null;
   }
 }
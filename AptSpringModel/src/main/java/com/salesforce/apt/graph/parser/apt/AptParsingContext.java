@@ -26,6 +26,9 @@
  */
 package com.salesforce.apt.graph.parser.apt;
 
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
@@ -41,10 +44,15 @@ import com.salesforce.apt.graph.model.AbstractModel;
 import com.salesforce.apt.graph.model.DefinitionModel;
 import com.salesforce.apt.graph.model.errors.ErrorMessages;
 import com.salesforce.apt.graph.model.errors.ErrorModel;
+import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
 import com.salesforce.apt.graph.model.storage.apt.AptFilerStore;
 import com.salesforce.apt.graph.model.storage.apt.AptResourceLoader;
 import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
 import com.salesforce.apt.graph.parser.ParsingContext;
+import com.salesforce.apt.graph.processing.VerificationMetrics;
+import com.salesforce.apt.graph.types.AssignabilityUtils;
 import com.salesforce.apt.graph.types.impl.AptAssignabilityUtils;
 
 public class AptParsingContext extends ParsingContext {
@@ -53,8 +61,56 @@ public class AptParsingContext extends ParsingContext {
   
   public AptParsingContext(ErrorMessages messageFormats,
       Filer filer, Elements elementUtils, Types types) {
-    super(messageFormats, new AptAssignabilityUtils(types, elementUtils),
-        new ClassFileGsonDefinitionModelStore(new AptResourceLoader(elementUtils), new AptFilerStore(filer)));
+    this(messageFormats, filer, elementUtils, types, DigestStrategies.SHA_256);
+  }
+
+  public AptParsingContext(ErrorMessages messageFormats,
+      Filer filer, Elements elementUtils, Types types, DigestStrategy digestStrategy) {
+    this(messageFormats, filer, elementUtils, types, digestStrategy, null);
+  }
+
+  /**
+   * Construct a parsing context storing models as class files.
+   * 
+   * @param messageFormats formats of error messages.
+   * @param filer writes the stored models.
+   * @param elementUtils of the processing environment.
+   * @param types of the processing environment.
+   * @param digestStrategy hashes the stored models.
+   * @param storeExecutor serializes and hashes stored models off the processing thread, null to do so inline.
+   */
+  public AptParsingContext(ErrorMessages messageFormats,
+      Filer filer, Elements elementUtils, Types types, DigestStrategy digestStrategy, Executor storeExecutor) {
+    this(messageFormats, elementUtils, new AptAssignabilityUtils(types, elementUtils),
+        new ClassFileGsonDefinitionModelStore(new AptResourceLoader(elementUtils), new AptFilerStore(filer), digestStrategy,
+            storeExecutor));
+  }
+  
+  /**
+   * Construct a parsing context with a configured store.
+   * 
+   * @param messageFormats formats of error messages.
+   * @param elementUtils of the processing environment.
+   * @param assignabilityUtils checks the assignability of bean types.
+   * @param store reads and writes models.
+   */
+  public AptParsingContext(ErrorMessages messageFormats, Elements elementUtils, AssignabilityUtils assignabilityUtils,
+      DefinitionModelStore store) {
+    this(messageFormats, elementUtils, assignabilityUtils, store, VerificationMetrics.NONE);
+  }
+  
+  /**
+   * Construct a parsing context with a configured store, whose verification is measured.
+   * 
+   * @param messageFormats formats of error messages.
+   * @param elementUtils of the processing environment.
+   * @param assignabilityUtils checks the assignability of bean types.
+   * @param store reads and writes models.
+   * @param metrics times the phases of verification.
+   */
+  public AptParsingContext(ErrorMessages messageFormats, Elements elementUtils, AssignabilityUtils assignabilityUtils,
+      DefinitionModelStore store, VerificationMetrics metrics) {
+    super(messageFormats, assignabilityUtils, store, metrics);
     this.elementUtils = elementUtils;
   }
 
@@ -66,9 +122,10 @@ public class AptParsingContext extends ParsingContext {
    * Gives user feedback as info/warnings/errors during compilation (works in m2e with takari-lifecycle).
    * 
    * @param messager APT round handler for user messages
+   * @return true if verification found no errors.
    */
-  public void outputErrors(Messager messager) {
-    Iterable<ErrorModel> errors = checkAndStoreValid();
+  public boolean outputErrors(Messager messager) {
+    Queue<ErrorModel> errors = checkAndStoreValid();
     for (ErrorModel error : errors) {
       for (AbstractModel model : error.getInvolved()) {
         if (model.getSourceElement().isPresent()) {
@@ -77,6 +134,7 @@ public class AptParsingContext extends ParsingContext {
         } 
       }
     }
+    return errors.isEmpty();
   }
   
   
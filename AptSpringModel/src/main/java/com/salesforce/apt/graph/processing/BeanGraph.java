@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.processing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+
+/**
+ * The beans of a verified definition, its own and those of everything it imports, ordered so that every bean follows
+ * the beans it depends on.  Dependencies no bean of the graph provides are expected, supplied from outside the graph.
+ * <p>
+ * The graph is read from a definition that passed verification, so names are unique and the beans are acyclic.
+ * </p>
+ */
+public class BeanGraph {
+  
+  private static final Comparator<InstanceModel> BY_NAME = Comparator.comparing(InstanceModel::getIdentity);
+
+  private final DefinitionModel definition;
+  
+  private final Map<String, InstanceModel> byName = new TreeMap<>();
+  
+  private final List<InstanceModel> instances;
+  
+  private final Map<String, String> expected = new TreeMap<>();
+  
+  private Map<InstanceModel, Integer> indexes;
+  
+  private List<BitSet> closures;
+  
+  /**
+   * Read the beans of a definition.
+   * 
+   * @param definition a verified definition, joined to the definitions it imports.
+   * @throws IllegalArgumentException if a name is provided twice, or the beans have a cycle.
+   */
+  public BeanGraph(DefinitionModel definition) {
+    this(definition, beansOf(definition));
+  }
+  
+  private BeanGraph(DefinitionModel definition, Collection<InstanceModel> beans) {
+    this.definition = definition;
+    for (InstanceModel instance : beans) {
+      addName(instance.getIdentity(), instance);
+      for (String alias : instance.getAliases()) {
+        addName(alias, instance);
+      }
+    }
+    for (InstanceModel instance : beans) {
+      for (InstanceDependencyModel dependency : instance.getDependencies()) {
+        if (!byName.containsKey(dependency.getIdentity())) {
+          expected.putIfAbsent(dependency.getIdentity(), dependency.getType());
+        }
+      }
+    }
+    instances = Collections.unmodifiableList(sort(beans));
+  }
+  
+  private static Collection<InstanceModel> beansOf(DefinitionModel definition) {
+    //same formula as the content inspector, imported instances are deduplicated by location (diamond imports).
+    Map<String, InstanceModel> byLocation = new LinkedHashMap<>();
+    Stream.concat(definition.getObjectDefinitions().stream(),
+        definition.getDependencies().stream().flatMap(d -> d.getProvidedInstances().stream()))
+        .forEach(instance -> byLocation.putIfAbsent(instance.getElementLocation(), instance));
+    return byLocation.values();
+  }
+  
+  private void addName(String name, InstanceModel instance) {
+    InstanceModel existing = byName.putIfAbsent(name, instance);
+    if (existing != null && existing != instance) {
+      throw new IllegalArgumentException("Bean " + name + " is provided by both " + existing.getElementLocation()
+          + " and " + instance.getElementLocation());
+    }
+  }
+  
+  /**
+   * Kahn's algorithm, ties broken by name so that the order is stable across compilations.
+   */
+  private List<InstanceModel> sort(Iterable<InstanceModel> all) {
+    Map<InstanceModel, Integer> unresolved = new IdentityHashMap<>();
+    Map<InstanceModel, List<InstanceModel>> dependents = new IdentityHashMap<>();
+    PriorityQueue<InstanceModel> ready = new PriorityQueue<>(BY_NAME);
+    for (InstanceModel instance : all) {
+      List<InstanceModel> dependencies = getDependencies(instance);
+      unresolved.put(instance, dependencies.size());
+      for (InstanceModel dependency : dependencies) {
+        dependents.computeIfAbsent(dependency, d -> new ArrayList<>()).add(instance);
+      }
+      if (dependencies.isEmpty()) {
+        ready.add(instance);
+      }
+    }
+    List<InstanceModel> sorted = new ArrayList<>(unresolved.size());
+    while (!ready.isEmpty()) {
+      InstanceModel instance = ready.poll();
+      sorted.add(instance);
+      for (InstanceModel dependent : dependents.getOrDefault(instance, Collections.emptyList())) {
+        if (unresolved.merge(dependent, -1, Integer::sum) == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (sorted.size() != unresolved.size()) {
+      throw new IllegalArgumentException("Cycle in the beans of " + definition.getIdentity());
+    }
+    return sorted;
+  }
+
+  public DefinitionModel getDefinition() {
+    return definition;
+  }
+  
+  /**
+   * Every bean of the graph, each after the beans it depends on.
+   * 
+   * @return the beans in topological order.
+   */
+  public List<InstanceModel> getInstances() {
+    return instances;
+  }
+  
+  /**
+   * Find a bean by its name or an alias.
+   * 
+   * @param name of the bean.
+   * @return the bean, or null if no bean of the graph has the name.
+   */
+  public InstanceModel getInstance(String name) {
+    return byName.get(name);
+  }
+  
+  /**
+   * The beans of the graph that a bean depends on, in the order of its dependencies, without the expected ones.
+   * A bean depending on another twice lists it twice.
+   * 
+   * @param instance a bean of the graph.
+   * @return the beans it depends on.
+   */
+  public List<InstanceModel> getDependencies(InstanceModel instance) {
+    List<InstanceModel> dependencies = new ArrayList<>(instance.getDependencies().size());
+    for (InstanceDependencyModel dependency : instance.getDependencies()) {
+      InstanceModel resolved = byName.get(dependency.getIdentity());
+      if (resolved != null) {
+        dependencies.add(resolved);
+      }
+    }
+    return dependencies;
+  }
+  
+  /**
+   * The beans a bean transitively depends on, and the bean itself, as the indexes of {@link #getInstances()}.
+   * Computed for every bean of the graph on first use, each closure the union of those of the bean's dependencies.
+   * 
+   * @param instance a bean of the graph.
+   * @return the indexes of the bean's closure, a copy the caller may modify.
+   * @throws IllegalArgumentException if the bean is not part of the graph.
+   */
+  public BitSet getClosure(InstanceModel instance) {
+    if (closures == null) {
+      indexes = new IdentityHashMap<>();
+      List<BitSet> computed = new ArrayList<>(instances.size());
+      for (InstanceModel bean : instances) {
+        BitSet closure = new BitSet(instances.size());
+        closure.set(indexes.size());
+        for (InstanceModel dependency : getDependencies(bean)) {
+          closure.or(computed.get(indexes.get(dependency)));
+        }
+        indexes.put(bean, indexes.size());
+        computed.add(closure);
+      }
+      closures = computed;
+    }
+    Integer index = indexes.get(instance);
+    if (index == null) {
+      throw new IllegalArgumentException(instance.getIdentity() + " is not a bean of " + definition.getIdentity());
+    }
+    return (BitSet) closures.get(index).clone();
+  }
+  
+  /**
+   * The graph of the beans the entry points depend on, directly or transitively, and the entry points themselves.
+   * Dependencies that only unreachable beans had on expected beans are no longer expected.
+   * 
+   * @param entryPoints beans of the graph.
+   * @return the reachable graph, of the same definition.
+   * @throws IllegalArgumentException if an entry point is not part of the graph.
+   */
+  public BeanGraph reachableFrom(Collection<InstanceModel> entryPoints) {
+    BitSet reachable = new BitSet(instances.size());
+    for (InstanceModel entryPoint : entryPoints) {
+      reachable.or(getClosure(entryPoint));
+    }
+    List<InstanceModel> beans = new ArrayList<>(reachable.cardinality());
+    reachable.stream().forEach(index -> beans.add(instances.get(index)));
+    return new BeanGraph(definition, beans);
+  }
+  
+  /**
+   * Names of dependencies that no bean of the graph provides, to the type first expected of them.
+   * 
+   * @return the expected names and types, sorted by name.
+   */
+  public Map<String, String> getExpected() {
+    return Collections.unmodifiableMap(expected);
+  }
+  
+  /**
+   * The identities of the definitions owning the beans of the graph.
+   * 
+   * @return identities of the owning definitions, sorted.
+   */
+  public Set<String> getOwningDefinitions() {
+    Set<String> owners = new TreeSet<>();
+    for (InstanceModel instance : instances) {
+      owners.add(instance.getOwningDefinition());
+    }
+    return owners;
+  }
+}
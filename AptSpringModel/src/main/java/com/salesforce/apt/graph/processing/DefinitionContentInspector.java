@@ -30,11 +30,12 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -57,6 +58,8 @@ import com.salesforce.apt.graph.types.AssignabilityUtils;
 
 public class DefinitionContentInspector {
 
+  private final Set<DefinitionModel> notStored = new HashSet<>();
+
   public void inspectDefinitionGraph(Set<DefinitionModel> definitionGraphHeads,
       Consumer<ErrorModel> errorListener, AssignabilityUtils assignabilityUtils, DefinitionModelStore store) {
     for (DefinitionModel definition : definitionGraphHeads) {
@@ -82,8 +85,9 @@ public class DefinitionContentInspector {
     boolean verified = true;
     for (DefinitionModel dep : model.getDependencies()) {
       if (!dep.getSourceElement().isPresent()  //not recompiling
-          && model.getDependencyNameToSha256().containsKey(dep.getIdentity())) { //model already has a sha256 of it
-        if (!model.getDependencyNameToSha256().get(dep.getIdentity()).equals(dep.getSha256())) {
+          && model.getDependencyContentHashes().containsKey(dep.getIdentity())) { //model already has a hash of it
+        //compared with the algorithm the model recorded, which may differ from that of the current build.
+        if (!model.getDependencyContentHashes().get(dep.getIdentity()).equals(dep.getContentHash(model.getDigestAlgorithm()))) {
           errorListener.accept(new ErrorModel(ErrorType.DEPENDENCY_SHA_MISMATCH,
                 Arrays.asList(model, dep),  Arrays.asList(model)));
           verified = false;
@@ -150,11 +154,17 @@ public class DefinitionContentInspector {
     if (!errored) {
       //store as provided dependencies
       definition.addAllProvidedInstances(resolvedInstances.values());
+      boolean storable = true;
       for (DefinitionModel dep : definition.getDependencies()) {
-        definition.addDependencyNameToSha256(dep.getIdentity(), dep.getSha256());
+        if (isStored(dep)) {
+          definition.addDependencyContentHash(dep.getIdentity(), dep.getContentHash());
+        } else {
+          storable = false;
+        }
       }
       //storing will lock a the definition, as will reading.
-      if (!store.store(definition)) {
+      if (!storable || !store.store(definition)) {
+        notStored.add(definition);
         errorListener.accept(
             new ErrorModel(ErrorType.COULD_NOT_STORE, Arrays.asList(definition), Arrays.asList(definition)));
       }
@@ -163,6 +173,24 @@ public class DefinitionContentInspector {
     return errored;
   }
 
+  /**
+   * Whether a dependency was stored, dependents of a model that could not be stored can not be stored either, as they
+   * would record no hash of it.  A dependency written behind that failed to store is reported when the store is
+   * flushed, its dependents are reported here.
+   */
+  private boolean isStored(DefinitionModel dependency) {
+    if (notStored.contains(dependency)) {
+      return false;
+    }
+    try {
+      dependency.getContentHash();
+      return true;
+    } catch (IllegalStateException ex) {
+      notStored.add(dependency);
+      return false;
+    }
+  }
+
   private ErrorModel errorForMismatchedExpected(final DefinitionModel definition, ExpectedModel computedExpected,
       final Map<String, InstanceModel> nameToEntity, AssignabilityUtils assignabilityUtils) {
     //that which is to fill all the expectedInstance references.
@@ -227,7 +255,8 @@ public class DefinitionContentInspector {
     Map<String, Map<String, InstanceModel>> instancesByNameAndLocationDedupped = 
         definitionToAllInstancesByNameAndSourceLocation(definition);
     
-    final Map<String, InstanceModel> resolvedDependencies = new HashMap<>();
+    //sorted, the values become the stored provided instances and must be in a canonical order.
+    final Map<String, InstanceModel> resolvedDependencies = new TreeMap<>();
     boolean errored = false;    
     for (Entry<String, Map<String, InstanceModel>> entry : instancesByNameAndLocationDedupped.entrySet()) {
       if (entry.getValue().size() == 1) {
@@ -300,7 +329,7 @@ public class DefinitionContentInspector {
    */
   private boolean detectCyclesInEntityGraph(final DefinitionModel definition, final Map<String, InstanceModel> nameToEntity,
       final Consumer<ErrorModel> errorListener) {
-    final Map<String, ExpectedModel> missing = new HashMap<>();
+    final Map<String, ExpectedModel> missing = new TreeMap<>();
     final Graph<BaseInstanceModel, DefaultEdge> entityGraph = new DefaultDirectedGraph<>(DefaultEdge.class);
     for (BaseInstanceModel entity : nameToEntity.values()) {
       if (!entityGraph.containsVertex(entity)) {
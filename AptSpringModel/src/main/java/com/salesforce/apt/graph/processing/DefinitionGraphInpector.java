@@ -40,12 +40,29 @@ import org.jgrapht.graph.DefaultEdge;
 import com.salesforce.apt.graph.model.DefinitionModel;
 import com.salesforce.apt.graph.model.errors.ErrorModel;
 import com.salesforce.apt.graph.model.errors.ErrorType;
+import com.salesforce.apt.graph.processing.VerificationMetrics.Counter;
 
 public class DefinitionGraphInpector {
+  
+  private final VerificationMetrics metrics;
+  
+  public DefinitionGraphInpector() {
+    this(VerificationMetrics.NONE);
+  }
+  
+  /**
+   * An inspector that counts the edges and cycles of the graphs it inspects.
+   * 
+   * @param metrics where edges and cycles are counted.
+   */
+  public DefinitionGraphInpector(VerificationMetrics metrics) {
+    this.metrics = metrics;
+  }
 
   public Set<DefinitionModel> inspectDefinitionGraph(Collection<DefinitionModel> definitions,
       Consumer<ErrorModel> errorListener) {
     Graph<DefinitionModel, DefaultEdge> graph = buildDefinitionGraph(definitions);
+    metrics.add(Counter.EDGES, graph.edgeSet().size());
     errorForCycles(graph, errorListener);
     //TODO return all DefinitionModel needing re-evaluation
     return graph.vertexSet().stream().filter(dm -> graph.inDegreeOf(dm) == 0).collect(Collectors.toSet());
@@ -56,6 +73,7 @@ public class DefinitionGraphInpector {
     SzwarcfiterLauerSimpleCycles<DefinitionModel, DefaultEdge> cycleFind = new SzwarcfiterLauerSimpleCycles<>();
     cycleFind.setGraph(definitionGraph);
     for (List<DefinitionModel> list : cycleFind.findSimpleCycles()) {
+      metrics.add(Counter.CYCLES, 1);
       errorListener.accept(new ErrorModel(ErrorType.CYCLE_IN_DEFINITION_SOURCES, list, list));
     }
   }
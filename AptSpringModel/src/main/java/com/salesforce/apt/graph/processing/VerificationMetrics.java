@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.Resource;
+import com.salesforce.apt.graph.model.storage.ResourceLoader;
+import com.salesforce.apt.graph.types.AssignabilityUtils;
+
+/**
+ * Times the phases of processing and counts what was processed, safe for use from the threads that store models.
+ * Phases nest: type checks and stores are part of the content inspection, loading models is part of joining.
+ * A disabled instance, {@link #NONE}, records nothing and adds no overhead to the code it measures.
+ */
+public class VerificationMetrics {
+
+  public enum Phase { PARSE, JOIN, GRAPH_INSPECT, CONTENT_INSPECT, TYPE_CHECK, STORE, GENERATE }
+  
+  public enum Counter { MODELS_LOADED, BYTES_PARSED, EDGES, CYCLES }
+  
+  public static final VerificationMetrics NONE = new VerificationMetrics(false);
+  
+  private final boolean enabled;
+  
+  private final Map<Phase, LongAdder> nanos = new EnumMap<>(Phase.class);
+  
+  private final Map<Counter, LongAdder> counts = new EnumMap<>(Counter.class);
+  
+  public VerificationMetrics() {
+    this(true);
+  }
+  
+  private VerificationMetrics(boolean enabled) {
+    this.enabled = enabled;
+    for (Phase phase : Phase.values()) {
+      nanos.put(phase, new LongAdder());
+    }
+    for (Counter counter : Counter.values()) {
+      counts.put(counter, new LongAdder());
+    }
+  }
+  
+  public boolean isEnabled() {
+    return enabled;
+  }
+  
+  /**
+   * Time a phase of processing.
+   * 
+   * @param phase being timed, time is added to that of prior calls.
+   * @param work of the phase.
+   * @return the result of the work.
+   */
+  public <T> T time(Phase phase, Supplier<T> work) {
+    if (!enabled) {
+      return work.get();
+    }
+    long start = System.nanoTime();
+    try {
+      return work.get();
+    } finally {
+      nanos.get(phase).add(System.nanoTime() - start);
+    }
+  }
+  
+  /**
+   * Time a phase of processing.
+   * 
+   * @param phase being timed, time is added to that of prior calls.
+   * @param work of the phase.
+   */
+  public void time(Phase phase, Runnable work) {
+    time(phase, () -> {
+      work.run();
+      return null;
+    });
+  }
+  
+  public void add(Counter counter, long amount) {
+    if (enabled) {
+      counts.get(counter).add(amount);
+    }
+  }
+  
+  public long getNanos(Phase phase) {
+    return nanos.get(phase).sum();
+  }
+  
+  public long getCount(Counter counter) {
+    return counts.get(counter).sum();
+  }
+  
+  /**
+   * Clear all times and counts, processors may be reused across builds.
+   */
+  public void reset() {
+    nanos.values().forEach(LongAdder::reset);
+    counts.values().forEach(LongAdder::reset);
+  }
+  
+  /**
+   * Time type checks as {@link Phase#TYPE_CHECK}.
+   * 
+   * @param assignabilityUtils to measure.
+   * @return the measured utils, or the utils themselves if this is disabled.
+   */
+  public AssignabilityUtils measure(AssignabilityUtils assignabilityUtils) {
+    if (!enabled) {
+      return assignabilityUtils;
+    }
+    return (subject, target) -> time(Phase.TYPE_CHECK, () -> assignabilityUtils.isAssignableFrom(subject, target));
+  }
+  
+  /**
+   * Time stores, and the flush of stores written behind, as {@link Phase#STORE}, count the models loaded as
+   * {@link Counter#MODELS_LOADED}.
+   * 
+   * @param store to measure, may be null.
+   * @return the measured store, or the store itself if this is disabled.
+   */
+  public DefinitionModelStore measure(DefinitionModelStore store) {
+    if (!enabled || store == null) {
+      return store;
+    }
+    return new DefinitionModelStore() {
+      
+      @Override
+      public List<DefinitionModel> lookup(String name) {
+        List<DefinitionModel> output = store.lookup(name);
+        if (output != null) {
+          add(Counter.MODELS_LOADED, output.size());
+        }
+        return output;
+      }
+      
+      @Override
+      public boolean store(DefinitionModel model) {
+        return time(Phase.STORE, () -> store.store(model));
+      }
+      
+      @Override
+      public List<DefinitionModel> flush() {
+        return time(Phase.STORE, store::flush);
+      }
+    };
+  }
+  
+  /**
+   * Count the bytes of the stored models read as {@link Counter#BYTES_PARSED}.
+   * 
+   * @param loader to measure.
+   * @return the measured loader, or the loader itself if this is disabled.
+   */
+  public ResourceLoader measure(ResourceLoader loader) {
+    if (!enabled) {
+      return loader;
+    }
+    return name -> {
+      List<Resource> output = new ArrayList<>();
+      for (Resource resource : loader.getEntries(name)) {
+        output.add(new Resource() {
+          
+          @Override
+          public String getLocation() {
+            return resource.getLocation();
+          }
+          
+          @Override
+          public InputStream getInputStream() throws IOException {
+            return resource.getInputStream();
+          }
+          
+          @Override
+          public ByteBuffer getContent() throws IOException {
+            ByteBuffer content = resource.getContent();
+            add(Counter.BYTES_PARSED, content.remaining());
+            return content;
+          }
+        });
+      }
+      return output;
+    };
+  }
+  
+  /**
+   * The report of all times, in milliseconds, and counts.
+   * 
+   * @return the report as pretty printed json.
+   */
+  public String toJson() {
+    JsonObject phases = new JsonObject();
+    for (Phase phase : Phase.values()) {
+      phases.addProperty(name(phase, '_'), TimeUnit.NANOSECONDS.toMillis(getNanos(phase)));
+    }
+    JsonObject counters = new JsonObject();
+    for (Counter counter : Counter.values()) {
+      counters.addProperty(name(counter, '_'), getCount(counter));
+    }
+    JsonObject report = new JsonObject();
+    report.add("millis", phases);
+    report.add("counts", counters);
+    return new GsonBuilder().setPrettyPrinting().create().toJson(report);
+  }
+  
+  /**
+   * A one line summary of all times and counts.
+   * 
+   * @return the summary.
+   */
+  public String summary() {
+    return Stream.concat(
+        Stream.of(Phase.values()).map(p -> name(p, ' ') + " " + TimeUnit.NANOSECONDS.toMillis(getNanos(p)) + "ms"),
+        Stream.of(Counter.values()).map(c -> name(c, ' ') + " " + getCount(c)))
+      .collect(Collectors.joining(", "));
+  }
+  
+  private static String name(Enum<?> value, char separator) {
+    return value.name().toLowerCase(Locale.ROOT).replace('_', separator);
+  }
+  
+}
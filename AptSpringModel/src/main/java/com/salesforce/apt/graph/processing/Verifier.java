@@ -26,6 +26,7 @@
  */
 package com.salesforce.apt.graph.processing;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Queue;
 import java.util.Set;
@@ -34,11 +35,28 @@ import java.util.function.Consumer;
 
 import com.salesforce.apt.graph.model.DefinitionModel;
 import com.salesforce.apt.graph.model.errors.ErrorModel;
+import com.salesforce.apt.graph.model.errors.ErrorType;
 import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.processing.VerificationMetrics.Phase;
 import com.salesforce.apt.graph.types.AssignabilityUtils;
 
 public class Verifier {
   
+  private final VerificationMetrics metrics;
+  
+  public Verifier() {
+    this(VerificationMetrics.NONE);
+  }
+  
+  /**
+   * A verifier that times each phase of verification.
+   * 
+   * @param metrics records the time of each phase, and counts what was verified.
+   */
+  public Verifier(VerificationMetrics metrics) {
+    this.metrics = metrics;
+  }
+  
   public static class ErrorListener implements Consumer<ErrorModel> {
     
     private ConcurrentLinkedQueue<ErrorModel> errors = new ConcurrentLinkedQueue<>();
@@ -97,6 +115,7 @@ public class Verifier {
       DefinitionModelStore store,
       ErrorListener el,
       AssignabilityUtils assignabilityUtils) {
+    DefinitionModelStore measuredStore = metrics.measure(store);
 
     /*
      * Takes disjoint definitions that have recently been computed from scanning files and links them to each other in
@@ -105,7 +124,7 @@ public class Verifier {
      * 
      * This is stage 2 of the DefinitionModel's life cycle
      */
-    new DefinitionJoiner().joinDefinitions(definitions, store, el);
+    metrics.time(Phase.JOIN, () -> new DefinitionJoiner().joinDefinitions(definitions, measuredStore, el));
 
     //short circuit.
     if (el.hasError()) {
@@ -124,7 +143,8 @@ public class Verifier {
      * the will cause the lockedDefintionsMerged flag to be set to true in all definitions passed in, and the 
      * potential generation of errors
      */
-    Set<DefinitionModel> definitionHeads = new DefinitionGraphInpector().inspectDefinitionGraph(definitions, el);
+    Set<DefinitionModel> definitionHeads = metrics.time(Phase.GRAPH_INSPECT,
+        () -> new DefinitionGraphInpector(metrics).inspectDefinitionGraph(definitions, el));
 
     //short circuit.
     if (el.hasError()) {
@@ -134,8 +154,15 @@ public class Verifier {
     /*
      * Check the expected entities are listed and types are correct for supplied object by usage.
      */
-    new DefinitionContentInspector().inspectDefinitionGraph(definitionHeads, el, assignabilityUtils, store);
+    metrics.time(Phase.CONTENT_INSPECT, () -> new DefinitionContentInspector()
+        .inspectDefinitionGraph(definitionHeads, el, metrics.measure(assignabilityUtils), measuredStore));
 
+    /*
+     * Stores may write behind, complete all writes before the round ends.
+     */
+    for (DefinitionModel failed : measuredStore.flush()) {
+      el.accept(new ErrorModel(ErrorType.COULD_NOT_STORE, Arrays.asList(failed), Arrays.asList(failed)));
+    }
   }
 
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.types.impl;
+
+import java.util.List;
+
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.types.AssignabilityUtils;
+
+/**
+ * Checks assignability from the class files of bean types, read as resources of a class loader, without loading
+ * or initializing any of the classes, unlike {@link ReflectionAssignabilityUtils}.  See {@link ClassFileHierarchy}.
+ */
+public class ClassFileAssignabilityUtils extends HierarchyAssignabilityUtils {
+
+  private final ClassFileHierarchy hierarchy;
+  
+  public ClassFileAssignabilityUtils(ClassLoader classLoader) {
+    this(new ClassFileHierarchy(classLoader), null);
+  }
+  
+  /**
+   * Construct from a, possibly shared, hierarchy.
+   * 
+   * @param hierarchy reads and caches class file hierarchies.
+   * @param fallback decides upon types that can not be found, or compared, null to throw an
+   *     {@link IllegalArgumentException} instead.
+   */
+  public ClassFileAssignabilityUtils(ClassFileHierarchy hierarchy, AssignabilityUtils fallback) {
+    super(fallback);
+    this.hierarchy = hierarchy;
+  }
+  
+  @Override
+  protected List<String> getSupertypes(InstanceModel subject, String type) {
+    return hierarchy.getSupertypes(type).orElse(null);
+  }
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.types.impl;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads the supertypes of classes from the headers of their class files (super class, interfaces and the Signature
+ * attribute) found as resources of a class loader.  Classes are never loaded, let alone initialized.  Parsed headers
+ * and computed supertype closures are cached, an instance may be shared by any number of users of the same class
+ * loader.
+ * <p>
+ * Types are named as javac prints them, nested classes are separated with a '.', generic arguments follow in angle
+ * brackets separated by commas.
+ * </p>
+ */
+public class ClassFileHierarchy {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  
+  private static final String OBJECT = "java.lang.Object";
+  
+  private final ClassLoader classLoader;
+  
+  private final ConcurrentMap<String, Optional<ClassHeader>> headers = new ConcurrentHashMap<>();
+  
+  private final ConcurrentMap<String, Optional<List<String>>> supertypes = new ConcurrentHashMap<>();
+  
+  public ClassFileHierarchy(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+  }
+  
+  /**
+   * The header of a class file, its type parameters and direct supertypes in the form of signatures.
+   */
+  static final class ClassHeader {
+    private final List<String> typeParameters;
+    private final List<String> supertypeSignatures;
+    
+    ClassHeader(List<String> typeParameters, List<String> supertypeSignatures) {
+      this.typeParameters = typeParameters;
+      this.supertypeSignatures = supertypeSignatures;
+    }
+  }
+  
+  /**
+   * All supertypes of a type, with generic arguments substituted as seen by the type.  A raw type has raw supertypes.
+   * 
+   * @param type the type, as javac would print it.
+   * @return all supertypes, empty if the class file of the type (or of one of its supertypes) could not be found.
+   */
+  public Optional<List<String>> getSupertypes(String type) {
+    return supertypes.computeIfAbsent(type, this::computeSupertypes);
+  }
+  
+  private Optional<List<String>> computeSupertypes(String type) {
+    Set<String> output = new LinkedHashSet<>();
+    List<String> toVisit = new ArrayList<>(Collections.singletonList(type));
+    while (!toVisit.isEmpty()) {
+      String current = toVisit.remove(0);
+      ParseType parsed = ParseType.parse(current);
+      Optional<ClassHeader> header = getHeader(parsed.getType());
+      if (!header.isPresent()) {
+        return Optional.empty();
+      }
+      Map<String, String> arguments = new LinkedHashMap<>();
+      boolean raw = parsed.getParameters().size() != header.get().typeParameters.size();
+      for (int i = 0; !raw && i < parsed.getParameters().size(); i++) {
+        arguments.put(header.get().typeParameters.get(i), parsed.getParameters().get(i).toString());
+      }
+      for (String signature : header.get().supertypeSignatures) {
+        String supertype = new SignatureReader(signature, raw ? null : arguments).readTypeSignature();
+        if (output.add(supertype)) {
+          toVisit.add(supertype);
+        }
+      }
+    }
+    if (!type.equals(OBJECT)) {
+      output.add(OBJECT);
+    }
+    return Optional.of(new ArrayList<>(output));
+  }
+  
+  /**
+   * Get the header of a class, the nested classes of a name are found by replacing trailing '.'s with '$'s.
+   * 
+   * @param name of the class.
+   * @return the header, empty if no class file is found.
+   */
+  Optional<ClassHeader> getHeader(String name) {
+    return headers.computeIfAbsent(name, this::readHeader);
+  }
+  
+  private Optional<ClassHeader> readHeader(String name) {
+    String path = name.replace('.', '/');
+    while (true) {
+      try (InputStream inputStream = classLoader == null ? ClassLoader.getSystemResourceAsStream(path + ".class")
+          : classLoader.getResourceAsStream(path + ".class")) {
+        if (inputStream != null) {
+          return Optional.of(parse(new DataInputStream(inputStream)));
+        }
+      } catch (IOException ioe) {
+        return Optional.empty();
+      }
+      int separator = path.lastIndexOf('/');
+      if (separator == -1) {
+        return Optional.empty();
+      }
+      path = path.substring(0, separator) + "$" + path.substring(separator + 1);
+    }
+  }
+  
+  static ClassHeader parse(DataInputStream input) throws IOException {
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    input.readUnsignedShort(); //minor
+    input.readUnsignedShort(); //major
+    int constantPoolCount = input.readUnsignedShort();
+    String[] utf8 = new String[constantPoolCount];
+    int[] classNameIndexes = new int[constantPoolCount];
+    for (int i = 1; i < constantPoolCount; i++) {
+      int tag = input.readUnsignedByte();
+      switch (tag) {
+        case 1: //Utf8
+          utf8[i] = input.readUTF();
+          break;
+        case 7: //Class
+          classNameIndexes[i] = input.readUnsignedShort();
+          break;
+        case 8: //String
+        case 16: //MethodType
+        case 19: //Module
+        case 20: //Package
+          input.skipBytes(2);
+          break;
+        case 15: //MethodHandle
+          input.skipBytes(3);
+          break;
+        case 3: //Integer
+        case 4: //Float
+        case 9: //Fieldref
+        case 10: //Methodref
+        case 11: //InterfaceMethodref
+        case 12: //NameAndType
+        case 17: //Dynamic
+        case 18: //InvokeDynamic
+          input.skipBytes(4);
+          break;
+        case 5: //Long
+        case 6: //Double
+          input.skipBytes(8);
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+    input.readUnsignedShort(); //access flags
+    input.readUnsignedShort(); //this class
+    int superClass = input.readUnsignedShort();
+    List<String> supertypeSignatures = new ArrayList<>();
+    if (superClass != 0) {
+      supertypeSignatures.add("L" + utf8[classNameIndexes[superClass]] + ";");
+    }
+    int interfaceCount = input.readUnsignedShort();
+    for (int i = 0; i < interfaceCount; i++) {
+      supertypeSignatures.add("L" + utf8[classNameIndexes[input.readUnsignedShort()]] + ";");
+    }
+    skipMembers(input); //fields
+    skipMembers(input); //methods
+    int attributeCount = input.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      String attributeName = utf8[input.readUnsignedShort()];
+      int length = input.readInt();
+      if ("Signature".equals(attributeName)) {
+        return parseClassSignature(utf8[input.readUnsignedShort()]);
+      }
+      input.skipBytes(length);
+    }
+    return new ClassHeader(Collections.emptyList(), supertypeSignatures);
+  }
+  
+  private static void skipMembers(DataInputStream input) throws IOException {
+    int count = input.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      input.skipBytes(6); //access flags, name, descriptor
+      int attributeCount = input.readUnsignedShort();
+      for (int j = 0; j < attributeCount; j++) {
+        input.skipBytes(2);
+        input.skipBytes(input.readInt());
+      }
+    }
+  }
+  
+  private static ClassHeader parseClassSignature(String signature) {
+    List<String> typeParameters = new ArrayList<>();
+    int position = 0;
+    if (signature.charAt(0) == '<') {
+      position = 1;
+      while (signature.charAt(position) != '>') {
+        int colon = signature.indexOf(':', position);
+        typeParameters.add(signature.substring(position, colon));
+        position = colon;
+        //class bound (possibly empty) followed by any interface bounds.
+        while (signature.charAt(position) == ':') {
+          position++;
+          if (signature.charAt(position) != ':') {
+            position = SignatureReader.skipTypeSignature(signature, position);
+          }
+        }
+      }
+      position++;
+    }
+    List<String> supertypeSignatures = new ArrayList<>();
+    while (position < signature.length()) {
+      int end = SignatureReader.skipTypeSignature(signature, position);
+      supertypeSignatures.add(signature.substring(position, end));
+      position = end;
+    }
+    return new ClassHeader(typeParameters, supertypeSignatures);
+  }
+  
+  /**
+   * Renders a JVM type signature as javac would print the type, substituting type variables.
+   */
+  static final class SignatureReader {
+    
+    private final String signature;
+    private final Map<String, String> arguments;
+    private int position;
+    
+    /**
+     * Construct a reader of a signature.
+     * 
+     * @param signature to read.
+     * @param arguments values of type variables, null to render raw types.
+     */
+    SignatureReader(String signature, Map<String, String> arguments) {
+      this.signature = signature;
+      this.arguments = arguments;
+    }
+    
+    static int skipTypeSignature(String signature, int start) {
+      int depth = 0;
+      int position = start;
+      while (signature.charAt(position) == '[') {
+        position++;
+      }
+      char kind = signature.charAt(position);
+      if (kind != 'L' && kind != 'T') {
+        return position + 1;
+      }
+      while (true) {
+        char current = signature.charAt(position++);
+        if (current == '<') {
+          depth++;
+        } else if (current == '>') {
+          depth--;
+        } else if (current == ';' && depth == 0) {
+          return position;
+        }
+      }
+    }
+    
+    String readTypeSignature() {
+      char kind = signature.charAt(position++);
+      switch (kind) {
+        case 'L':
+          return readClassTypeSignature();
+        case 'T':
+          int end = signature.indexOf(';', position);
+          String variable = signature.substring(position, end);
+          position = end + 1;
+          return arguments == null || !arguments.containsKey(variable) ? OBJECT : arguments.get(variable);
+        case '[':
+          return readTypeSignature() + "[]";
+        case 'B':
+          return "byte";
+        case 'C':
+          return "char";
+        case 'D':
+          return "double";
+        case 'F':
+          return "float";
+        case 'I':
+          return "int";
+        case 'J':
+          return "long";
+        case 'S':
+          return "short";
+        case 'Z':
+          return "boolean";
+        default:
+          throw new IllegalArgumentException("Unreadable signature " + signature);
+      }
+    }
+    
+    private String readClassTypeSignature() {
+      StringBuilder output = new StringBuilder();
+      while (true) {
+        char current = signature.charAt(position++);
+        switch (current) {
+          case '/':
+          case '$':
+          case '.':
+            output.append('.');
+            break;
+          case ';':
+            return output.toString();
+          case '<':
+            List<String> typeArguments = new ArrayList<>();
+            while (signature.charAt(position) != '>') {
+              typeArguments.add(readTypeArgument());
+            }
+            position++;
+            if (arguments != null) {
+              output.append('<').append(String.join(",", typeArguments)).append('>');
+            }
+            break;
+          default:
+            output.append(current);
+            break;
+        }
+      }
+    }
+    
+    private String readTypeArgument() {
+      char kind = signature.charAt(position);
+      switch (kind) {
+        case '*':
+          position++;
+          return "?";
+        case '+':
+          position++;
+          return "? extends " + readTypeSignature();
+        case '-':
+          position++;
+          return "? super " + readTypeSignature();
+        default:
+          return readTypeSignature();
+      }
+    }
+  }
+  
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.types.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.types.AssignabilityUtils;
+import com.salesforce.apt.graph.types.impl.ParseType.Bound;
+
+/**
+ * Checks assignability on the string form of types, given the supertypes of types, without the compiler or loaded
+ * classes.  Generic arguments must match exactly, unless either side is raw, or the target's argument is a wildcard
+ * containing the subject's argument.  Types this can not decide upon, those with unknown supertypes, are passed to a
+ * fallback.
+ */
+public abstract class HierarchyAssignabilityUtils implements AssignabilityUtils {
+
+  private static final String OBJECT = "java.lang.Object";
+  
+  private static final List<String> ARRAY_SUPERTYPES = Arrays.asList(OBJECT, "java.lang.Cloneable", "java.io.Serializable");
+  
+  private static final List<String> PRIMITIVES = Arrays.asList("boolean", "byte", "char", "short", "int", "long",
+      "float", "double");
+  
+  private final AssignabilityUtils fallback;
+  
+  /**
+   * Construct with the utils used for types that can not be decided upon.
+   * 
+   * @param fallback decides upon types that this can not, null to throw an {@link IllegalArgumentException} instead.
+   */
+  protected HierarchyAssignabilityUtils(AssignabilityUtils fallback) {
+    this.fallback = fallback;
+  }
+  
+  /**
+   * All supertypes of a type, with generic arguments.
+   * 
+   * @param subject the instance being compared, whose entity type is, or refers to, the type.
+   * @param type the type whose supertypes are needed.
+   * @return the supertypes, null if they are unknown.
+   */
+  protected abstract List<String> getSupertypes(InstanceModel subject, String type);
+  
+  @Override
+  public boolean isAssignableFrom(InstanceModel subject, InstanceModel target) {
+    String targetType = getDependencyType(subject, target);
+    Boolean assignable = isSubtype(subject, ParseType.parse(subject.getEntityType()), ParseType.parse(targetType));
+    if (assignable == null) {
+      if (fallback == null) {
+        throw new IllegalArgumentException("Classes can not be compared " + subject + " and " + target
+            + ", unknown supertypes of " + subject.getEntityType() + " or its arguments");
+      }
+      return fallback.isAssignableFrom(subject, target);
+    }
+    return assignable;
+  }
+  
+  /**
+   * Is the candidate a subtype of the target.
+   * 
+   * @return true or false, null if it can not be decided.
+   */
+  private Boolean isSubtype(InstanceModel subject, ParseType candidate, ParseType target) {
+    if (target.isIntersection()) {
+      Boolean all = Boolean.TRUE;
+      for (ParseType component : target.getBounds()) {
+        all = and(all, isSubtype(subject, candidate, component));
+      }
+      return all;
+    }
+    if (candidate.isIntersection()) {
+      Boolean any = Boolean.FALSE;
+      for (ParseType component : candidate.getBounds()) {
+        any = or(any, isSubtype(subject, component, target));
+      }
+      return any;
+    }
+    if (target.getDimensions() == 0 && target.getParameters().isEmpty() && OBJECT.equals(target.getType())
+        && !isPrimitive(candidate)) {
+      return Boolean.TRUE;
+    }
+    if (candidate.getDimensions() > 0) {
+      if (target.getDimensions() == 0) {
+        return target.getParameters().isEmpty() && ARRAY_SUPERTYPES.contains(target.getType());
+      }
+      return isSubtype(subject, candidate.getComponentType(), target.getComponentType());
+    }
+    if (target.getDimensions() > 0 || candidate.isWildcard() || target.isWildcard()) {
+      return Boolean.FALSE;
+    }
+    Boolean assignable = matches(subject, candidate, target);
+    if (Boolean.TRUE.equals(assignable) || isPrimitive(candidate)) {
+      return assignable;
+    }
+    List<String> supertypes = getSupertypes(subject, candidate.toString());
+    if (supertypes == null) {
+      return null;
+    }
+    for (String supertype : supertypes) {
+      assignable = or(assignable, matches(subject, ParseType.parse(supertype), target));
+    }
+    return assignable;
+  }
+  
+  private Boolean matches(InstanceModel subject, ParseType candidate, ParseType target) {
+    if (!candidate.getType().equals(target.getType()) || candidate.getDimensions() != target.getDimensions()) {
+      return Boolean.FALSE;
+    }
+    if (target.getParameters().isEmpty() || candidate.getParameters().isEmpty()) {
+      return Boolean.TRUE;
+    }
+    if (target.getParameters().size() != candidate.getParameters().size()) {
+      return Boolean.FALSE;
+    }
+    Boolean all = Boolean.TRUE;
+    for (int i = 0; i < target.getParameters().size(); i++) {
+      all = and(all, contains(subject, target.getParameters().get(i), candidate.getParameters().get(i)));
+    }
+    return all;
+  }
+  
+  /**
+   * Does the target's generic argument contain the candidate's.
+   */
+  private Boolean contains(InstanceModel subject, ParseType target, ParseType candidate) {
+    if (target.equals(candidate)) {
+      return Boolean.TRUE;
+    }
+    if (!target.isWildcard()) {
+      return Boolean.FALSE;
+    }
+    switch (target.getBound()) {
+      case EXTENDS:
+        if (candidate.isWildcard()) {
+          return candidate.getBound() == Bound.EXTENDS ? isSubtype(subject, candidate.getBounds().get(0),
+              target.getBounds().get(0)) : isSubtype(subject, ParseType.parse(OBJECT), target.getBounds().get(0));
+        }
+        return isSubtype(subject, candidate, target.getBounds().get(0));
+      case SUPER:
+        if (candidate.isWildcard()) {
+          return candidate.getBound() == Bound.SUPER ? isSubtype(subject, target.getBounds().get(0),
+              candidate.getBounds().get(0)) : Boolean.FALSE;
+        }
+        return isSubtype(subject, target.getBounds().get(0), candidate);
+      default:
+        return Boolean.TRUE;
+    }
+  }
+  
+  private static boolean isPrimitive(ParseType type) {
+    return type.getDimensions() == 0 && PRIMITIVES.contains(type.getType());
+  }
+  
+  private static Boolean and(Boolean left, Boolean right) {
+    if (Boolean.FALSE.equals(left) || Boolean.FALSE.equals(right)) {
+      return Boolean.FALSE;
+    }
+    return left == null || right == null ? null : Boolean.TRUE;
+  }
+  
+  private static Boolean or(Boolean left, Boolean right) {
+    if (Boolean.TRUE.equals(left) || Boolean.TRUE.equals(right)) {
+      return Boolean.TRUE;
+    }
+    return left == null || right == null ? null : Boolean.FALSE;
+  }
+  
+  private static String getDependencyType(InstanceModel subject, InstanceModel target) {
+    for (InstanceDependencyModel dependency : target.getDependencies()) {
+      if (dependency.getIdentity().equals(subject.getIdentity()) || subject.getAliases().contains(dependency.getIdentity())) {
+        return dependency.getType();
+      }
+    }
+    throw new IllegalArgumentException(target + " does not depend on " + subject);
+  }
+  
+}
@@ -28,26 +28,98 @@ package com.salesforce.apt.graph.types.impl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * An immutable parsed type as javac prints it: a named type (or primitive) with optional generic parameters and array
+ * dimensions, a wildcard with an optional bound, or an intersection of types.
+ * <p>
+ * {@link #parse(String)} is a single pass over the characters of the type, distinct types are parsed once and
+ * interned, as type strings repeat heavily across beans.  Nested types keep whatever separator the string used,
+ * '.' or '$'.
+ * </p>
+ */
 public class ParseType {
 
+  public static final String WILDCARD = "?";
+  
+  public static final String INTERSECTION = "&";
+  
+  public enum Bound { NONE, EXTENDS, SUPER }
+  
+  private static final int MAX_CACHED = 1 << 14;
+  
+  private static final ConcurrentMap<String, ParseType> CACHE = new ConcurrentHashMap<>();
+  
   private final String type;
-  private final List<ParseType> parameters = new ArrayList<>();
+  private final List<ParseType> parameters;
+  private final int dimensions;
+  private final Bound bound;
+  private final List<ParseType> bounds;
+  private final int hash;
 
   public ParseType(String type) {
-    this.type = type;
+    this(type, Collections.emptyList(), 0, Bound.NONE, Collections.emptyList());
   }
   
   public ParseType(String type, ParseType... parameters) {
+    this(type, Arrays.asList(parameters), 0, Bound.NONE, Collections.emptyList());
+  }
+  
+  private ParseType(String type, List<ParseType> parameters, int dimensions, Bound bound, List<ParseType> bounds) {
     this.type = type;
-    this.parameters.addAll(Arrays.asList(parameters));
+    this.parameters = parameters.isEmpty() ? Collections.emptyList()
+        : Collections.unmodifiableList(new ArrayList<>(parameters));
+    this.dimensions = dimensions;
+    this.bound = bound;
+    this.bounds = bounds.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(bounds));
+    this.hash = Objects.hash(type, this.parameters, dimensions, bound, this.bounds);
+  }
+  
+  /**
+   * An array of a type.
+   * 
+   * @param component the type of the elements of the array.
+   * @param dimensions of the array to create, added to those of the component.
+   * @return the array type.
+   */
+  public static ParseType arrayOf(ParseType component, int dimensions) {
+    return new ParseType(component.type, component.parameters, component.dimensions + dimensions, component.bound,
+        component.bounds);
+  }
+  
+  /**
+   * A wildcard, "?", "? extends bound" or "? super bound".
+   * 
+   * @param bound kind of bound.
+   * @param type of the bound, ignored if the bound is {@link Bound#NONE}.
+   * @return the wildcard.
+   */
+  public static ParseType wildcard(Bound bound, ParseType type) {
+    return new ParseType(WILDCARD, Collections.emptyList(), 0, bound,
+        bound == Bound.NONE ? Collections.emptyList() : Collections.singletonList(type));
+  }
+  
+  /**
+   * An intersection of types, "A&amp;B".
+   * 
+   * @param types that intersect.
+   * @return the intersection.
+   */
+  public static ParseType intersection(ParseType... types) {
+    return new ParseType(INTERSECTION, Collections.emptyList(), 0, Bound.NONE, Arrays.asList(types));
   }
   
+  /**
+   * The name of the type, {@link #WILDCARD} for wildcards, {@link #INTERSECTION} for intersections.
+   * 
+   * @return the name of the type, without parameters or array dimensions.
+   */
   public String getType() {
     return type;
   }
@@ -56,23 +128,64 @@ public class ParseType {
     return parameters;
   }
   
+  public int getDimensions() {
+    return dimensions;
+  }
+  
+  /**
+   * The type of the elements of an array type.
+   * 
+   * @return this type, with one array dimension fewer.
+   */
+  public ParseType getComponentType() {
+    if (dimensions == 0) {
+      throw new IllegalStateException(this + " is not an array");
+    }
+    return new ParseType(type, parameters, dimensions - 1, bound, bounds);
+  }
+  
+  public boolean isWildcard() {
+    return WILDCARD.equals(type);
+  }
+  
+  public boolean isIntersection() {
+    return INTERSECTION.equals(type);
+  }
+  
+  public Bound getBound() {
+    return bound;
+  }
+  
+  /**
+   * The bound of a wildcard, or the types of an intersection.
+   * 
+   * @return the bounds, empty for other types.
+   */
+  public List<ParseType> getBounds() {
+    return bounds;
+  }
+  
+  /**
+   * Parse a type, each distinct string is parsed once.
+   * 
+   * @param type as javac would print it.
+   * @return the parsed type.
+   * @throws IllegalArgumentException if the type can not be parsed.
+   */
   public static ParseType parse(String type) {
-    final String parseToken = "*";
-    String[] tokens = type
-        .replaceAll("<", parseToken + "<" + parseToken)
-        .replaceAll(">", parseToken + ">" + parseToken)
-        .replaceAll(",", parseToken + "," + parseToken).split("\\" + parseToken);
-    Queue<String> tokenQueue = new LinkedList<>(Arrays.asList(tokens).stream().map(t -> t.trim()).collect(Collectors.toList())); 
-    return parseParameters(tokenQueue);
+    ParseType parsed = CACHE.get(type);
+    if (parsed == null) {
+      parsed = new Parser(type).parseAll();
+      if (CACHE.size() < MAX_CACHED) {
+        CACHE.putIfAbsent(type, parsed);
+      }
+    }
+    return parsed;
   }
 
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + parameters.hashCode();
-    result = prime * result + ((type == null) ? 0 : type.hashCode());
-    return result;
+    return hash;
   }
 
   @Override
@@ -87,58 +200,161 @@ public class ParseType {
       return false;
     }
     ParseType other = (ParseType)obj;
-    if (!parameters.equals(other.parameters)) {
-      return false;
-    }
-    if (type == null) {
-      if (other.type != null) {
-        return false;
-      }
-    } else {
-      if (!type.equals(other.type)) {
-        return false;
-      }
-    }
-    return true;
+    return hash == other.hash
+        && dimensions == other.dimensions
+        && bound == other.bound
+        && Objects.equals(type, other.type)
+        && parameters.equals(other.parameters)
+        && bounds.equals(other.bounds);
   }
 
   @Override
   public String toString() {
-    StringBuilder builder = new StringBuilder(getType());
-    if (!getParameters().isEmpty()) {
-      builder.append('<');
-      Iterator<ParseType> iter = getParameters().iterator();
-      while (iter.hasNext()) {
-        builder.append(iter.next().toString());
-        if (iter.hasNext()) {
-          builder.append(',');
-        }
+    StringBuilder builder = new StringBuilder();
+    if (isIntersection()) {
+      join(builder, bounds, INTERSECTION);
+    } else if (isWildcard()) {
+      builder.append(WILDCARD);
+      if (bound != Bound.NONE) {
+        builder.append(bound == Bound.EXTENDS ? " extends " : " super ");
+        join(builder, bounds, INTERSECTION);
+      }
+    } else {
+      builder.append(getType());
+      if (!getParameters().isEmpty()) {
+        builder.append('<');
+        join(builder, getParameters(), ",");
+        builder.append('>');
       }
-      builder.append('>');
+    }
+    for (int i = 0; i < dimensions; i++) {
+      builder.append("[]");
     }
     return builder.toString();
   }
+  
+  private static void join(StringBuilder builder, List<ParseType> types, String separator) {
+    Iterator<ParseType> iter = types.iterator();
+    while (iter.hasNext()) {
+      builder.append(iter.next().toString());
+      if (iter.hasNext()) {
+        builder.append(separator);
+      }
+    }
+  }
 
-  private static ParseType parseParameters(Queue<String> tokens) {
-    ParseType child = new ParseType(tokens.remove());
-    if (tokens.isEmpty()) {
-      return child;
-    }
-    if (",".equals(tokens.peek())) {
-      return child;
-    }
-    if ("<".equals(tokens.peek())) {
-      tokens.remove();
-      child.parameters.add(parseParameters(tokens));
-      while (",".equals(tokens.peek())) {
-        tokens.remove();
-        child.parameters.add(parseParameters(tokens));
+  /**
+   * Recursive descent over the characters of a type.
+   */
+  private static final class Parser {
+    
+    private final String input;
+    private int position;
+    
+    private Parser(String input) {
+      this.input = input;
+    }
+    
+    private ParseType parseAll() {
+      ParseType parsed = parseIntersection();
+      skipWhitespace();
+      if (position != input.length()) {
+        throw error();
+      }
+      return parsed;
+    }
+    
+    private ParseType parseIntersection() {
+      ParseType first = parseSingle();
+      skipWhitespace();
+      if (!peek('&')) {
+        return first;
+      }
+      List<ParseType> types = new ArrayList<>();
+      types.add(first);
+      while (consume('&')) {
+        types.add(parseSingle());
+        skipWhitespace();
+      }
+      return new ParseType(INTERSECTION, Collections.emptyList(), 0, Bound.NONE, types);
+    }
+    
+    private ParseType parseSingle() {
+      skipWhitespace();
+      if (consume('?')) {
+        skipWhitespace();
+        if (consumeKeyword("extends")) {
+          return wildcard(Bound.EXTENDS, parseIntersection());
+        }
+        if (consumeKeyword("super")) {
+          return wildcard(Bound.SUPER, parseIntersection());
+        }
+        return wildcard(Bound.NONE, null);
+      }
+      int start = position;
+      while (position < input.length() && (Character.isJavaIdentifierPart(input.charAt(position))
+          || input.charAt(position) == '.')) {
+        position++;
       }
-      if (">".equals(tokens.peek())) {
-        tokens.remove();
+      if (position == start) {
+        throw error();
       }
+      String name = input.substring(start, position);
+      List<ParseType> parameters = Collections.emptyList();
+      skipWhitespace();
+      if (consume('<')) {
+        parameters = new ArrayList<>();
+        do {
+          parameters.add(parseIntersection());
+          skipWhitespace();
+        } while (consume(','));
+        if (!consume('>')) {
+          throw error();
+        }
+        skipWhitespace();
+      }
+      int dimensions = 0;
+      while (consume('[')) {
+        skipWhitespace();
+        if (!consume(']')) {
+          throw error();
+        }
+        dimensions++;
+        skipWhitespace();
+      }
+      return new ParseType(name, parameters, dimensions, Bound.NONE, Collections.emptyList());
+    }
+    
+    private boolean consumeKeyword(String keyword) {
+      if (input.startsWith(keyword, position) && (position + keyword.length() == input.length()
+          || !Character.isJavaIdentifierPart(input.charAt(position + keyword.length())))) {
+        position += keyword.length();
+        return true;
+      }
+      return false;
+    }
+    
+    private boolean peek(char expected) {
+      return position < input.length() && input.charAt(position) == expected;
+    }
+    
+    private boolean consume(char expected) {
+      if (peek(expected)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+    
+    private void skipWhitespace() {
+      while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+        position++;
+      }
+    }
+    
+    private IllegalArgumentException error() {
+      return new IllegalArgumentException("Could not parse type " + input + " at " + position);
     }
-    return child;
   }
     
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.salesforce.apt.graph.model.ContentHash;
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.digest.Digester;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
+
+public class TestDigestStrategies {
+
+  private static final String FOX = "The quick brown fox jumps over the lazy dog";
+  
+  private static ContentHash hash(DigestStrategy strategy, String content) {
+    return strategy.hash(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+  }
+  
+  @Test
+  public void testKnownHashes() {
+    assertThat(hash(DigestStrategies.SHA_256, FOX).toHex())
+        .isEqualTo("D7A8FBB307D7809469CA9ABCB0082E4F8D5651E46D3CDB762D02D0BF37C9E592");
+    assertThat(hash(DigestStrategies.MURMUR3_128, FOX).toHex()).isEqualTo("6C1B07BC7BBC4BE347939AC4A93C437A");
+    assertThat(hash(DigestStrategies.MURMUR3_128, "").toHex()).isEqualTo("00000000000000000000000000000000");
+  }
+  
+  @Test
+  public void testDigestersAreReusedAndIncremental() {
+    for (DigestStrategy strategy : new DigestStrategy[] {DigestStrategies.SHA_256, DigestStrategies.MURMUR3_128}) {
+      byte[] fox = FOX.getBytes(StandardCharsets.UTF_8);
+      Digester digester = strategy.getDigester();
+      digester.update(fox, 0, 3);
+      digester.update(ByteBuffer.wrap(fox, 3, 17));
+      digester.update(fox, 20, fox.length - 20);
+      assertThat(new ContentHash(digester.digest())).isEqualTo(hash(strategy, FOX));
+      assertThat(strategy.getDigester()).isSameAs(digester);
+      assertThat(hash(strategy, FOX)).isEqualTo(hash(strategy, FOX));
+    }
+  }
+  
+  @Test
+  public void testAlgorithmLookup() {
+    assertThat(DigestStrategies.forAlgorithm(null)).isSameAs(DigestStrategies.SHA_256);
+    assertThat(DigestStrategies.forAlgorithm("MURMUR3-128")).isSameAs(DigestStrategies.MURMUR3_128);
+    assertThat(DigestStrategies.forAlgorithm("SHA-512").getAlgorithm()).isEqualTo("SHA-512");
+    assertThatThrownBy(() -> DigestStrategies.forAlgorithm("NOPE"))
+        .isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+  
+  @Test
+  public void testContentHashes() {
+    ContentHash hash = ContentHash.fromHex("abCD01");
+    assertThat(hash).isEqualTo(new ContentHash(new byte[] {(byte) 0xAB, (byte) 0xCD, 0x01}));
+    assertThat(hash.toHex()).isEqualTo("ABCD01");
+    assertThatThrownBy(() -> ContentHash.fromHex("ABC")).isExactlyInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ContentHash.fromHex("XY")).isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+  
+  @Test
+  public void testModelsAreVerifiedWithTheirRecordedAlgorithm() {
+    ByteBuffer content = ByteBuffer.wrap(FOX.getBytes(StandardCharsets.UTF_8));
+    DefinitionModel model = new DefinitionModel("test.Model");
+    model.setContentHasher(algorithm -> DigestStrategies.forAlgorithm(algorithm).hash(content));
+    model.setContentHash(DigestStrategies.MURMUR3_128.getAlgorithm(), DigestStrategies.MURMUR3_128.hash(content));
+    assertThat(model.getContentHash()).isEqualTo(hash(DigestStrategies.MURMUR3_128, FOX));
+    assertThat(model.getContentHash(DefinitionModel.DEFAULT_DIGEST_ALGORITHM)).isEqualTo(hash(DigestStrategies.SHA_256, FOX));
+  }
+  
+}
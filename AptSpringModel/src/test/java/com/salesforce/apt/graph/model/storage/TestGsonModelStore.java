@@ -27,17 +27,182 @@
 package com.salesforce.apt.graph.model.storage;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
 
+import com.google.gson.GsonBuilder;
+import com.salesforce.apt.graph.model.ContentHash;
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.ExpectedModel;
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.model.storage.apt.StringResource;
 import com.salesforce.apt.graph.model.storage.classpath.GsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
 
 public class TestGsonModelStore {
+  
+  private static final String TEST_DEF1 = "test.Def1";
+  private static final String TEST_DEF2 = "test.Def2";
+  private static final String OBJECT1 = "object1";
+  private static final String OBJECT2 = "object2";
+  private static final String TYPE_STRING = "java.lang.String";
+  
+  private static GsonDefinitionModelStore storeOf(String data) {
+    return new GsonDefinitionModelStore(name -> Arrays.asList(new StringResource(name, data)), null);
+  }
+  
+  private static DefinitionModel analyzedModel() {
+    DefinitionModel model = new DefinitionModel(TEST_DEF1);
+    model.addDependencyNames(TEST_DEF2);
+    model.addDefinition(new ExpectedModel(OBJECT2));
+    InstanceModel instance = new InstanceModel(OBJECT1, TEST_DEF1, TEST_DEF1 + ".object1()", TYPE_STRING,
+        Arrays.asList(new InstanceDependencyModel(OBJECT2, TYPE_STRING)), Arrays.asList());
+    model.addDefinition(instance);
+    model.addAllProvidedInstances(Arrays.asList(instance));
+    ExpectedModel computed = new ExpectedModel(OBJECT2);
+    computed.addDefinitionReferenceToType(OBJECT1, TYPE_STRING);
+    model.addComputedExpected(computed);
+    model.addDependencyNameToSha256(TEST_DEF2, "ABCDEF");
+    return model;
+  }
+  
+  @Test
+  public void testHeaderAndDeferredSectionsRead() {
+    String data = new GsonBuilder().setPrettyPrinting().create().toJson(analyzedModel());
+    List<DefinitionModel> models = storeOf(data).lookup(TEST_DEF1);
+    assertThat(models).hasSize(1);
+    DefinitionModel model = models.get(0);
+    assertThat(model.getIdentity()).isEqualTo(TEST_DEF1);
+    assertThat(model.getSourceLocation()).isEqualTo(TEST_DEF1);
+    assertThat(model.isRootNode()).isFalse();
+    assertThat(model.getDependencyNames()).containsExactly(TEST_DEF2);
+    assertThat(model.getExpectedDefinitions()).extracting(ExpectedModel::getIdentity).containsExactly(OBJECT2);
+    assertThat(model.getDependencyNameToSha256()).containsEntry(TEST_DEF2, "ABCDEF");
+    assertThat(model.getSha256()).isNotNull();
+    assertThat(model.getObjectDefinitions()).extracting(InstanceModel::getIdentity).containsExactly(OBJECT1);
+    assertThat(model.getProvidedInstances()).extracting(InstanceModel::getIdentity).containsExactly(OBJECT1);
+    assertThat(model.getProvidedInstances().get(0).getDependencies()).extracting(InstanceDependencyModel::getIdentity)
+      .containsExactly(OBJECT2);
+    assertThat(model.getComputedExpected()).extracting(ExpectedModel::getIdentity).containsExactly(OBJECT2);
+    assertThat(model.getComputedExpected().iterator().next().getDefinitionReferenceToType())
+      .containsEntry(OBJECT1, TYPE_STRING);
+  }
+
+  @Test
+  public void testDeferredSectionsAreOnlyParsedOnAccess() {
+    String data = "{\"providedInstances\": 5, \"elementLocation\": \"" + TEST_DEF1 + "\", \"rootNode\": true}";
+    List<DefinitionModel> models = storeOf(data).lookup(TEST_DEF1);
+    assertThat(models).hasSize(1);
+    assertThat(models.get(0).getIdentity()).isEqualTo(TEST_DEF1);
+    assertThat(models.get(0).isRootNode()).isTrue();
+    assertThatThrownBy(() -> models.get(0).getProvidedInstances())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("Could not read deferred content");
+  }
+  
+  @Test
+  public void testDirectContentIsNotRetained() {
+    byte[] data = new GsonBuilder().setPrettyPrinting().create().toJson(analyzedModel()).getBytes(UTF_8);
+    List<ByteBuffer> mappings = new ArrayList<>();
+    GsonDefinitionModelStore store = new GsonDefinitionModelStore(name -> Arrays.asList(new Resource() {
+      
+      @Override
+      public String getLocation() {
+        return name;
+      }
+      
+      @Override
+      public InputStream getInputStream() throws IOException {
+        throw new IOException();
+      }
+      
+      @Override
+      public ByteBuffer getContent() {
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.flip();
+        mappings.add(direct);
+        return direct.asReadOnlyBuffer();
+      }
+    }), null);
+    DefinitionModel model = store.lookup(TEST_DEF1).get(0);
+    //the content the header was read from is not used again.
+    ByteBuffer header = mappings.get(0);
+    while (header.hasRemaining()) {
+      header.put((byte) ' ');
+    }
+    assertThat(model.getProvidedInstances()).extracting(InstanceModel::getIdentity).containsExactly(OBJECT1);
+    assertThat(mappings).hasSize(2);
+    assertThat(model.getContentHash(DigestStrategies.MURMUR3_128.getAlgorithm()))
+        .isEqualTo(DigestStrategies.MURMUR3_128.hash(ByteBuffer.wrap(data)));
+    assertThat(mappings).hasSize(3);
+  }
+  
+  @Test
+  public void testChangedDirectContentIsNotRead() {
+    byte[] data = new GsonBuilder().setPrettyPrinting().create().toJson(analyzedModel()).getBytes(UTF_8);
+    List<ByteBuffer> mappings = new ArrayList<>();
+    GsonDefinitionModelStore store = new GsonDefinitionModelStore(name -> Arrays.asList(new Resource() {
+      
+      @Override
+      public String getLocation() {
+        return name;
+      }
+      
+      @Override
+      public InputStream getInputStream() throws IOException {
+        throw new IOException();
+      }
+      
+      @Override
+      public ByteBuffer getContent() {
+        //rewritten, with one more space, after the model is read.
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length + mappings.size());
+        direct.put(data);
+        while (direct.hasRemaining()) {
+          direct.put((byte) ' ');
+        }
+        direct.flip();
+        mappings.add(direct);
+        return direct.asReadOnlyBuffer();
+      }
+    }), null);
+    DefinitionModel model = store.lookup(TEST_DEF1).get(0);
+    assertThatThrownBy(() -> model.getProvidedInstances()).isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(TEST_DEF1);
+  }
+  
+  @Test
+  public void testDigestAlgorithmIsRecorded() {
+    DefinitionModel model = analyzedModel();
+    model.setDigestAlgorithm(DigestStrategies.MURMUR3_128.getAlgorithm());
+    String data = new GsonBuilder().setPrettyPrinting().create().toJson(model);
+    assertThat(data).contains("\"digestAlgorithm\": \"MURMUR3-128\"").contains("\"" + TEST_DEF2 + "\": \"ABCDEF\"");
+    GsonDefinitionModelStore store = new GsonDefinitionModelStore(name -> Arrays.asList(new StringResource(name, data)),
+        null, DigestStrategies.MURMUR3_128);
+    DefinitionModel read = store.lookup(TEST_DEF1).get(0);
+    assertThat(read.getDigestAlgorithm()).isEqualTo(DigestStrategies.MURMUR3_128.getAlgorithm());
+    assertThat(read.getDependencyContentHashes()).containsEntry(TEST_DEF2, ContentHash.fromHex("ABCDEF"));
+    assertThat(read.getContentHash()).isEqualTo(DigestStrategies.MURMUR3_128.hash(ByteBuffer.wrap(data.getBytes(UTF_8))));
+    assertThat(read.getContentHash(DefinitionModel.DEFAULT_DIGEST_ALGORITHM).toHex()).isEqualTo(storeOf(data)
+        .lookup(TEST_DEF1).get(0).getSha256());
+  }
+  
+  @Test
+  public void testMalformedHeaderIsAReadError() {
+    assertThat(storeOf("{\"rootNode\": true}").lookup(TEST_DEF1)).isNull();
+    assertThat(storeOf("[]").lookup(TEST_DEF1)).isNull();
+  }
 
   @Test
   public void testGsonDefinitionModelStore() {
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.apt.graph.model.storage.classpath.ClasspathUrlResourceLoader;
+import com.salesforce.apt.graph.model.storage.classpath.MappedFileResource;
+import com.salesforce.apt.graph.model.storage.classpath.ZipEntryResource;
+import com.salesforce.apt.graph.model.storage.classpath.ZipFileCache;
+
+public class TestMappedResources {
+
+  private static final String SMALL = "{\"small\":true}";
+  
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+  
+  private static String content(Resource resource) throws IOException {
+    ByteBuffer buffer = resource.getContent();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+  
+  private static String largeContent() {
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < 64 * 1024) {
+      builder.append("0123456789abcdef");
+    }
+    return builder.toString();
+  }
+  
+  @Test
+  public void testDirectoryResourcesAreReadDirectly() throws IOException {
+    File root = testFolder.newFolder();
+    File dir = new File(root, "aptSpring");
+    dir.mkdirs();
+    Files.write(new File(dir, "small.json").toPath(), SMALL.getBytes(StandardCharsets.UTF_8));
+    String large = largeContent();
+    Files.write(new File(dir, "large.json").toPath(), large.getBytes(StandardCharsets.UTF_8));
+    
+    ClasspathUrlResourceLoader loader = new ClasspathUrlResourceLoader(root);
+    List<Resource> small = loader.getEntries("small");
+    assertThat(small).hasSize(1);
+    assertThat(small.get(0)).isInstanceOf(MappedFileResource.class);
+    assertThat(content(small.get(0))).isEqualTo(SMALL);
+    
+    List<Resource> mapped = loader.getEntries("large");
+    assertThat(mapped).hasSize(1);
+    assertThat(mapped.get(0).getContent().isDirect()).isTrue();
+    assertThat(content(mapped.get(0))).isEqualTo(large);
+    try (InputStream inputStream = new ByteBufferInputStream(mapped.get(0).getContent())) {
+      assertThat(inputStream.skip(16)).isEqualTo(16);
+      assertThat(inputStream.read()).isEqualTo('0');
+    }
+  }
+  
+  @Test
+  public void testJarResourcesShareAnOpenZipFile() throws IOException {
+    File jar = testFolder.newFile("models.jar");
+    writeJar(jar, SMALL);
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+        ClasspathUrlResourceLoader loader = new ClasspathUrlResourceLoader(classLoader)) {
+      List<Resource> entries = loader.getEntries("small");
+      assertThat(entries).hasSize(1);
+      assertThat(entries.get(0)).isInstanceOf(ZipEntryResource.class);
+      assertThat(entries.get(0).getLocation()).endsWith("models.jar!/aptSpring/small.json");
+      assertThat(content(entries.get(0))).isEqualTo(SMALL);
+      ZipFileCache zipFiles = new ZipFileCache();
+      assertThat(zipFiles.get(jar)).isSameAs(zipFiles.get(jar));
+      zipFiles.close();
+    }
+  }
+  
+  @Test
+  public void testStaleJarsStayOpenUntilClosed() throws IOException {
+    File jar = testFolder.newFile("models.jar");
+    writeJar(jar, SMALL);
+    ZipFileCache zipFiles = new ZipFileCache();
+    ZipEntryResource resource = new ZipEntryResource(zipFiles, jar, "aptSpring/small.json", "small");
+    try (InputStream inputStream = resource.getInputStream()) {
+      String rebuilt = "{\"small\":false}";
+      writeJar(jar, rebuilt);
+      assertThat(content(resource)).isEqualTo(rebuilt);
+      assertThat(inputStream.read()).isEqualTo('{');
+    }
+    zipFiles.close();
+    assertThatThrownBy(() -> resource.getContent()).isInstanceOf(IOException.class);
+  }
+  
+  /**
+   * Writes a jar as a build would, replacing any previous jar rather than overwriting it in place.
+   */
+  private void writeJar(File jar, String small) throws IOException {
+    File written = testFolder.newFile();
+    try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(written))) {
+      output.putNextEntry(new ZipEntry("aptSpring/small.json"));
+      output.write(small.getBytes(StandardCharsets.UTF_8));
+      output.closeEntry();
+    }
+    written.setLastModified(jar.lastModified() + 2000);
+    Files.move(written.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+  
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.model.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+
+public class TestWriteBehindStore {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  
+  private final Map<String, ByteArrayOutputStream> written = new ConcurrentHashMap<>();
+  
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+  
+  private ClassFileGsonDefinitionModelStore store(DefinitionOutputStreamProvider provider) {
+    return new ClassFileGsonDefinitionModelStore(name -> Collections.emptyList(), provider, DigestStrategies.SHA_256, executor);
+  }
+  
+  private ByteArrayOutputStream capture(DefinitionModel model) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    written.put(model.getIdentity(), output);
+    return output;
+  }
+  
+  @Test
+  public void testWritesHappenOnFlush() {
+    ClassFileGsonDefinitionModelStore store = store(this::capture);
+    DefinitionModel model = new DefinitionModel("test.Def1");
+    assertThat(store.store(model)).isTrue();
+    assertThat(model.isLockedAnalyzed()).isTrue();
+    assertThat(written).isEmpty();
+    
+    DefinitionModel inline = new DefinitionModel("test.Def1");
+    new ClassFileGsonDefinitionModelStore(name -> Collections.emptyList(), m -> new ByteArrayOutputStream(),
+        DigestStrategies.SHA_256).store(inline);
+    assertThat(model.getContentHash()).isNotNull().isEqualTo(inline.getContentHash());
+    
+    assertThat(store.flush()).isEmpty();
+    assertThat(written).containsOnlyKeys("test.Def1");
+    assertThat(new String(written.get("test.Def1").toByteArray(), StandardCharsets.UTF_8))
+      .contains("public class Def1_aptSpring");
+    assertThat(store.flush()).isEmpty();
+  }
+  
+  @Test
+  public void testFailedWritesAreReportedByFlush() {
+    ClassFileGsonDefinitionModelStore store = store(model -> {
+      throw new IOException("disk full");
+    });
+    DefinitionModel model = new DefinitionModel("test.Def1");
+    assertThat(store.store(model)).isTrue();
+    assertThat(store.flush()).containsExactly(model);
+  }
+  
+  @Test
+  public void testSurrogatePairsAreNotSplitAcrossConstants() {
+    //either prefix puts the end of the first constant in the middle of a pair.
+    for (String prefix : new String[] { "", "x" }) {
+      StringBuilder name = new StringBuilder(prefix);
+      for (int i = 0; i < 15000; i++) {
+        name.append("\uD83D\uDE00");
+      }
+      written.clear();
+      ClassFileGsonDefinitionModelStore store = store(this::capture);
+      DefinitionModel model = new DefinitionModel("test.Def1");
+      model.addDependencyNames(name.toString());
+      assertThat(store.store(model)).isTrue();
+      assertThat(store.flush()).isEmpty();
+      String source = new String(written.get("test.Def1").toByteArray(), StandardCharsets.UTF_8);
+      assertThat(source).contains("__DATA_FIELD_1").doesNotContain("?");
+    }
+  }
+  
+}
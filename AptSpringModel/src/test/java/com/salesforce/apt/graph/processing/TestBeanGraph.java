@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+
+public class TestBeanGraph {
+
+  private static final String TEST_DEF = "test.Def";
+  
+  private static final String TYPE_STRING = "java.lang.String";
+  
+  private static InstanceModel bean(String name, String... dependencies) {
+    return new InstanceModel(name, TEST_DEF, TEST_DEF + "." + name + "()", TYPE_STRING,
+        Arrays.stream(dependencies).map(d -> new InstanceDependencyModel(d, TYPE_STRING)).collect(Collectors.toList()),
+        Arrays.asList());
+  }
+  
+  private static DefinitionModel diamond() {
+    DefinitionModel model = new DefinitionModel(TEST_DEF);
+    model.addDefinition(bean("top", "left", "right"));
+    model.addDefinition(bean("right", "bottom"));
+    model.addDefinition(bean("left", "bottom", "outside"));
+    model.addDefinition(bean("bottom"));
+    model.addDefinition(bean("alone"));
+    return model;
+  }
+  
+  @Test
+  public void beansFollowTheirDependencies() {
+    BeanGraph graph = new BeanGraph(diamond());
+    assertThat(graph.getInstances()).extracting(InstanceModel::getIdentity)
+        .containsExactly("alone", "bottom", "left", "right", "top");
+    assertThat(graph.getExpected()).containsOnlyKeys("outside");
+    assertThat(graph.getDependencies(graph.getInstance("left"))).extracting(InstanceModel::getIdentity)
+        .containsExactly("bottom");
+  }
+  
+  @Test
+  public void closuresHoldTransitiveDependencies() {
+    BeanGraph graph = new BeanGraph(diamond());
+    BitSet top = graph.getClosure(graph.getInstance("top"));
+    assertThat(top.stream().mapToObj(i -> graph.getInstances().get(i).getIdentity()))
+        .containsExactly("bottom", "left", "right", "top");
+    assertThat(graph.getClosure(graph.getInstance("alone")).cardinality()).isEqualTo(1);
+    top.clear();
+    assertThat(graph.getClosure(graph.getInstance("top")).cardinality()).isEqualTo(4);
+  }
+  
+  @Test
+  public void reachableGraphDropsUnusedBeansAndExpecteds() {
+    BeanGraph graph = new BeanGraph(diamond());
+    BeanGraph reachable = graph.reachableFrom(Arrays.asList(graph.getInstance("right"), graph.getInstance("alone")));
+    assertThat(reachable.getInstances()).extracting(InstanceModel::getIdentity)
+        .containsExactly("alone", "bottom", "right");
+    assertThat(reachable.getInstance("left")).isNull();
+    assertThat(reachable.getExpected()).isEmpty();
+    assertThat(reachable.getDefinition()).isSameAs(graph.getDefinition());
+  }
+}
@@ -28,8 +28,10 @@ package com.salesforce.apt.graph.processing;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -44,9 +46,13 @@ import com.salesforce.apt.graph.model.InstanceModel;
 import com.salesforce.apt.graph.model.errors.ErrorType;
 import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
 import com.salesforce.apt.graph.model.storage.ResourceLoader;
+import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
 import com.salesforce.apt.graph.model.storage.classpath.ClasspathUrlResourceLoader;
 import com.salesforce.apt.graph.model.storage.classpath.GsonDefinitionModelStore;
 import com.salesforce.apt.graph.model.storage.classpath.TestFileStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
+import com.salesforce.apt.graph.model.storage.digest.Digester;
 import com.salesforce.apt.graph.test.cycle.definitions.TestErrorListener;
 import com.salesforce.apt.graph.types.impl.ReflectionAssignabilityUtils;
 
@@ -226,4 +232,39 @@ public class TestDefinitionInspector {
     assertThat(el.getErrors().get(0).getCauses()).containsExactly(expected1);
     assertThat(el.getErrors().get(0).getInvolved()).containsExactly(model1);
   }
+  
+  @Test
+  public void inspectGraphReportsDependentsOfModelsThatFailedToStore() {
+    DefinitionModel model1 = new DefinitionModel(TEST_DEF1);
+    model1.addDependencyNames(TEST_DEF2);
+    DefinitionModel model2 = new DefinitionModel(TEST_DEF2);
+    model2.addDependencyNames(TEST_DEF3);
+    DefinitionModel model3 = new DefinitionModel(TEST_DEF3);
+    //written behind, hashing the serialized model fails.
+    DigestStrategy failing = new DigestStrategy() {
+      @Override
+      public String getAlgorithm() {
+        return DigestStrategies.SHA_256.getAlgorithm();
+      }
+      
+      @Override
+      public Digester getDigester() {
+        throw new IllegalStateException("no digester");
+      }
+    };
+    DefinitionModelStore store = new ClassFileGsonDefinitionModelStore(name -> Collections.emptyList(),
+        m -> new ByteArrayOutputStream(), failing, Runnable::run);
+    
+    TestErrorListener el = new TestErrorListener();
+    List<DefinitionModel> definitions = Arrays.asList(model1, model2, model3);
+    new DefinitionJoiner().joinDefinitions(definitions, store, el);
+    Set<DefinitionModel> definitionHeads = new DefinitionGraphInpector().inspectDefinitionGraph(definitions, el);
+    assertThat(el.getErrors()).isEmpty();
+    new DefinitionContentInspector().inspectDefinitionGraph(definitionHeads, el, new ReflectionAssignabilityUtils(), store);
+    assertThat(el.getErrors()).hasSize(2);
+    assertThat(el.getErrors()).allMatch(em -> em.getMessage().equals(ErrorType.COULD_NOT_STORE));
+    assertThat(el.getErrors().get(0).getInvolved()).containsExactly(model2);
+    assertThat(el.getErrors().get(1).getInvolved()).containsExactly(model1);
+    assertThat(store.flush()).containsExactly(model3);
+  }
 }
@@ -79,4 +79,33 @@ public class TestReadWrite {
       .isEqualTo(model1FromJson.getExpectedDefinitions().get(0).getIdentity());    
   }
   
+  @Test
+  public void testSerializationIsCanonical() {
+    DefinitionModel model1 = new DefinitionModel(TEST_DEF1);
+    model1.addDependencyNameToSha256(TEST_DEF2, "AB");
+    model1.addDependencyNameToSha256(TEST_DEF1, "CD");
+    model1.addComputedExpected(expected(OBJECT2, TEST_DEF2, TEST_DEF1));
+    model1.addComputedExpected(expected(OBJECT1, TEST_DEF1, TEST_DEF2));
+
+    DefinitionModel model2 = new DefinitionModel(TEST_DEF1);
+    model2.addDependencyNameToSha256(TEST_DEF1, "CD");
+    model2.addDependencyNameToSha256(TEST_DEF2, "AB");
+    model2.addComputedExpected(expected(OBJECT1, TEST_DEF2, TEST_DEF1));
+    model2.addComputedExpected(expected(OBJECT2, TEST_DEF1, TEST_DEF2));
+
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    String output = gson.toJson(model1);
+    assertThat(output).isEqualTo(gson.toJson(model2));
+    assertThat(output.indexOf(OBJECT1)).isLessThan(output.indexOf(OBJECT2));
+    assertThat(output.indexOf(TEST_DEF1)).isLessThan(output.indexOf(TEST_DEF2));
+  }
+  
+  private ExpectedModel expected(String name, String... referencingDefinitions) {
+    ExpectedModel expected = new ExpectedModel(name);
+    for (String definition : referencingDefinitions) {
+      expected.addDefinitionReferenceToType(definition, TYPE_STRING);
+    }
+    return expected;
+  }
+  
 }
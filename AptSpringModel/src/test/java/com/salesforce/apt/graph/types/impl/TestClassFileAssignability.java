@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.types.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+
+public class TestClassFileAssignability {
+
+  private static final String DEFINITION = "test.Def1";
+  
+  private static volatile boolean initialized = false;
+  
+  public static class StringList extends ArrayList<String> {
+    private static final long serialVersionUID = 1L;
+    
+    static {
+      initialized = true;
+    }
+  }
+  
+  private static InstanceModel bean(String type) {
+    return new InstanceModel("subject", DEFINITION, DEFINITION + ".subject()", type, Arrays.asList(), Arrays.asList());
+  }
+  
+  private static InstanceModel expecting(String type) {
+    return new InstanceModel("target", DEFINITION, DEFINITION + ".target()", "java.lang.String",
+        Arrays.asList(new InstanceDependencyModel("subject", type)), Arrays.asList());
+  }
+  
+  @Test
+  public void testGenericSupertypes() {
+    ClassFileAssignabilityUtils utils = new ClassFileAssignabilityUtils(getClass().getClassLoader());
+    InstanceModel subject = bean("java.util.HashMap<java.lang.String,java.lang.Integer>");
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.Map<java.lang.String,java.lang.Integer>"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.AbstractMap<java.lang.String,java.lang.Integer>")))
+      .isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.Map"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.io.Serializable"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.Map<java.lang.Integer,java.lang.String>"))).isFalse();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.List"))).isFalse();
+  }
+  
+  @Test
+  public void testNestedClassIsNotInitialized() {
+    ClassFileAssignabilityUtils utils = new ClassFileAssignabilityUtils(getClass().getClassLoader());
+    InstanceModel subject = bean(StringList.class.getCanonicalName());
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.List<java.lang.String>"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.Collection<java.lang.String>"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("java.util.List<java.lang.Integer>"))).isFalse();
+    assertThat(initialized).isFalse();
+  }
+  
+  @Test
+  public void testSharedHierarchy() {
+    ClassFileHierarchy hierarchy = new ClassFileHierarchy(getClass().getClassLoader());
+    assertThat(hierarchy.getSupertypes("java.util.ArrayList")).hasValueSatisfying(supertypes ->
+        assertThat(supertypes).contains("java.util.AbstractList", "java.util.List", "java.lang.Object")
+          .doesNotContain("java.util.List<E>"));
+    assertThat(hierarchy.getSupertypes("java.util.ArrayList"))
+      .isSameAs(hierarchy.getSupertypes("java.util.ArrayList"));
+    assertThat(hierarchy.getSupertypes("does.not.Exist")).isEmpty();
+  }
+  
+  @Test
+  public void testMissingClassWithoutFallback() {
+    ClassFileAssignabilityUtils utils = new ClassFileAssignabilityUtils(getClass().getClassLoader());
+    assertThatThrownBy(() -> utils.isAssignableFrom(bean("does.not.Exist"), expecting("java.util.List")))
+      .isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+
+}
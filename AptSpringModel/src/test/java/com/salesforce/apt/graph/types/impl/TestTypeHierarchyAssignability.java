@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.apt.graph.types.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+
+public class TestTypeHierarchyAssignability {
+
+  private static final String DEFINITION = "test.Def1";
+  private static final String ARRAY_LIST_STRING = "java.util.ArrayList<java.lang.String>";
+  
+  private static InstanceModel bean(String type) {
+    return new InstanceModel("subject", DEFINITION, DEFINITION + ".subject()", type, Arrays.asList(), Arrays.asList("alias"));
+  }
+  
+  private static InstanceModel expecting(String name, String type) {
+    return new InstanceModel("target", DEFINITION, DEFINITION + ".target()", "java.lang.String",
+        Arrays.asList(new InstanceDependencyModel(name, type)), Arrays.asList());
+  }
+  
+  private static TypeHierarchyAssignabilityUtils utils() {
+    DefinitionModel model = new DefinitionModel(DEFINITION);
+    model.addTypeHierarchy(ARRAY_LIST_STRING, Arrays.asList("java.util.AbstractList<java.lang.String>",
+        "java.util.List<java.lang.String>", "java.util.Collection<java.lang.String>", "java.lang.Object"));
+    model.addTypeHierarchy("java.lang.String", Arrays.asList("java.lang.Object", "java.io.Serializable",
+        "java.lang.Comparable<java.lang.String>", "java.lang.CharSequence"));
+    return new TypeHierarchyAssignabilityUtils(name -> DEFINITION.equals(name) ? model : null, null);
+  }
+  
+  @Test
+  public void testAssignableFromTable() {
+    TypeHierarchyAssignabilityUtils utils = utils();
+    InstanceModel subject = bean(ARRAY_LIST_STRING);
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", ARRAY_LIST_STRING))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.List<java.lang.String>"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("alias", "java.util.Collection<java.lang.String>"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.List"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.lang.Object"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.List<java.lang.Integer>"))).isFalse();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.Map<java.lang.String,java.lang.String>")))
+      .isFalse();
+  }
+  
+  @Test
+  public void testUndecidableWithoutFallback() {
+    TypeHierarchyAssignabilityUtils utils = utils();
+    assertThatThrownBy(() -> utils.isAssignableFrom(bean("java.util.HashSet<java.lang.String>"),
+        expecting("subject", "java.util.Set<java.lang.String>")))
+      .isExactlyInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("unknown supertypes");
+    assertThat(new TypeHierarchyAssignabilityUtils(name -> null, (subject, target) -> true)
+        .isAssignableFrom(bean("java.util.HashSet<java.lang.String>"), expecting("subject", "java.util.Set<java.lang.String>")))
+      .isTrue();
+  }
+  
+  @Test
+  public void testWildcards() {
+    TypeHierarchyAssignabilityUtils utils = utils();
+    InstanceModel subject = bean(ARRAY_LIST_STRING);
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.List<?>"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.List<? extends java.lang.CharSequence>")))
+      .isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.Collection<? super java.lang.String>")))
+      .isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.List<? extends java.lang.Number>")))
+      .isFalse();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.util.Set<?>"))).isFalse();
+    assertThatThrownBy(() -> utils.isAssignableFrom(subject, expecting("subject",
+        "java.util.List<? super java.lang.CharSequence>")))
+      .isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+  
+  @Test
+  public void testArrays() {
+    TypeHierarchyAssignabilityUtils utils = utils();
+    InstanceModel subject = bean("java.lang.String[]");
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.lang.CharSequence[]"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.lang.Object[]"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.io.Serializable"))).isTrue();
+    assertThat(utils.isAssignableFrom(subject, expecting("subject", "java.lang.String[][]"))).isFalse();
+    assertThat(utils.isAssignableFrom(bean("int[]"), expecting("subject", "java.lang.Object[]"))).isFalse();
+  }
+  
+}
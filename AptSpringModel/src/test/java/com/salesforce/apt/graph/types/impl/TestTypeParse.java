@@ -27,11 +27,14 @@
 package com.salesforce.apt.graph.types.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.ArrayList;
 
 import org.junit.Test;
 
+import com.salesforce.apt.graph.types.impl.ParseType.Bound;
+
 public class TestTypeParse {
 
   private static final String JAVA_LANG_INTEGER = "java.lang.Integer";
@@ -98,4 +101,53 @@ public class TestTypeParse {
     assertThat(new ParseType("test1").equals(new ParseType("test2"))).isFalse();    
   }
 
+  @Test
+  public void testWildcards() {
+    String name = "java.util.Map<? extends java.lang.Number,? super java.util.List<?>>";
+    ParseType expectedType = new ParseType(JAVA_UTIL_MAP,
+        ParseType.wildcard(Bound.EXTENDS, new ParseType("java.lang.Number")),
+        ParseType.wildcard(Bound.SUPER, new ParseType(JAVA_UTIL_LIST, ParseType.wildcard(Bound.NONE, null))));
+    ParseType calc = ParseType.parse(name);
+    assertThat(calc).isEqualTo(expectedType);
+    assertThat(calc.toString()).isEqualTo(name);
+    assertThat(calc.getParameters().get(0).isWildcard()).isTrue();
+    assertThat(calc.getParameters().get(0).getBound()).isEqualTo(Bound.EXTENDS);
+    assertThat(ParseType.parse("java.util.Map< ? extends java.lang.Number, ? super java.util.List<?> >")).isEqualTo(calc);
+  }
+  
+  @Test
+  public void testArraysPrimitivesAndNested() {
+    ParseType calc = ParseType.parse("java.util.List<int[]>[][]");
+    assertThat(calc.getDimensions()).isEqualTo(2);
+    assertThat(calc.getComponentType().getDimensions()).isEqualTo(1);
+    assertThat(calc.getParameters()).containsExactly(ParseType.arrayOf(new ParseType("int"), 1));
+    assertThat(calc.toString()).isEqualTo("java.util.List<int[]>[][]");
+    assertThat(ParseType.parse("java.util.Map$Entry<java.lang.String,java.lang.Integer>").getType())
+      .isEqualTo("java.util.Map$Entry");
+  }
+  
+  @Test
+  public void testIntersection() {
+    ParseType calc = ParseType.parse("java.lang.Number&java.lang.Comparable<?>");
+    assertThat(calc.isIntersection()).isTrue();
+    assertThat(calc.getBounds()).containsExactly(new ParseType("java.lang.Number"),
+        new ParseType("java.lang.Comparable", ParseType.wildcard(Bound.NONE, null)));
+    assertThat(calc.toString()).isEqualTo("java.lang.Number&java.lang.Comparable<?>");
+  }
+  
+  @Test
+  public void testInterned() {
+    String name = "java.util.Map<java.lang.String,java.util.List<java.lang.Long>>";
+    assertThat(ParseType.parse(name)).isSameAs(ParseType.parse(new String(name)));
+    assertThatThrownBy(() -> ParseType.parse(name).getParameters().clear())
+      .isInstanceOf(UnsupportedOperationException.class);
+  }
+  
+  @Test
+  public void testMalformed() {
+    assertThatThrownBy(() -> ParseType.parse("java.util.List<java.lang.String"))
+      .isExactlyInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ParseType.parse("java.lang.String[")).isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+
 }
@@ -29,7 +29,10 @@ package com.salesforce.aptspring.processor;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -46,7 +49,10 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic.Kind;
 
 import com.salesforce.apt.graph.model.DefinitionModel;
@@ -108,6 +114,20 @@ public class SpringAnnotationParser {
           entry(COMPONENT_TYPE, "You may not use @Component on @Verified classes with @Bean methods")))
       .collect(entriesToMap()));
 
+  private final Types types;
+  
+  public SpringAnnotationParser() {
+    this(null);
+  }
+  
+  /**
+   * Construct a parser that records the type hierarchy of each bean, see {@link DefinitionModel#getTypeHierarchy()}.
+   * 
+   * @param types of the processing environment, null to not record type hierarchies.
+   */
+  public SpringAnnotationParser(Types types) {
+    this.types = types;
+  }
   
   /**
    * Will return true if a class level contains exactly a constant final static private literal field.
@@ -184,10 +204,41 @@ public class SpringAnnotationParser {
       for (String expectedBean : verified.expectedBeans()) {
         model.addDefinition(new ExpectedModel(expectedBean, te));
       }
+      if (verified.entryPoints().length > 0 && !verified.root()) {
+        messager.printMessage(Kind.ERROR, "Only @Verified(root=true) classes may list entryPoints", te);
+      }
     }
     return model;
   }
   
+  /**
+   * Records all supertypes of a bean's type, as their generic arguments are seen by the bean's type.  Component types
+   * are recorded raw, as their entity type is.
+   * 
+   * @param model the definition of the bean.
+   * @param type of the bean.
+   * @param raw whether the bean's entity type is raw.
+   */
+  private void addTypeHierarchy(DefinitionModel model, TypeMirror type, boolean raw) {
+    if (types == null || type.getKind() != TypeKind.DECLARED) {
+      return;
+    }
+    TypeMirror beanType = raw ? types.erasure(type) : type;
+    Set<String> supertypes = new LinkedHashSet<>();
+    Deque<TypeMirror> toVisit = new ArrayDeque<>(types.directSupertypes(beanType));
+    while (!toVisit.isEmpty()) {
+      TypeMirror supertype = toVisit.pop();
+      if (supertypes.add(supertype.toString())) {
+        toVisit.addAll(types.directSupertypes(supertype));
+      }
+    }
+    model.addTypeHierarchy(beanType.toString(), new ArrayList<>(supertypes));
+    //arguments are compared against wildcard bounds of injection points.
+    for (TypeMirror argument : ((DeclaredType) beanType).getTypeArguments()) {
+      addTypeHierarchy(model, argument, false);
+    }
+  }
+  
   private List<Modifier> getIllegalModifiers(Set<Modifier> existing, List<Modifier> illegal) {
     List<Modifier> modifiers = new ArrayList<>(existing);
     modifiers.removeIf(modifier -> !illegal.contains(modifier));
@@ -234,6 +285,7 @@ public class SpringAnnotationParser {
             names.remove(defaultName);
             model.addDefinition(new InstanceModel(defaultName, model.getIdentity(), execelement,
                 execelement.getReturnType().toString(), dependencies, names));
+            addTypeHierarchy(model, execelement.getReturnType(), false);
           }
         } else {
           messager.printMessage(Kind.ERROR, "All methods on @Configuration must have @Bean annotation", execelement);
@@ -349,6 +401,7 @@ public class SpringAnnotationParser {
           new ArrayList<>());
       
       dm.addDefinition(model);
+      addTypeHierarchy(dm, te.asType(), true);
       for (InstanceDependencyModel dep : dependencies) {
         ExpectedModel expectedModel = new ExpectedModel(dep.getIdentity());
         expectedModel.addDefinitionReferenceToType(model.getIdentity(), dep.getType());
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.apt.AptFilerStore;
+import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.classpath.FileStore;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
+import com.salesforce.apt.graph.parser.apt.AptElementVisitor;
+import com.salesforce.apt.graph.parser.apt.AptParsingContext;
+import com.salesforce.aptspring.Verified;
+
+/**
+ * Writes the model of each @Verified class as parsed from the class alone, before it is joined with the models it
+ * imports, to a "Class_aptSpringDefinition" originating from the class, see {@link FileStore#DEFINITION}.  Nothing
+ * else is read, so gradle registers this processor as isolating and only reprocesses the classes that changed.
+ * <p>
+ * Verifying the graph, and storing what is derived from it, is left to the aggregating
+ * {@link VerifiedSpringConfiguration}, which parses the same classes and reports their errors.
+ * </p>
+ */
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+public class VerifiedDefinitionProcessor extends AbstractProcessor {
+
+  private Messager messager;
+  
+  private Types typeUtils;
+  
+  private AptParsingContext definitions;
+  
+  private DefinitionModelStore store;
+  
+  @Override
+  public synchronized void init(ProcessingEnvironment env) {
+    super.init(env);
+    messager = env.getMessager();
+    typeUtils = env.getTypeUtils();
+    Elements elementUtils = env.getElementUtils();
+    DigestStrategy digestStrategy = DigestStrategies.SHA_256;
+    try {
+      digestStrategy = DigestStrategies.forAlgorithm(env.getOptions().get(VerifiedSpringConfiguration.DIGEST_OPTION));
+    } catch (IllegalArgumentException ex) {
+      //reported by VerifiedSpringConfiguration.
+    }
+    store = new ClassFileGsonDefinitionModelStore(name -> Collections.emptyList(),
+        new AptFilerStore(env.getFiler(), FileStore.DEFINITION), digestStrategy, FileStore.DEFINITION);
+    definitions = new AptParsingContext(VerifiedSpringConfiguration.errorMessages(), elementUtils, null, store);
+  }
+  
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+    ErrorTracker errors = new ErrorTracker();
+    AptElementVisitor visitor = new AptElementVisitor(te -> {
+      errors.errored = false;
+      DefinitionModel definition = new SpringAnnotationParser(typeUtils).extractDefinition(te, errors);
+      return errors.errored ? null : definition;
+    });
+    for (Element annotatedElement : env.getElementsAnnotatedWith(Verified.class)) {
+      visitor.visit(annotatedElement, definitions);
+    }
+    for (DefinitionModel definition : definitions.getDefinitions()) {
+      try {
+        store.store(definition);
+      } catch (IllegalStateException ex) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "Could not store the definition of " + definition.getIdentity()
+            + ": " + ex.getMessage(), definition.getSourceElement().orElse(null));
+      }
+    }
+    definitions.reset();
+    return false;
+  }
+  
+  /**
+   * Keeps only whether parsing a class found errors, they are reported by {@link VerifiedSpringConfiguration}.
+   */
+  private static final class ErrorTracker implements Messager {
+    
+    private boolean errored;
+    
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg) {
+      errored |= kind == Diagnostic.Kind.ERROR;
+    }
+    
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element element) {
+      printMessage(kind, msg);
+    }
+    
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element element, AnnotationMirror annotation) {
+      printMessage(kind, msg);
+    }
+    
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element element, AnnotationMirror annotation,
+        AnnotationValue value) {
+      printMessage(kind, msg);
+    }
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    Set<String> output = new HashSet<>();
+    output.add(Verified.class.getName());
+    return output;
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> output = new HashSet<>();
+    output.add(VerifiedSpringConfiguration.DIGEST_OPTION);
+    return output;
+  }
+}
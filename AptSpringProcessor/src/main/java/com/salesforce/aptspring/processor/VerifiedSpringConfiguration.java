@@ -26,11 +26,18 @@
  */
 package com.salesforce.aptspring.processor;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
@@ -44,31 +51,213 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceModel;
 import com.salesforce.apt.graph.model.errors.ErrorMessages;
+import com.salesforce.apt.graph.model.storage.DefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.apt.AptFilerStore;
+import com.salesforce.apt.graph.model.storage.apt.AptResourceLoader;
+import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
+import com.salesforce.apt.graph.model.storage.apt.PackageBundles;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategies;
+import com.salesforce.apt.graph.model.storage.digest.DigestStrategy;
 import com.salesforce.apt.graph.parser.apt.AptElementVisitor;
 import com.salesforce.apt.graph.parser.apt.AptParsingContext;
+import com.salesforce.apt.graph.processing.BeanGraph;
+import com.salesforce.apt.graph.processing.VerificationMetrics;
+import com.salesforce.apt.graph.processing.VerificationMetrics.Phase;
+import com.salesforce.apt.graph.types.AssignabilityUtils;
+import com.salesforce.apt.graph.types.impl.AptAssignabilityUtils;
+import com.salesforce.apt.graph.types.impl.TypeHierarchyAssignabilityUtils;
 import com.salesforce.aptspring.Verified;
+import com.salesforce.aptspring.processor.generation.BeanGraphResourceGenerator;
+import com.salesforce.aptspring.processor.generation.BeanRegistrarGenerator;
+import com.salesforce.aptspring.processor.generation.BeanTypeIndexGenerator;
+import com.salesforce.aptspring.processor.generation.ClassListGenerator;
+import com.salesforce.aptspring.processor.generation.ReflectionConfigGenerator;
+import com.salesforce.aptspring.processor.generation.RootGenerator;
+import com.salesforce.aptspring.processor.generation.WiringGenerator;
 
+/**
+ * Verifies the graph of each @Verified class against the models of the classes it imports, stores the verified
+ * models read back when the class is imported, and generates code for roots.  All of it depends on more than one
+ * type, so gradle registers this processor as aggregating.  The model of each class on its own is written by the
+ * isolating {@link VerifiedDefinitionProcessor}.
+ */
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class VerifiedSpringConfiguration extends AbstractProcessor {
 
-  private int round = 0;
+  /**
+   * Digest algorithm used to hash stored models, SHA-256 by default.  MURMUR3-128 is faster, but should only be used
+   * for trusted local builds, never for published artifacts.
+   */
+  public static final String DIGEST_OPTION = "aptspring.digest";
+  
+  /**
+   * When "true" (the default) models are serialized and hashed on background threads, and written at the end of
+   * verification.
+   */
+  public static final String WRITE_BEHIND_OPTION = "aptspring.writeBehind";
+  
+  /**
+   * When "package" the models of each package are stored in a single bundle class rather than a class per model.
+   */
+  public static final String BUNDLE_OPTION = "aptspring.bundle";
+  
+  private static final String BUNDLE_PACKAGE = "package";
+  
+  /**
+   * When "table" bean types are checked against the type hierarchies recorded in each model, falling back to the
+   * compiler only for models without them.
+   */
+  public static final String ASSIGNABILITY_OPTION = "aptspring.assignability";
+  
+  private static final String ASSIGNABILITY_TABLE = "table";
+  
+  /**
+   * When "true" the time of each phase of processing, and counts of what was processed, are written to
+   * {@value #METRICS_REPORT} in the class output directory, and summarized in a note.
+   */
+  public static final String METRICS_OPTION = "aptspring.metrics";
+  
+  public static final String METRICS_REPORT = "aptspring-metrics.json";
+  
+  /**
+   * When "true" a registrar is generated beside each verified @Verified(root=true) class, registering its beans with
+   * instance suppliers that call their @Bean methods and constructors directly, see {@link BeanRegistrarGenerator}.
+   */
+  public static final String REGISTRAR_OPTION = "aptspring.registrar";
+  
+  /**
+   * When "true" a spring free factory is generated beside each verified @Verified(root=true) class, constructing its
+   * beans in dependency order and exposing them through getters, see {@link WiringGenerator}.  When "all" one is
+   * generated beside every verified @Verified class, so that tests may construct slices of any definition.
+   */
+  public static final String WIRING_OPTION = "aptspring.wiring";
+  
+  private static final String WIRING_ALL = "all";
+  
+  /**
+   * When "true" a resource listing the beans of each verified @Verified(root=true) class, and their dependencies, is
+   * written beside it, read by the startup profiler of AptSpringRuntime, see {@link BeanGraphResourceGenerator}.
+   */
+  public static final String BEAN_GRAPH_OPTION = "aptspring.beanGraph";
+  
+  /**
+   * When "true" a resource indexing the beans of each verified @Verified(root=true) class by the types they may be
+   * assigned to is written beside it, read by the BeanTypeIndex of AptSpringRuntime, see
+   * {@link BeanTypeIndexGenerator}.
+   */
+  public static final String BEAN_TYPES_OPTION = "aptspring.beanTypes";
+  
+  /**
+   * When "true" the GraalVM native-image reflection configuration of each verified @Verified(root=true) class is
+   * written under META-INF/native-image, see {@link ReflectionConfigGenerator}.
+   */
+  public static final String NATIVE_IMAGE_OPTION = "aptspring.nativeImage";
+  
+  /**
+   * When "true" a list of the classes loaded while constructing the beans of each verified @Verified(root=true) class,
+   * in the format of -XX:SharedClassListFile, is written beside it, see {@link ClassListGenerator}.
+   */
+  public static final String CLASS_LIST_OPTION = "aptspring.classList";
+  
+  /**
+   * When "true" the beans of a @Verified(root=true) class that none of its {@link Verified#entryPoints()} depend on
+   * are left out of everything generated for it, rather than only being reported.
+   */
+  public static final String PRUNE_UNREACHABLE_OPTION = "aptspring.pruneUnreachable";
+  
+  /**
+   * Shared by all processor instances, created when first needed, daemon threads so that the compiler may exit.
+   */
+  private static final class StoreExecutor {
+    private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+          Thread thread = new Thread(runnable, "aptspring-store");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
 
   private Messager messager;
   
+  private Types typeUtils;
+  
   private AptParsingContext definitionAggregator;
+  
+  private Filer filer;
+  
+  private VerificationMetrics metrics;
+  
+  private boolean pruneUnreachable;
+  
+  private final List<RootGenerator> generators = new ArrayList<>();
 
   @Override
   public synchronized void init(ProcessingEnvironment env) {
     super.init(env);
     
     
-    Types typeUtils = env.getTypeUtils();
+    typeUtils = env.getTypeUtils();
     Elements elementUtils = env.getElementUtils();
-    Filer filer = env.getFiler();
+    filer = env.getFiler();
     messager = env.getMessager();
-    ErrorMessages errorMessages = ErrorMessages.builder()
+    metrics = "true".equalsIgnoreCase(env.getOptions().get(METRICS_OPTION)) ? new VerificationMetrics()
+        : VerificationMetrics.NONE;
+    DigestStrategy digestStrategy = DigestStrategies.SHA_256;
+    try {
+      digestStrategy = DigestStrategies.forAlgorithm(env.getOptions().get(DIGEST_OPTION));
+    } catch (IllegalArgumentException ex) {
+      messager.printMessage(Diagnostic.Kind.ERROR, "Unknown " + DIGEST_OPTION + " "
+          + env.getOptions().get(DIGEST_OPTION) + ", using " + digestStrategy.getAlgorithm());
+    }
+    Executor storeExecutor = "false".equalsIgnoreCase(env.getOptions().get(WRITE_BEHIND_OPTION)) ? null : StoreExecutor.INSTANCE;
+    PackageBundles bundles = BUNDLE_PACKAGE.equalsIgnoreCase(env.getOptions().get(BUNDLE_OPTION))
+        ? new PackageBundles(filer, elementUtils) : null;
+    DefinitionModelStore store = new ClassFileGsonDefinitionModelStore(
+        metrics.measure(new AptResourceLoader(elementUtils)), new AptFilerStore(filer), digestStrategy, storeExecutor,
+        bundles);
+    AssignabilityUtils assignabilityUtils = new AptAssignabilityUtils(typeUtils, elementUtils);
+    if (ASSIGNABILITY_TABLE.equalsIgnoreCase(env.getOptions().get(ASSIGNABILITY_OPTION))) {
+      //models stored before type hierarchies were recorded still need the compiler.
+      assignabilityUtils = new TypeHierarchyAssignabilityUtils(name -> definitionAggregator.getJoinedDefinition(name),
+          assignabilityUtils);
+    }
+    definitionAggregator = new AptParsingContext(errorMessages(), elementUtils, assignabilityUtils, store, metrics);
+    generators.clear();
+    if ("true".equalsIgnoreCase(env.getOptions().get(REGISTRAR_OPTION))) {
+      generators.add(new BeanRegistrarGenerator(filer, elementUtils, typeUtils));
+    }
+    String wiring = env.getOptions().get(WIRING_OPTION);
+    if ("true".equalsIgnoreCase(wiring) || WIRING_ALL.equalsIgnoreCase(wiring)) {
+      generators.add(new WiringGenerator(filer, elementUtils, typeUtils, WIRING_ALL.equalsIgnoreCase(wiring)));
+    }
+    if ("true".equalsIgnoreCase(env.getOptions().get(BEAN_GRAPH_OPTION))) {
+      generators.add(new BeanGraphResourceGenerator(filer, elementUtils, typeUtils));
+    }
+    if ("true".equalsIgnoreCase(env.getOptions().get(BEAN_TYPES_OPTION))) {
+      generators.add(new BeanTypeIndexGenerator(filer, elementUtils, typeUtils));
+    }
+    if ("true".equalsIgnoreCase(env.getOptions().get(NATIVE_IMAGE_OPTION))) {
+      generators.add(new ReflectionConfigGenerator(filer, elementUtils, typeUtils));
+    }
+    if ("true".equalsIgnoreCase(env.getOptions().get(CLASS_LIST_OPTION))) {
+      generators.add(new ClassListGenerator(filer, elementUtils, typeUtils));
+    }
+    pruneUnreachable = "true".equalsIgnoreCase(env.getOptions().get(PRUNE_UNREACHABLE_OPTION));
+  }
+
+  /**
+   * The formats of the errors verification reports.
+   * 
+   * @return the error messages.
+   */
+  static ErrorMessages errorMessages() {
+    return ErrorMessages.builder()
         .cycleInDefinitionSources("Cycle in @Imports {0}")
         .cycleInObjectDefinitions("Cycle in spring bean dependencies {0}")
         .duplicateObjectDefinitions("Duplicate in spring beans {0}")
@@ -87,26 +276,27 @@ public class VerifiedSpringConfiguration extends AbstractProcessor {
         .dependencyShaMismatch("Sha256 mismatch of dependency model of prior analyzed @Verified class model {0}")
         .rootNodeImported("@Verfied(root=true) may not be @Imported by other @Verified classes: {0}")
         .build();
-    definitionAggregator = new AptParsingContext(errorMessages, filer, elementUtils, typeUtils);
   }
 
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
-    messager.printMessage(Diagnostic.Kind.NOTE, "AptSpring processing round: " + round++);
     try  {
+      Set<? extends Element> verified = env.getElementsAnnotatedWith(Verified.class);
       if (env.processingOver()) {
-        messager.printMessage(Diagnostic.Kind.NOTE, "AptSpring processing over on: " 
-              + env.getElementsAnnotatedWith(Verified.class).stream().map(a -> a.toString()).collect(Collectors.joining(", ")));
-        definitionAggregator.outputErrors(messager);
+        if (definitionAggregator.outputErrors(messager)) {
+          metrics.time(Phase.GENERATE, this::generate);
+        }
         definitionAggregator.reset();
-      } else {
-        AptElementVisitor visitor = new AptElementVisitor(te -> new SpringAnnotationParser().extractDefinition(te, messager));
-        messager.printMessage(Diagnostic.Kind.NOTE, "AptSpring processing on: " 
-              + env.getElementsAnnotatedWith(Verified.class).stream().map(a -> a.toString()).collect(Collectors.joining(", ")));
-        for (Element annotatedElement : env.getElementsAnnotatedWith(Verified.class)) {
-          messager.printMessage(Diagnostic.Kind.NOTE, "capturing type: " + annotatedElement.asType().toString());
-          visitor.visit(annotatedElement, definitionAggregator);        
+        if (metrics.isEnabled()) {
+          reportMetrics();
         }
+      } else {
+        AptElementVisitor visitor = new AptElementVisitor(te -> new SpringAnnotationParser(typeUtils).extractDefinition(te, messager));
+        metrics.time(Phase.PARSE, () -> {
+          for (Element annotatedElement : verified) {
+            visitor.visit(annotatedElement, definitionAggregator);
+          }
+        });
       }
       return true;
     } catch (Exception exception) {
@@ -118,10 +308,115 @@ public class VerifiedSpringConfiguration extends AbstractProcessor {
     }
   }
 
+  /**
+   * Run each generator over every verified root definition of this compilation, reporting the beans of roots that
+   * their entry points do not reach.
+   */
+  private void generate() {
+    Elements elementUtils = processingEnv.getElementUtils();
+    for (DefinitionModel definition : definitionAggregator.getDefinitions()) {
+      boolean generating = generators.stream().anyMatch(generator -> generator.generatesFor(definition));
+      if (!definition.getSourceElement().isPresent() || !generating && !definition.isRootNode()) {
+        continue;
+      }
+      TypeElement root = (TypeElement) definitionAggregator.getCorrespondingElement(elementUtils,
+          definition.getSourceElement().get());
+      Verified verified = root.getAnnotation(Verified.class);
+      String[] entryPoints = verified == null || !definition.isRootNode() ? new String[0] : verified.entryPoints();
+      if (!generating && entryPoints.length == 0) {
+        continue;
+      }
+      BeanGraph graph = new BeanGraph(definition);
+      if (entryPoints.length > 0) {
+        graph = reachable(graph, entryPoints, root);
+        if (graph == null) {
+          continue;
+        }
+      }
+      for (RootGenerator generator : generators) {
+        if (!generator.generatesFor(definition)) {
+          continue;
+        }
+        try {
+          generator.generate(graph, root);
+        } catch (IOException | IllegalStateException ex) {
+          messager.printMessage(Diagnostic.Kind.ERROR, "Could not generate "
+              + generator.getClass().getSimpleName() + " for " + definition.getIdentity() + ": " + ex.getMessage(),
+              root);
+        }
+      }
+    }
+  }
+
+  /**
+   * Report the beans of a root that none of its entry points depend on, directly or transitively.
+   * 
+   * @param graph the beans of the root.
+   * @param entryPoints names of the beans the root is used for.
+   * @param root the type annotated with @Verified(root=true).
+   * @return the graph to generate from, only the reachable beans when pruning, null if an entry point is not a bean.
+   */
+  private BeanGraph reachable(BeanGraph graph, String[] entryPoints, TypeElement root) {
+    List<InstanceModel> entryInstances = new ArrayList<>();
+    for (String entryPoint : entryPoints) {
+      InstanceModel instance = graph.getInstance(entryPoint);
+      if (instance == null) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "Entry point " + entryPoint + " is not a bean of "
+            + graph.getDefinition().getIdentity(), root);
+        return null;
+      }
+      entryInstances.add(instance);
+    }
+    BeanGraph reachable = graph.reachableFrom(entryInstances);
+    Set<String> unreachable = new TreeSet<>();
+    for (InstanceModel instance : graph.getInstances()) {
+      if (reachable.getInstance(instance.getIdentity()) == null) {
+        unreachable.add(instance.getIdentity());
+      }
+    }
+    if (!unreachable.isEmpty()) {
+      messager.printMessage(pruneUnreachable ? Diagnostic.Kind.NOTE : Diagnostic.Kind.WARNING,
+          "Beans unreachable from the entry points of " + graph.getDefinition().getIdentity()
+          + (pruneUnreachable ? ", left out of generated code: " : ": ") + String.join(", ", unreachable), root);
+    }
+    return pruneUnreachable ? reachable : graph;
+  }
+
+  private void reportMetrics() {
+    messager.printMessage(Diagnostic.Kind.NOTE, "AptSpring metrics: " + metrics.summary());
+    try {
+      FileObject report = filer.createResource(StandardLocation.CLASS_OUTPUT, "", METRICS_REPORT);
+      try (Writer writer = report.openWriter()) {
+        writer.write(metrics.toJson());
+      }
+    } catch (IOException ex) {
+      messager.printMessage(Diagnostic.Kind.WARNING, "Could not write " + METRICS_REPORT + ": " + ex.getMessage());
+    }
+    metrics.reset();
+  }
+
   @Override
   public Set<String> getSupportedAnnotationTypes() {
     Set<String> output = new HashSet<>();
     output.add(Verified.class.getName());
     return output;
   }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> output = new HashSet<>();
+    output.add(DIGEST_OPTION);
+    output.add(WRITE_BEHIND_OPTION);
+    output.add(BUNDLE_OPTION);
+    output.add(ASSIGNABILITY_OPTION);
+    output.add(METRICS_OPTION);
+    output.add(REGISTRAR_OPTION);
+    output.add(WIRING_OPTION);
+    output.add(BEAN_GRAPH_OPTION);
+    output.add(BEAN_TYPES_OPTION);
+    output.add(NATIVE_IMAGE_OPTION);
+    output.add(CLASS_LIST_OPTION);
+    output.add(PRUNE_UNREACHABLE_OPTION);
+    return output;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.salesforce.apt.graph.model.InstanceDependencyModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.processing.BeanGraph;
+
+/**
+ * Writes, beside each root, a "Root_BeanGraph.tsv" resource listing the beans of the root's graph in the order they
+ * are constructed, each followed by the names of the beans it depends on, tab separated.  Dependencies are named by
+ * the identity of the bean providing them, or by their own name when expected.  Read at runtime, without the model
+ * store or its dependencies, by the AptSpringRuntime module.
+ */
+public class BeanGraphResourceGenerator extends RootGenerator {
+
+  public static final String SUFFIX = "BeanGraph";
+  
+  public static final String EXTENSION = ".tsv";
+  
+  public BeanGraphResourceGenerator(Filer filer, Elements elements, Types types) {
+    super(filer, elements, types);
+  }
+
+  @Override
+  public void generate(BeanGraph graph, TypeElement root) throws IOException {
+    StringBuilder content = new StringBuilder("# bean\tdependencies, in construction order, of ")
+        .append(graph.getDefinition().getIdentity()).append('\n');
+    for (InstanceModel instance : graph.getInstances()) {
+      content.append(instance.getIdentity());
+      for (InstanceDependencyModel dependency : instance.getDependencies()) {
+        InstanceModel provider = graph.getInstance(dependency.getIdentity());
+        content.append('\t').append(provider == null ? dependency.getIdentity() : provider.getIdentity());
+      }
+      content.append('\n');
+    }
+    String name = generatedName(root, SUFFIX).simpleName() + EXTENSION;
+    writeResource(generatedName(root, SUFFIX).packageName(), name, content, root);
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.naming.NamingTools;
+import com.salesforce.aptspring.processor.AnnotationValueExtractor;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * How a bean is constructed: the @Bean method of its definition, or the constructor of its @Component, with the
+ * bean or property each parameter is bound to.  The executable is found again from the location recorded in the
+ * bean's model, so beans of definitions compiled earlier, read from the class path, resolve as well as those
+ * being compiled.
+ */
+public class BeanInstantiation {
+
+  private static final String QUALIFIER_TYPE = "org.springframework.beans.factory.annotation.Qualifier";
+  
+  private static final String VALUE_TYPE = "org.springframework.beans.factory.annotation.Value";
+  
+  private static final String DEFAULT_ANNOTATION_VALUE = "value";
+  
+  /**
+   * A parameter of the factory method or constructor, bound to a bean by @Qualifier or to a property by @Value.
+   */
+  public static class Argument {
+    
+    private final String beanName;
+    private final String expression;
+    private final TypeMirror type;
+    private final TypeName rawType;
+    
+    Argument(String beanName, String expression, TypeMirror type, TypeName rawType) {
+      this.beanName = beanName;
+      this.expression = expression;
+      this.type = type;
+      this.rawType = rawType;
+    }
+    
+    /**
+     * The bean the parameter is bound to.
+     * 
+     * @return name of the bean, or null if the parameter is a property.
+     */
+    public String getBeanName() {
+      return beanName;
+    }
+    
+    /**
+     * The @Value expression the parameter is bound to.
+     * 
+     * @return the expression, or null if the parameter is a bean.
+     */
+    public String getExpression() {
+      return expression;
+    }
+    
+    public TypeName getType() {
+      return TypeName.get(type);
+    }
+    
+    public TypeMirror getTypeMirror() {
+      return type;
+    }
+    
+    /**
+     * The erased, and boxed if primitive, type of the parameter, usable as a class literal.
+     * 
+     * @return the raw type.
+     */
+    public TypeName getRawType() {
+      return rawType;
+    }
+    
+    /**
+     * An argument of the raw type must be cast to be passed as the parameter.
+     * 
+     * @return true if the parameter's type is generic.
+     */
+    public boolean needsCast() {
+      return !rawType.equals(TypeName.get(type).box());
+    }
+  }
+  
+  private final InstanceModel instance;
+  private final TypeElement owner;
+  private final ExecutableElement executable;
+  private final List<Argument> arguments;
+  private final TypeName rawType;
+  
+  private BeanInstantiation(InstanceModel instance, TypeElement owner, ExecutableElement executable,
+      List<Argument> arguments, TypeName rawType) {
+    this.instance = instance;
+    this.owner = owner;
+    this.executable = executable;
+    this.arguments = Collections.unmodifiableList(arguments);
+    this.rawType = rawType;
+  }
+  
+  /**
+   * Find how a bean is constructed.
+   * 
+   * @param instance the model of the bean.
+   * @param elements of the processing environment.
+   * @param types of the processing environment.
+   * @return how the bean is constructed.
+   * @throws IllegalStateException if the @Bean method or constructor of the bean can not be found.
+   */
+  public static BeanInstantiation resolve(InstanceModel instance, Elements elements, Types types) {
+    TypeElement owner = elements.getTypeElement(instance.getOwningDefinition().replace('$', '.'));
+    if (owner == null) {
+      throw new IllegalStateException("Could not find " + instance.getOwningDefinition() + " declaring bean "
+          + instance.getIdentity());
+    }
+    NamingTools naming = new NamingTools();
+    for (Element enclosed : owner.getEnclosedElements()) {
+      if ((enclosed.getKind() == ElementKind.METHOD || enclosed.getKind() == ElementKind.CONSTRUCTOR)
+          && naming.elementToName(enclosed).equals(instance.getElementLocation())) {
+        ExecutableElement executable = (ExecutableElement) enclosed;
+        List<Argument> arguments = new ArrayList<>();
+        for (VariableElement parameter : executable.getParameters()) {
+          arguments.add(argument(parameter, types));
+        }
+        TypeMirror beanType = executable.getKind() == ElementKind.CONSTRUCTOR ? owner.asType()
+            : executable.getReturnType();
+        return new BeanInstantiation(instance, owner, executable, arguments,
+            TypeName.get(types.erasure(beanType)));
+      }
+    }
+    throw new IllegalStateException("Could not find " + instance.getElementLocation() + " declaring bean "
+        + instance.getIdentity());
+  }
+  
+  private static Argument argument(VariableElement parameter, Types types) {
+    TypeMirror type = parameter.asType();
+    TypeMirror raw = type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).asType()
+        : types.erasure(type);
+    String[] qualifiers = AnnotationValueExtractor.getAnnotationValue(parameter, QUALIFIER_TYPE,
+        DEFAULT_ANNOTATION_VALUE);
+    if (qualifiers != null && qualifiers.length > 0) {
+      return new Argument(qualifiers[0], null, type, TypeName.get(raw));
+    }
+    String[] values = AnnotationValueExtractor.getAnnotationValue(parameter, VALUE_TYPE, DEFAULT_ANNOTATION_VALUE);
+    if (values != null && values.length > 0) {
+      return new Argument(null, values[0], type, TypeName.get(raw));
+    }
+    throw new IllegalStateException("Parameter " + parameter + " of " + parameter.getEnclosingElement()
+        + " has neither @Qualifier nor @Value");
+  }
+  
+  public InstanceModel getInstance() {
+    return instance;
+  }
+  
+  /**
+   * The @Component class, or the definition declaring the @Bean method.
+   * 
+   * @return the type owning the executable.
+   */
+  public TypeElement getOwner() {
+    return owner;
+  }
+  
+  public ClassName getOwnerName() {
+    return ClassName.get(owner);
+  }
+  
+  public ExecutableElement getExecutable() {
+    return executable;
+  }
+  
+  public boolean isConstructor() {
+    return executable.getKind() == ElementKind.CONSTRUCTOR;
+  }
+  
+  public List<Argument> getArguments() {
+    return arguments;
+  }
+  
+  /**
+   * The erased type of the bean, usable as a class literal.
+   * 
+   * @return the erased type of the bean.
+   */
+  public TypeName getRawType() {
+    return rawType;
+  }
+  
+  /**
+   * The type of the bean as declared.
+   * 
+   * @return the type returned by the @Bean method, or the @Component's type.
+   */
+  public TypeName getType() {
+    return TypeName.get(getTypeMirror());
+  }
+  
+  public TypeMirror getTypeMirror() {
+    return isConstructor() ? owner.asType() : executable.getReturnType();
+  }
+  
+  /**
+   * The construction of the bean, {@code new Component(args)} or {@code definition.bean(args)}.
+   * 
+   * @param definition the expression of the instance of the owning definition, unused for constructors.
+   * @param arguments the expressions passed to each parameter.
+   * @return the expression constructing the bean.
+   */
+  public CodeBlock invoke(CodeBlock definition, List<CodeBlock> arguments) {
+    CodeBlock joined = CodeBlock.join(arguments, ", ");
+    if (isConstructor()) {
+      return CodeBlock.of("new $T($L)", getOwnerName(), joined);
+    }
+    return CodeBlock.of("$L.$N($L)", definition, executable.getSimpleName().toString(), joined);
+  }
+  
+  /**
+   * Whether code in a package may construct the bean, all types enclosing the executable must be visible.
+   * 
+   * @param packageName of the code constructing the bean.
+   * @return true if the bean may be constructed from the package.
+   */
+  public boolean isAccessibleFrom(String packageName) {
+    boolean samePackage = getPackage(owner).getQualifiedName().contentEquals(packageName);
+    Element element = executable;
+    while (element != null && element.getKind() != ElementKind.PACKAGE) {
+      Set<Modifier> modifiers = element.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE) || !samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+        return false;
+      }
+      element = element.getEnclosingElement();
+    }
+    return true;
+  }
+  
+  private static PackageElement getPackage(Element element) {
+    while (element.getKind() != ElementKind.PACKAGE) {
+      element = element.getEnclosingElement();
+    }
+    return (PackageElement) element;
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.salesforce.apt.graph.processing.BeanGraph;
+import com.salesforce.aptspring.processor.AnnotationValueExtractor;
+import com.salesforce.aptspring.processor.generation.BeanInstantiation.Argument;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+/**
+ * Generates, beside each root, a "Root_BeanRegistrar" registering every bean of the root's graph with an instance
+ * supplier that calls its @Bean method or constructor directly.  Spring neither parses the configuration classes nor
+ * resolves constructors reflectively.  The registrar is both an {@code ApplicationContextInitializer} of a
+ * {@code GenericApplicationContext} and a {@code BeanDefinitionRegistryPostProcessor}.
+ * <p>
+ * Dependencies are fetched by name from the bean factory when a bean is created, so expected beans may be registered
+ * by other means.  @Value parameters are resolved as spring would, placeholders then expressions, and converted by the
+ * factory's type converter.  Beans of @Bean methods infer their destroy method, as spring does, unless one is given.
+ * @Scope, @Lazy, @Primary and @DependsOn are copied to the bean definitions, @Lazy of a configuration class applying
+ * to its @Bean methods as it does in spring.  Scoped proxies are not supported.  Graphs of more than {@value #CHUNK}
+ * beans are registered in chunks, each passed the instances of the configuration classes its beans need.
+ * </p>
+ */
+public class BeanRegistrarGenerator extends RootGenerator {
+
+  public static final String SUFFIX = "BeanRegistrar";
+  
+  /**
+   * Beans registered by a single method, larger graphs are registered by a method per chunk of beans so that no
+   * method exceeds the 64KB of code the jvm allows.
+   */
+  static final int CHUNK = 128;
+  
+  private static final String BEAN_TYPE = "org.springframework.context.annotation.Bean";
+  
+  private static final String SCOPE_TYPE = "org.springframework.context.annotation.Scope";
+  
+  private static final String LAZY_TYPE = "org.springframework.context.annotation.Lazy";
+  
+  private static final String PRIMARY_TYPE = "org.springframework.context.annotation.Primary";
+  
+  private static final String DEPENDS_ON_TYPE = "org.springframework.context.annotation.DependsOn";
+  
+  private static final String BEANS = "org.springframework.beans.factory.config";
+  
+  private static final ClassName INITIALIZER = ClassName.get("org.springframework.context",
+      "ApplicationContextInitializer");
+  
+  private static final ClassName GENERIC_CONTEXT = ClassName.get("org.springframework.context.support",
+      "GenericApplicationContext");
+  
+  private static final ClassName REGISTRY_POST_PROCESSOR = ClassName.get("org.springframework.beans.factory.support",
+      "BeanDefinitionRegistryPostProcessor");
+  
+  private static final ClassName REGISTRY = ClassName.get("org.springframework.beans.factory.support",
+      "BeanDefinitionRegistry");
+  
+  private static final ClassName BUILDER = ClassName.get("org.springframework.beans.factory.support",
+      "BeanDefinitionBuilder");
+  
+  private static final ClassName ABSTRACT_DEFINITION = ClassName.get("org.springframework.beans.factory.support",
+      "AbstractBeanDefinition");
+  
+  private static final ClassName BEAN_FACTORY = ClassName.get(BEANS, "ConfigurableBeanFactory");
+  
+  private static final ClassName LISTABLE_BEAN_FACTORY = ClassName.get(BEANS, "ConfigurableListableBeanFactory");
+  
+  private static final ClassName EXPRESSION_RESOLVER = ClassName.get(BEANS, "BeanExpressionResolver");
+  
+  private static final ClassName EXPRESSION_CONTEXT = ClassName.get(BEANS, "BeanExpressionContext");
+  
+  public BeanRegistrarGenerator(Filer filer, Elements elements, Types types) {
+    super(filer, elements, types);
+  }
+
+  @Override
+  public void generate(BeanGraph graph, TypeElement root) throws IOException {
+    ClassName name = generatedName(root, SUFFIX);
+    List<BeanInstantiation> instantiations = resolve(graph, name.packageName());
+    
+    TypeSpec.Builder registrar = TypeSpec.classBuilder(name)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addAnnotation(generatedAnnotation())
+        .addSuperinterface(ParameterizedTypeName.get(INITIALIZER, GENERIC_CONTEXT))
+        .addSuperinterface(REGISTRY_POST_PROCESSOR)
+        .addJavadoc("Registers the beans of {@link $T} without parsing configuration classes.\n", ClassName.get(root))
+        .addMethod(MethodSpec.methodBuilder("initialize")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(GENERIC_CONTEXT, "context")
+            .addStatement("register(context, context.getBeanFactory())")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("postProcessBeanDefinitionRegistry")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(REGISTRY, "registry")
+            .addStatement("register(registry, ($T) registry)", BEAN_FACTORY)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("postProcessBeanFactory")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(LISTABLE_BEAN_FACTORY, "beanFactory")
+            .build());
+    registrar.addMethod(register(registrar, instantiations));
+    if (instantiations.stream().flatMap(i -> i.getArguments().stream()).anyMatch(a -> a.getExpression() != null)) {
+      registrar.addMethod(value());
+    }
+    write(name.packageName(), registrar.build(), root);
+  }
+  
+  private MethodSpec register(TypeSpec.Builder registrar, List<BeanInstantiation> instantiations) {
+    MethodSpec.Builder register = MethodSpec.methodBuilder("register")
+        .addJavadoc("Register the beans, fetching their dependencies from the bean factory as they are created.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(REGISTRY, "registry")
+        .addParameter(BEAN_FACTORY, "beanFactory");
+    NameAllocator names = new NameAllocator();
+    names.newName("registry");
+    names.newName("beanFactory");
+    Map<ClassName, String> definitions = declareDefinitions(register, instantiations, names);
+    if (instantiations.size() <= CHUNK) {
+      registerBeans(register, instantiations, definitions, names);
+      return register.build();
+    }
+    for (int chunk = 0; chunk * CHUNK < instantiations.size(); chunk++) {
+      List<BeanInstantiation> beans = instantiations.subList(chunk * CHUNK,
+          Math.min(instantiations.size(), (chunk + 1) * CHUNK));
+      MethodSpec.Builder registerChunk = MethodSpec.methodBuilder("register" + chunk)
+          .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+          .addParameter(REGISTRY, "registry")
+          .addParameter(BEAN_FACTORY, "beanFactory");
+      List<CodeBlock> arguments = new ArrayList<>(Arrays.asList(CodeBlock.of("registry"), CodeBlock.of("beanFactory")));
+      for (Map.Entry<ClassName, String> definition : definitions.entrySet()) {
+        if (beans.stream().anyMatch(bean -> !bean.isConstructor() && definition.getKey().equals(bean.getOwnerName()))) {
+          registerChunk.addParameter(definition.getKey(), definition.getValue(), Modifier.FINAL);
+          arguments.add(CodeBlock.of("$N", definition.getValue()));
+        }
+      }
+      registerBeans(registerChunk, beans, definitions, names);
+      registrar.addMethod(registerChunk.build());
+      register.addStatement("register$L($L)", chunk, CodeBlock.join(arguments, ", "));
+    }
+    return register.build();
+  }
+  
+  /**
+   * Adds the registration of beans to a method holding the instances of the definitions owning their @Bean methods.
+   */
+  private static void registerBeans(MethodSpec.Builder register, List<BeanInstantiation> instantiations,
+      Map<ClassName, String> definitions, NameAllocator names) {
+    boolean casts = false;
+    for (BeanInstantiation instantiation : instantiations) {
+      List<CodeBlock> arguments = new ArrayList<>();
+      for (Argument argument : instantiation.getArguments()) {
+        CodeBlock fetch = argument.getBeanName() != null
+            ? CodeBlock.of("beanFactory.getBean($S, $T.class)", argument.getBeanName(), argument.getRawType())
+            : CodeBlock.of("value(beanFactory, $S, $T.class)", argument.getExpression(), argument.getRawType());
+        if (argument.needsCast()) {
+          casts = true;
+          fetch = CodeBlock.of("($T) $L", argument.getType(), fetch);
+        }
+        arguments.add(fetch);
+      }
+      CodeBlock invoke = instantiation.invoke(instantiation.isConstructor() ? null
+          : CodeBlock.of("$N", definitions.get(instantiation.getOwnerName())), arguments);
+      String beanName = instantiation.getInstance().getIdentity();
+      String definition = names.newName(lowerCamel(beanName) + "Definition");
+      register.addStatement("$T $N = $T.genericBeanDefinition($T.class, () -> $L).getBeanDefinition()",
+          ABSTRACT_DEFINITION, definition, BUILDER, instantiation.getRawType(), invoke);
+      if (!instantiation.isConstructor()) {
+        String[] init = AnnotationValueExtractor.getAnnotationValue(instantiation.getExecutable(), BEAN_TYPE,
+            "initMethod");
+        if (init != null && init.length > 0 && !init[0].isEmpty()) {
+          register.addStatement("$N.setInitMethodName($S)", definition, init[0]);
+        }
+        String[] destroy = AnnotationValueExtractor.getAnnotationValue(instantiation.getExecutable(), BEAN_TYPE,
+            "destroyMethod");
+        if (destroy != null && destroy.length > 0) {
+          register.addStatement("$N.setDestroyMethodName($S)", definition, destroy[0]);
+        } else {
+          register.addStatement("$N.setDestroyMethodName($T.INFER_METHOD)", definition, ABSTRACT_DEFINITION);
+        }
+      }
+      addAttributes(register, definition, instantiation);
+      register.addStatement("registry.registerBeanDefinition($S, $N)", beanName, definition);
+      for (String alias : instantiation.getInstance().getAliases()) {
+        register.addStatement("registry.registerAlias($S, $S)", beanName, alias);
+      }
+    }
+    if (casts) {
+      register.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked")
+          .build());
+    }
+  }
+  
+  /**
+   * Copies the annotations spring reads from a @Bean method or component class on to its bean definition.
+   * 
+   * @throws IllegalStateException if the bean asks for a scoped proxy, which the registrar can not create.
+   */
+  private static void addAttributes(MethodSpec.Builder register, String definition, BeanInstantiation instantiation) {
+    Element element = instantiation.isConstructor() ? instantiation.getOwner() : instantiation.getExecutable();
+    String[] scope = AnnotationValueExtractor.getAnnotationValue(element, SCOPE_TYPE, "scopeName");
+    if (scope != null) {
+      String[] proxyMode = AnnotationValueExtractor.getAnnotationValue(element, SCOPE_TYPE, "proxyMode");
+      if (proxyMode.length > 0 && !"DEFAULT".equals(proxyMode[0]) && !"NO".equals(proxyMode[0])) {
+        throw new IllegalStateException(instantiation.getInstance().getElementLocation() + " of bean "
+            + instantiation.getInstance().getIdentity() + " asks for a scoped proxy, which the registrar can not"
+            + " create");
+      }
+      if (scope.length > 0 && !scope[0].isEmpty()) {
+        register.addStatement("$N.setScope($S)", definition, scope[0]);
+      }
+    }
+    String[] lazy = AnnotationValueExtractor.getAnnotationValue(element, LAZY_TYPE, "value");
+    if (lazy == null && !instantiation.isConstructor()) {
+      lazy = AnnotationValueExtractor.getAnnotationValue(instantiation.getOwner(), LAZY_TYPE, "value");
+    }
+    if (lazy != null) {
+      register.addStatement("$N.setLazyInit($L)", definition, lazy.length == 0 || Boolean.parseBoolean(lazy[0]));
+    }
+    if (AnnotationValueExtractor.getAnnotationValue(element, PRIMARY_TYPE, "value") != null) {
+      register.addStatement("$N.setPrimary(true)", definition);
+    }
+    String[] dependsOn = AnnotationValueExtractor.getAnnotationValue(element, DEPENDS_ON_TYPE, "value");
+    if (dependsOn != null && dependsOn.length > 0) {
+      register.addStatement("$N.setDependsOn($L)", definition, Arrays.stream(dependsOn)
+          .map(name -> CodeBlock.of("$S", name)).collect(CodeBlock.joining(", ")));
+    }
+  }
+  
+  private static MethodSpec value() {
+    TypeVariableName type = TypeVariableName.get("T");
+    return MethodSpec.methodBuilder("value")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addTypeVariable(type)
+        .returns(type)
+        .addParameter(BEAN_FACTORY, "beanFactory")
+        .addParameter(String.class, "expression")
+        .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), type), "type")
+        .addStatement("$T value = beanFactory.resolveEmbeddedValue(expression)", Object.class)
+        .addStatement("$T resolver = beanFactory.getBeanExpressionResolver()", EXPRESSION_RESOLVER)
+        .beginControlFlow("if (resolver != null)")
+        .addStatement("value = resolver.evaluate(($T) value, new $T(beanFactory, null))", String.class,
+            EXPRESSION_CONTEXT)
+        .endControlFlow()
+        .addStatement("return beanFactory.getTypeConverter().convertIfNecessary(value, type)")
+        .build();
+  }
+}
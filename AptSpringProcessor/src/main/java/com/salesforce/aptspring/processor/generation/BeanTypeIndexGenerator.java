@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.processing.BeanGraph;
+
+/**
+ * Writes, beside each root, a "Root_BeanTypes.tsv" resource indexing the beans of the root's graph by every type they
+ * may be assigned to: a line per class or interface, its binary name followed by the names of the beans assignable
+ * to it, in construction order, tab separated.  Types are erased, as the index answers lookups by class.  Read at
+ * runtime by the BeanTypeIndex of the AptSpringRuntime module.
+ * <p>
+ * As spring does, a FactoryBean is indexed under the types of the object it produces by its name, and under its own
+ * types by its name prefixed with '&amp;'.  The product of a FactoryBean whose type argument is not a declared type is
+ * only known at runtime, and not indexed.
+ * </p>
+ */
+public class BeanTypeIndexGenerator extends RootGenerator {
+
+  public static final String SUFFIX = "BeanTypes";
+  
+  public static final String EXTENSION = ".tsv";
+  
+  private static final String FACTORY_BEAN_TYPE = "org.springframework.beans.factory.FactoryBean";
+  
+  private static final String FACTORY_BEAN_PREFIX = "&";
+  
+  public BeanTypeIndexGenerator(Filer filer, Elements elements, Types types) {
+    super(filer, elements, types);
+  }
+
+  @Override
+  public void generate(BeanGraph graph, TypeElement root) throws IOException {
+    Map<String, List<String>> index = new TreeMap<>();
+    TypeElement factoryBean = elements.getTypeElement(FACTORY_BEAN_TYPE);
+    for (InstanceModel instance : graph.getInstances()) {
+      TypeMirror type = BeanInstantiation.resolve(instance, elements, types).getTypeMirror();
+      DeclaredType factory = factoryBean == null ? null : findSupertype(type, factoryBean);
+      if (factory == null) {
+        addBean(index, type, instance.getIdentity());
+      } else {
+        addBean(index, type, FACTORY_BEAN_PREFIX + instance.getIdentity());
+        TypeMirror product = factory.getTypeArguments().isEmpty() ? null : factory.getTypeArguments().get(0);
+        if (product != null && product.getKind() == TypeKind.DECLARED) {
+          addBean(index, product, instance.getIdentity());
+        }
+      }
+    }
+    StringBuilder content = new StringBuilder("# type\tbeans assignable to it, in construction order, of ")
+        .append(graph.getDefinition().getIdentity()).append('\n');
+    for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+      content.append(entry.getKey());
+      for (String bean : entry.getValue()) {
+        content.append('\t').append(bean);
+      }
+      content.append('\n');
+    }
+    String name = generatedName(root, SUFFIX).simpleName() + EXTENSION;
+    writeResource(generatedName(root, SUFFIX).packageName(), name, content, root);
+  }
+  
+  private void addBean(Map<String, List<String>> index, TypeMirror type, String name) {
+    Set<String> assignable = new LinkedHashSet<>();
+    addSupertypes(type, assignable);
+    for (String assignableType : assignable) {
+      index.computeIfAbsent(assignableType, t -> new ArrayList<>()).add(name);
+    }
+  }
+  
+  /**
+   * Find a generic supertype of a type, with the type arguments the type gives it.
+   * 
+   * @param type the type of a bean, or one of its supertypes.
+   * @param supertype the class or interface to find.
+   * @return the supertype as the type extends it, null if the type is not a subtype of it.
+   */
+  private DeclaredType findSupertype(TypeMirror type, TypeElement supertype) {
+    if (type.getKind() == TypeKind.DECLARED && supertype.equals(((DeclaredType) type).asElement())) {
+      return (DeclaredType) type;
+    }
+    for (TypeMirror direct : types.directSupertypes(type)) {
+      DeclaredType found = findSupertype(direct, supertype);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Collect the binary names of a type and all of its supertypes.
+   * 
+   * @param type the type of a bean, or one of its supertypes.
+   * @param names collects the names of the types.
+   */
+  private void addSupertypes(TypeMirror type, Set<String> names) {
+    TypeMirror erased = types.erasure(type);
+    if (erased.getKind() == TypeKind.DECLARED) {
+      TypeElement element = (TypeElement) ((DeclaredType) erased).asElement();
+      if (!names.add(elements.getBinaryName(element).toString())) {
+        return;
+      }
+    }
+    for (TypeMirror supertype : types.directSupertypes(erased)) {
+      addSupertypes(supertype, names);
+    }
+  }
+}
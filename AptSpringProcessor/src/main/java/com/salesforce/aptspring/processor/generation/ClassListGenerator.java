@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.processing.BeanGraph;
+
+/**
+ * Writes, beside each root, a "Root_ClassList.classlist" resource naming the classes loaded while constructing the
+ * root's beans, in the order they are loaded: the root, then for each bean, in construction order, the definition or
+ * component declaring it, the types of its parameters and its own type, each after its supertypes.  Classes are written a line each in their
+ * internal form, "java/lang/String", as -XX:SharedClassListFile expects, so that a class data sharing archive of them
+ * may be dumped when packaging.
+ */
+public class ClassListGenerator extends RootGenerator {
+
+  public static final String SUFFIX = "ClassList";
+  
+  public static final String EXTENSION = ".classlist";
+  
+  public ClassListGenerator(Filer filer, Elements elements, Types types) {
+    super(filer, elements, types);
+  }
+
+  @Override
+  public void generate(BeanGraph graph, TypeElement root) throws IOException {
+    Set<String> classes = new LinkedHashSet<>();
+    addClass(root.asType(), classes);
+    for (InstanceModel instance : graph.getInstances()) {
+      BeanInstantiation instantiation = BeanInstantiation.resolve(instance, elements, types);
+      addClass(instantiation.getOwner().asType(), classes);
+      for (VariableElement parameter : instantiation.getExecutable().getParameters()) {
+        addClass(parameter.asType(), classes);
+      }
+      addClass(instantiation.getTypeMirror(), classes);
+    }
+    StringBuilder content = new StringBuilder();
+    for (String name : classes) {
+      content.append(name).append('\n');
+    }
+    String name = generatedName(root, SUFFIX).simpleName() + EXTENSION;
+    writeResource(generatedName(root, SUFFIX).packageName(), name, content, root);
+  }
+  
+  /**
+   * Add a class, after its supertypes, the element type of arrays, nothing for primitives.
+   * 
+   * @param type a type used constructing a bean.
+   * @param classes collects the internal names of the classes.
+   */
+  private void addClass(TypeMirror type, Set<String> classes) {
+    TypeMirror erased = types.erasure(type);
+    if (erased.getKind() == TypeKind.ARRAY) {
+      addClass(((ArrayType) erased).getComponentType(), classes);
+    } else if (erased.getKind() == TypeKind.DECLARED) {
+      String name = elements.getBinaryName((TypeElement) ((DeclaredType) erased).asElement()).toString()
+          .replace('.', '/');
+      if (!classes.contains(name)) {
+        for (TypeMirror supertype : types.directSupertypes(erased)) {
+          addClass(supertype, classes);
+        }
+        classes.add(name);
+      }
+    }
+  }
+}
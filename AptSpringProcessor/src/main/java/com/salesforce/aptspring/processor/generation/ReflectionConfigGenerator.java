@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.processing.BeanGraph;
+import com.salesforce.aptspring.processor.AnnotationValueExtractor;
+import com.squareup.javapoet.ClassName;
+
+/**
+ * Writes, for each root, the GraalVM native-image reflection configuration of its graph,
+ * "META-INF/native-image/package/Root/reflect-config.json", registering only what spring invokes reflectively to
+ * construct and destroy the beans: the constructor of each @Component bean, and each @Bean method with the default
+ * constructor of the definition declaring it, its init and destroy methods, and the close or shutdown method spring
+ * infers as the destroy method when none is given.  Native-image picks the file up from the class path, without a
+ * tracing agent.
+ * <p>
+ * No proxy configuration is written, the graph does not record which beans spring will proxy, aop and scoping decide
+ * that at runtime.  Init and destroy methods are looked up on the declared type of the bean, those only declared by
+ * the type created at runtime are registered on the declared type with no parameters.
+ * </p>
+ */
+public class ReflectionConfigGenerator extends RootGenerator {
+
+  public static final String DIRECTORY = "META-INF/native-image/";
+  
+  public static final String FILE = "reflect-config.json";
+  
+  private static final String CONSTRUCTOR = "<init>";
+  
+  private static final String BEAN_TYPE = "org.springframework.context.annotation.Bean";
+  
+  private static final String INFER_METHOD = "(inferred)";
+  
+  private static final String[] INFERRED_DESTROY_METHODS = { "close", "shutdown" };
+  
+  public ReflectionConfigGenerator(Filer filer, Elements elements, Types types) {
+    super(filer, elements, types);
+  }
+
+  @Override
+  public void generate(BeanGraph graph, TypeElement root) throws IOException {
+    //type names to the methods registered on them, by signature.
+    Map<String, Map<String, JsonObject>> methods = new TreeMap<>();
+    for (InstanceModel instance : graph.getInstances()) {
+      BeanInstantiation instantiation = BeanInstantiation.resolve(instance, elements, types);
+      String owner = binaryName(instantiation.getOwner().asType());
+      if (!instantiation.isConstructor()) {
+        addMethod(methods, owner, CONSTRUCTOR, new JsonArray());
+      }
+      addMethod(methods, owner, instantiation.getExecutable());
+      if (!instantiation.isConstructor()) {
+        addLifecycleMethods(methods, instantiation);
+      }
+    }
+    JsonArray content = new JsonArray();
+    for (Map.Entry<String, Map<String, JsonObject>> type : methods.entrySet()) {
+      JsonObject entry = new JsonObject();
+      entry.addProperty("name", type.getKey());
+      JsonArray typeMethods = new JsonArray();
+      type.getValue().values().forEach(typeMethods::add);
+      entry.add("methods", typeMethods);
+      content.add(entry);
+    }
+    ClassName rootName = ClassName.get(root);
+    writeResource("", DIRECTORY + (rootName.packageName().isEmpty() ? "" : rootName.packageName() + "/")
+        + String.join("_", rootName.simpleNames()) + "/" + FILE,
+        new GsonBuilder().setPrettyPrinting().create().toJson(content) + "\n", root);
+  }
+  
+  /**
+   * Register the init and destroy methods of a @Bean method's bean, or the destroy method spring would infer.
+   */
+  private void addLifecycleMethods(Map<String, Map<String, JsonObject>> methods, BeanInstantiation instantiation) {
+    String[] init = AnnotationValueExtractor.getAnnotationValue(instantiation.getExecutable(), BEAN_TYPE,
+        "initMethod");
+    if (init != null && init.length > 0 && !init[0].isEmpty()) {
+      addBeanMethod(methods, instantiation.getTypeMirror(), init[0], false, true);
+    }
+    String[] destroy = AnnotationValueExtractor.getAnnotationValue(instantiation.getExecutable(), BEAN_TYPE,
+        "destroyMethod");
+    if (destroy == null || destroy.length == 0 || INFER_METHOD.equals(destroy[0])) {
+      for (String inferred : INFERRED_DESTROY_METHODS) {
+        if (addBeanMethod(methods, instantiation.getTypeMirror(), inferred, true, false)) {
+          break;
+        }
+      }
+    } else if (!destroy[0].isEmpty()) {
+      addBeanMethod(methods, instantiation.getTypeMirror(), destroy[0], true, true);
+    }
+  }
+  
+  /**
+   * Register a method spring calls by name on a bean.  Destroy methods may take a single boolean, spring passing
+   * true.
+   * 
+   * @param beanType the declared type of the bean.
+   * @param name the method's name.
+   * @param destroy if the method is a destroy method.
+   * @param required register the method on the bean's type even if the type does not declare it.
+   * @return true if the method was registered.
+   */
+  private boolean addBeanMethod(Map<String, Map<String, JsonObject>> methods, TypeMirror beanType, String name,
+      boolean destroy, boolean required) {
+    if (beanType.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement type = (TypeElement) ((DeclaredType) beanType).asElement();
+    Optional<ExecutableElement> method = ElementFilter.methodsIn(elements.getAllMembers(type)).stream()
+        .filter(m -> m.getSimpleName().contentEquals(name) && m.getModifiers().contains(Modifier.PUBLIC))
+        .filter(m -> m.getParameters().isEmpty() || (destroy && m.getParameters().size() == 1
+            && m.getParameters().get(0).asType().getKind() == TypeKind.BOOLEAN))
+        .min((left, right) -> left.getParameters().size() - right.getParameters().size());
+    if (method.isPresent()) {
+      addMethod(methods, binaryName(method.get().getEnclosingElement().asType()), method.get());
+      return true;
+    }
+    if (required) {
+      addMethod(methods, binaryName(beanType), name, new JsonArray());
+      return true;
+    }
+    return false;
+  }
+  
+  private void addMethod(Map<String, Map<String, JsonObject>> methods, String owner, ExecutableElement executable) {
+    JsonArray parameterTypes = new JsonArray();
+    for (VariableElement parameter : executable.getParameters()) {
+      parameterTypes.add(binaryName(parameter.asType()));
+    }
+    addMethod(methods, owner, executable.getSimpleName().toString(), parameterTypes);
+  }
+  
+  private static void addMethod(Map<String, Map<String, JsonObject>> methods, String owner, String name,
+      JsonArray parameterTypes) {
+    JsonObject method = new JsonObject();
+    method.addProperty("name", name);
+    method.add("parameterTypes", parameterTypes);
+    methods.computeIfAbsent(owner, type -> new LinkedHashMap<>()).putIfAbsent(name + parameterTypes, method);
+  }
+  /**
+   * The name of an erased type as {@link Class#forName(String)} or native-image configuration expects it, with
+   * arrays written as "component[]".
+   * 
+   * @param type a type.
+   * @return the name of the type.
+   */
+  private String binaryName(TypeMirror type) {
+    TypeMirror erased = types.erasure(type);
+    if (erased.getKind() == TypeKind.ARRAY) {
+      return binaryName(((ArrayType) erased).getComponentType()) + "[]";
+    }
+    if (erased.getKind() == TypeKind.DECLARED) {
+      return elements.getBinaryName((TypeElement) ((DeclaredType) erased).asElement()).toString();
+    }
+    return erased.toString();
+  }
+}
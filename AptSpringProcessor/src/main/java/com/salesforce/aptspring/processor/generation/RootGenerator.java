@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.model.storage.apt.ClassFileGsonDefinitionModelStore;
+import com.salesforce.apt.graph.processing.BeanGraph;
+import com.salesforce.aptspring.processor.generation.BeanInstantiation.Argument;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generates code, or resources, for verified definitions, by default only @Verified(root=true) ones, from the graph of
+ * their beans.
+ * Generated types live beside the root, named after it.
+ */
+public abstract class RootGenerator {
+
+  protected final Filer filer;
+  
+  protected final Elements elements;
+  
+  protected final Types types;
+  
+  protected RootGenerator(Filer filer, Elements elements, Types types) {
+    this.filer = filer;
+    this.elements = elements;
+    this.types = types;
+  }
+  
+  /**
+   * Whether to generate for a verified definition, by default only for roots.
+   * 
+   * @param definition a verified definition compiled in this build.
+   * @return true to generate for the definition.
+   */
+  public boolean generatesFor(DefinitionModel definition) {
+    return definition.isRootNode();
+  }
+  
+  /**
+   * Generate for a root definition.
+   * 
+   * @param graph the beans of the root definition.
+   * @param root the type annotated with @Verified(root=true).
+   * @throws IOException if the output could not be written.
+   * @throws IllegalStateException if the beans of the graph can not be constructed from generated code.
+   */
+  public abstract void generate(BeanGraph graph, TypeElement root) throws IOException;
+  
+  /**
+   * Resolve how each bean of the graph is constructed, in the order of the graph.
+   * 
+   * @param graph the beans of the root definition.
+   * @param packageName the package of the code constructing the beans.
+   * @return the instantiation of each bean.
+   * @throws IllegalStateException if a bean can not be found or constructed from the package.
+   */
+  protected List<BeanInstantiation> resolve(BeanGraph graph, String packageName) {
+    List<BeanInstantiation> instantiations = new ArrayList<>(graph.getInstances().size());
+    for (InstanceModel instance : graph.getInstances()) {
+      BeanInstantiation instantiation = BeanInstantiation.resolve(instance, elements, types);
+      if (!instantiation.isAccessibleFrom(packageName)) {
+        throw new IllegalStateException(instance.getElementLocation() + " of bean " + instance.getIdentity()
+            + " is not accessible from package " + packageName);
+      }
+      instantiations.add(instantiation);
+    }
+    return instantiations;
+  }
+  
+  /**
+   * The type each expected bean must have, the most specific type any bean expecting it declares.
+   * 
+   * @param graph the beans of the root definition.
+   * @param instantiations of the beans of the graph.
+   * @return the type of each expected bean, by name.
+   * @throws IllegalStateException if no single type satisfies every bean expecting the bean.
+   */
+  protected Map<String, TypeMirror> expectedTypes(BeanGraph graph, List<BeanInstantiation> instantiations) {
+    Map<String, List<TypeMirror>> expected = new TreeMap<>();
+    for (BeanInstantiation instantiation : instantiations) {
+      for (Argument argument : instantiation.getArguments()) {
+        if (argument.getBeanName() != null && graph.getExpected().containsKey(argument.getBeanName())) {
+          expected.computeIfAbsent(argument.getBeanName(), name -> new ArrayList<>()).add(argument.getTypeMirror());
+        }
+      }
+    }
+    Map<String, TypeMirror> types = new LinkedHashMap<>();
+    for (Map.Entry<String, List<TypeMirror>> entry : expected.entrySet()) {
+      TypeMirror specific = entry.getValue().stream()
+          .filter(candidate -> entry.getValue().stream().allMatch(other -> this.types.isAssignable(candidate, other)))
+          .findFirst()
+          .orElseThrow(() -> new IllegalStateException("No single type satisfies all uses of expected bean "
+              + entry.getKey() + ": " + entry.getValue()));
+      types.put(entry.getKey(), specific);
+    }
+    return types;
+  }
+  
+  /**
+   * Declare a local instance of each definition owning a @Bean method of the graph.
+   * 
+   * @param method where the instances are declared.
+   * @param instantiations of the beans of the graph.
+   * @param names allocates the names of the instances.
+   * @return the name of the instance of each definition.
+   */
+  protected static Map<ClassName, String> declareDefinitions(MethodSpec.Builder method,
+      List<BeanInstantiation> instantiations, NameAllocator names) {
+    Map<ClassName, String> definitions = new LinkedHashMap<>();
+    for (BeanInstantiation instantiation : instantiations) {
+      if (!instantiation.isConstructor() && !definitions.containsKey(instantiation.getOwnerName())) {
+        String definition = names.newName(lowerCamel(instantiation.getOwnerName().simpleName()));
+        definitions.put(instantiation.getOwnerName(), definition);
+        method.addStatement("final $T $N = new $T()", instantiation.getOwnerName(), definition,
+            instantiation.getOwnerName());
+      }
+    }
+    return definitions;
+  }
+  
+  /**
+   * A java identifier from a bean or type name, "my-bean" becomes "myBean".
+   * 
+   * @param name of the bean or type.
+   * @return the name in lower camel case.
+   */
+  protected static String lowerCamel(String name) {
+    StringBuilder builder = new StringBuilder(name.length());
+    boolean upper = false;
+    for (char c : name.toCharArray()) {
+      if (Character.isJavaIdentifierPart(c) && c != '$') {
+        builder.append(builder.length() == 0 ? Character.toLowerCase(c) : upper ? Character.toUpperCase(c) : c);
+        upper = false;
+      } else {
+        upper = builder.length() > 0;
+      }
+    }
+    return builder.length() == 0 ? "bean" : builder.toString();
+  }
+  
+  /**
+   * A java identifier from a bean name, "my-bean" becomes "MyBean".
+   * 
+   * @param name of the bean.
+   * @return the name in upper camel case.
+   */
+  protected static String upperCamel(String name) {
+    String lower = lowerCamel(name);
+    return Character.toUpperCase(lower.charAt(0)) + lower.substring(1);
+  }
+  
+  /**
+   * The name of a type generated for a root, the root's name with a suffix.
+   * 
+   * @param root the type annotated with @Verified(root=true).
+   * @param suffix distinguishing what was generated.
+   * @return the name of the generated type.
+   */
+  protected static ClassName generatedName(TypeElement root, String suffix) {
+    ClassName rootName = ClassName.get(root);
+    return ClassName.get(rootName.packageName(), String.join("_", rootName.simpleNames()) + "_" + suffix);
+  }
+  
+  /**
+   * Marks a generated type as such.
+   * 
+   * @return the @Generated annotation.
+   */
+  protected static AnnotationSpec generatedAnnotation() {
+    return AnnotationSpec.builder(ClassFileGsonDefinitionModelStore.getGeneratedAnnotationClass())
+        .addMember("value", "$S", "SpringApt").build();
+  }
+  
+  /**
+   * Write a generated type, originating from the root.
+   * 
+   * @param packageName of the type.
+   * @param type the generated type.
+   * @param root the type annotated with @Verified(root=true).
+   * @throws IOException if the type could not be written.
+   */
+  protected void write(String packageName, TypeSpec type, Element root) throws IOException {
+    JavaFile javaFile = JavaFile.builder(packageName, type).skipJavaLangImports(true).build();
+    JavaFileObject output = filer.createSourceFile(packageName.isEmpty() ? type.name : packageName + "." + type.name,
+        root);
+    try (Writer writer = output.openWriter()) {
+      javaFile.writeTo(writer);
+    }
+  }
+  
+  /**
+   * Write a generated resource beside the root, originating from it.
+   * 
+   * @param packageName of the resource.
+   * @param relativeName of the resource in its package.
+   * @param content of the resource.
+   * @param root the type annotated with @Verified(root=true).
+   * @throws IOException if the resource could not be written.
+   */
+  protected void writeResource(String packageName, String relativeName, CharSequence content, Element root)
+      throws IOException {
+    FileObject output = filer.createResource(StandardLocation.CLASS_OUTPUT, packageName, relativeName, root);
+    try (Writer writer = output.openWriter()) {
+      writer.append(content);
+    }
+  }
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.generation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.salesforce.apt.graph.model.DefinitionModel;
+import com.salesforce.apt.graph.model.InstanceModel;
+import com.salesforce.apt.graph.processing.BeanGraph;
+import com.salesforce.aptspring.processor.generation.BeanInstantiation.Argument;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+/**
+ * Generates, beside each root, a spring free "Root_Wiring" that constructs every bean of the root's graph with
+ * direct calls to @Bean methods and constructors, each after the beans it depends on, and exposes them through typed
+ * getters.  Expected beans are parameters of the constructors, as is a function resolving @Value expressions when
+ * the graph has any, its results must already be of the parameter's type as nothing is converted.
+ * <p>
+ * Beans are held by their index in the graph's topological order.  Constructing a bean, and listing the beans it
+ * depends on, dispatch on that index in methods of at most {@value #CHUNK} cases, so graphs of thousands of beans
+ * stay within the size limits of a method.  A second constructor takes an executor and starts each bean as soon as
+ * the beans it depends on are built.  A lazy wiring constructs a bean, and the beans it depends on, when it is first
+ * requested, each bean behind a lock of its own.  A slice constructs only the beans it names and their transitive
+ * dependencies, the closure of each bean is computed here and stored as a string of a char per index.  A bean that
+ * fails, or whose dependencies failed, fails with the path of beans leading to the original failure.
+ * </p>
+ */
+public class WiringGenerator extends RootGenerator {
+
+  public static final String SUFFIX = "Wiring";
+  
+  static final int CHUNK = 256;
+  
+  private static final String VALUES = "values";
+  
+  private static final String BEANS = "beans";
+  
+  private static final String NAMES = "NAMES";
+  
+  private static final String NULL = "NULL";
+  
+  private static final String LOCKS = "locks";
+  
+  private static final String SLICE = "names";
+  
+  /**
+   * Parameters and locals of the generated methods, which fields of expected beans and definitions must not shadow,
+   * as a field is also a parameter of the constructors.
+   */
+  private static final List<String> LOCALS = Arrays.asList("lazy", "executor", "index", "i", "bean", "stored",
+      "slice", "closure", "wiring", "futures", "future", "required", "dependency", "dependencies", "ignored",
+      "failure", "path", "cause", "ex");
+  
+  private static final ClassName FUTURE = ClassName.get(CompletableFuture.class);
+  
+  private static final TypeName FUTURES = ArrayTypeName.of(ParameterizedTypeName.get(FUTURE,
+      WildcardTypeName.subtypeOf(Object.class)));
+  
+  private static final TypeName INDEXES = ArrayTypeName.of(TypeName.INT);
+  
+  private final boolean everyDefinition;
+  
+  public WiringGenerator(Filer filer, Elements elements, Types types) {
+    this(filer, elements, types, false);
+  }
+  
+  /**
+   * Construct a generator of wirings, for roots or for every definition.
+   * 
+   * @param filer writes the generated sources.
+   * @param elements finds the types owning beans.
+   * @param types compares the types of beans.
+   * @param everyDefinition generate for every verified definition, so each may be sliced in tests, not only roots.
+   */
+  public WiringGenerator(Filer filer, Elements elements, Types types, boolean everyDefinition) {
+    super(filer, elements, types);
+    this.everyDefinition = everyDefinition;
+  }
+  
+  @Override
+  public boolean generatesFor(DefinitionModel definition) {
+    return everyDefinition || super.generatesFor(definition);
+  }
+
+  @Override
+  public void generate(BeanGraph graph, TypeElement root) throws IOException {
+    ClassName name = generatedName(root, SUFFIX);
+    ClassName failure = name.nestedClass("CreationException");
+    List<BeanInstantiation> instantiations = resolve(graph, name.packageName());
+    Map<InstanceModel, Integer> indexes = new IdentityHashMap<>();
+    for (BeanInstantiation instantiation : instantiations) {
+      indexes.put(instantiation.getInstance(), indexes.size());
+    }
+    
+    TypeSpec.Builder wiring = TypeSpec.classBuilder(name)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addAnnotation(generatedAnnotation())
+        .addJavadoc("Constructs the beans of {@link $T} without spring.\n", ClassName.get(root))
+        .addType(creationException(failure))
+        .addField(FieldSpec.builder(ParameterizedTypeName.get(List.class, String.class), NAMES,
+            Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .addJavadoc("Names of the beans, in the order they are constructed.\n")
+            .initializer("$T.unmodifiableList($T.asList($L))", Collections.class, Arrays.class,
+                instantiations.stream().map(i -> CodeBlock.of("$S", i.getInstance().getIdentity()))
+                .collect(CodeBlock.joining(", ")))
+            .build())
+        .addField(FieldSpec.builder(Object.class, NULL, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer("new $T()", Object.class).build())
+        .addField(FieldSpec.builder(ParameterizedTypeName.get(AtomicReferenceArray.class, Object.class), BEANS,
+            Modifier.PRIVATE, Modifier.FINAL)
+            .initializer("new $T<>($L)", AtomicReferenceArray.class, instantiations.size()).build())
+        .addField(FieldSpec.builder(Object[].class, LOCKS, Modifier.PRIVATE, Modifier.FINAL).build());
+    
+    NameAllocator fields = new NameAllocator();
+    fields.newName(NAMES);
+    fields.newName(BEANS);
+    fields.newName(NULL);
+    fields.newName(LOCKS);
+    fields.newName(SLICE);
+    LOCALS.forEach(fields::newName);
+    List<ParameterSpec> parameters = new ArrayList<>();
+    CodeBlock.Builder parameterDocs = CodeBlock.builder();
+    Set<String> expressions = new TreeSet<>();
+    instantiations.forEach(i -> i.getArguments().stream().filter(a -> a.getExpression() != null)
+        .forEach(a -> expressions.add(a.getExpression())));
+    if (!expressions.isEmpty()) {
+      fields.newName(VALUES);
+      TypeName function = ParameterizedTypeName.get(ClassName.get(Function.class), ClassName.get(String.class),
+          WildcardTypeName.subtypeOf(Object.class));
+      wiring.addField(function, VALUES, Modifier.PRIVATE, Modifier.FINAL);
+      parameters.add(ParameterSpec.builder(function, VALUES).build());
+      parameterDocs.add("@param $N the value of each @Value expression: $L.\n", VALUES, String.join(", ", expressions));
+    }
+    Map<String, String> expected = new LinkedHashMap<>();
+    for (Entry<String, TypeMirror> entry : expectedTypes(graph, instantiations).entrySet()) {
+      String field = fields.newName(lowerCamel(entry.getKey()));
+      expected.put(entry.getKey(), field);
+      wiring.addField(TypeName.get(entry.getValue()), field, Modifier.PRIVATE, Modifier.FINAL);
+      parameters.add(ParameterSpec.builder(TypeName.get(entry.getValue()), field).build());
+      parameterDocs.add("@param $N the expected bean $S.\n", field, entry.getKey());
+    }
+    Map<ClassName, String> definitions = new LinkedHashMap<>();
+    for (BeanInstantiation instantiation : instantiations) {
+      if (!instantiation.isConstructor() && !definitions.containsKey(instantiation.getOwnerName())) {
+        String field = fields.newName(lowerCamel(instantiation.getOwnerName().simpleName()));
+        definitions.put(instantiation.getOwnerName(), field);
+        wiring.addField(FieldSpec.builder(instantiation.getOwnerName(), field, Modifier.PRIVATE, Modifier.FINAL)
+            .initializer("new $T()", instantiation.getOwnerName()).build());
+      }
+    }
+    
+    CodeBlock arguments = parameters.stream().map(p -> CodeBlock.of(", $N", p)).collect(CodeBlock.joining(""));
+    wiring.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PUBLIC)
+        .addJavadoc("Construct every bean of the graph, in order, on this thread.\n\n")
+        .addJavadoc(parameterDocs.build())
+        .addJavadoc("@throws $T if a bean could not be constructed.\n", failure)
+        .addParameters(parameters)
+        .addStatement("this(null$L)", arguments)
+        .build());
+    wiring.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PUBLIC)
+        .addJavadoc("Construct every bean of the graph on an executor, a {@link $T} or an executor of virtual threads,\n"
+            + "each bean as soon as the beans it depends on are constructed.\n\n", ClassName.get(
+                "java.util.concurrent", "ForkJoinPool"))
+        .addJavadoc("@param executor runs the construction of each bean, null to construct them on this thread.\n")
+        .addJavadoc(parameterDocs.build())
+        .addJavadoc("@throws $T if a bean could not be constructed, the latest bean of the graph to fail.\n",
+            failure)
+        .addParameter(Executor.class, "executor")
+        .addParameters(parameters)
+        .addStatement("this(false$L)", arguments)
+        .beginControlFlow("if (executor == null)")
+        .beginControlFlow("for (int index = 0; index < $N.length(); index++)", BEANS)
+        .addStatement("store(index, construct(index))")
+        .endControlFlow()
+        .nextControlFlow("else")
+        .addStatement("$T futures = new $T<?>[$N.length()]", FUTURES, FUTURE, BEANS)
+        .beginControlFlow("for (int index = 0; index < futures.length; index++)")
+        .addStatement("futures[index] = schedule(index, futures, executor)")
+        .endControlFlow()
+        .addStatement("$T.allOf(futures).handle((ignored, failure) -> null).join()", FUTURE)
+        .beginControlFlow("for (int index = futures.length - 1; index >= 0; index--)")
+        .beginControlFlow("if (futures[index].isCompletedExceptionally())")
+        .addStatement("throw failure(futures[index])")
+        .endControlFlow()
+        .endControlFlow()
+        .endControlFlow()
+        .build());
+    wiring.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PRIVATE)
+        .addParameter(boolean.class, "lazy")
+        .addParameters(parameters)
+        .addCode(parameters.stream().map(p -> CodeBlock.of("this.$N = $N;\n", p, p)).collect(CodeBlock.joining("")))
+        .beginControlFlow("if (lazy)")
+        .addStatement("$N = new $T[$N.length()]", LOCKS, Object.class, BEANS)
+        .beginControlFlow("for (int index = 0; index < $N.length; index++)", LOCKS)
+        .addStatement("$N[index] = new $T()", LOCKS, Object.class)
+        .endControlFlow()
+        .nextControlFlow("else")
+        .addStatement("$N = null", LOCKS)
+        .endControlFlow()
+        .build());
+    wiring.addMethod(MethodSpec.methodBuilder("lazy")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addJavadoc("Construct no bean until it is requested, then construct it with the beans it depends on, and only\n"
+            + "those.  Each bean is constructed once, concurrent requests for a bean wait for its construction.\n\n")
+        .addJavadoc(parameterDocs.build())
+        .addJavadoc("@return the wiring, whose getters throw $T if a bean could not be constructed.\n", failure)
+        .returns(name)
+        .addParameters(parameters)
+        .addStatement("return new $T(true$L)", name, arguments)
+        .build());
+    wiring.addMethod(MethodSpec.methodBuilder("slice")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addJavadoc("Construct only the named beans and the beans they depend on, in order, on this thread.  Expected\n"
+            + "beans may be stubs, or null when no bean of the slice depends on them.\n\n")
+        .addJavadoc("@param $N of the beans to construct, as listed in {@link #$N}.\n", SLICE, NAMES)
+        .addJavadoc(parameterDocs.build())
+        .addJavadoc("@return the wiring, whose getters throw $T for beans outside the slice.\n",
+            IllegalStateException.class)
+        .addJavadoc("@throws $T if a name is not a bean of the graph.\n", IllegalArgumentException.class)
+        .addJavadoc("@throws $T if a bean could not be constructed.\n", failure)
+        .returns(name)
+        .addParameter(ParameterizedTypeName.get(Collection.class, String.class), SLICE)
+        .addParameters(parameters)
+        .addStatement("$T slice = new $T($N.size())", BitSet.class, BitSet.class, NAMES)
+        .beginControlFlow("for ($T bean : $N)", String.class, SLICE)
+        .addStatement("int index = $N.indexOf(bean)", NAMES)
+        .beginControlFlow("if (index < 0)")
+        .addStatement("throw new $T($S + bean)", IllegalArgumentException.class, "No bean ")
+        .endControlFlow()
+        .addStatement("$T closure = closure(index)", String.class)
+        .beginControlFlow("for (int i = 0; i < closure.length(); i++)")
+        .addStatement("slice.set(closure.charAt(i))")
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("$T wiring = new $T(false$L)", name, name, arguments)
+        .beginControlFlow("for (int index = slice.nextSetBit(0); index >= 0; index = slice.nextSetBit(index + 1))")
+        .addStatement("wiring.store(index, wiring.construct(index))")
+        .endControlFlow()
+        .addStatement("return wiring")
+        .build());
+    
+    NameAllocator getters = new NameAllocator();
+    for (BeanInstantiation instantiation : instantiations) {
+      wiring.addMethod(getter(instantiation, indexes.get(instantiation.getInstance()), getters));
+    }
+    
+    List<CodeBlock> creations = new ArrayList<>();
+    List<CodeBlock> dependencies = new ArrayList<>();
+    List<CodeBlock> closures = new ArrayList<>();
+    for (BeanInstantiation instantiation : instantiations) {
+      List<CodeBlock> values = new ArrayList<>();
+      List<Integer> dependencyIndexes = new ArrayList<>();
+      for (Argument argument : instantiation.getArguments()) {
+        if (argument.getExpression() != null) {
+          values.add(CodeBlock.of("($T) this.$N.apply($S)", argument.getType().box(), VALUES,
+              argument.getExpression()));
+        } else if (expected.containsKey(argument.getBeanName())) {
+          values.add(CodeBlock.of("this.$N", expected.get(argument.getBeanName())));
+        } else {
+          int index = indexes.get(graph.getInstance(argument.getBeanName()));
+          dependencyIndexes.add(index);
+          values.add(CodeBlock.of("($T) bean($L)", argument.getType().box(), index));
+        }
+      }
+      creations.add(CodeBlock.of("return $L", instantiation.invoke(instantiation.isConstructor() ? null
+          : CodeBlock.of("this.$N", definitions.get(instantiation.getOwnerName())), values)));
+      dependencies.add(CodeBlock.of("return new int[] {$L}", dependencyIndexes.stream().map(String::valueOf)
+          .collect(Collectors.joining(", "))));
+      closures.add(CodeBlock.of("return $L", indexString(graph.getClosure(instantiation.getInstance()))));
+    }
+    addDispatch(wiring, MethodSpec.methodBuilder("create")
+        .addModifiers(Modifier.PRIVATE)
+        .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+        .addException(Exception.class)
+        .returns(Object.class), creations);
+    addDispatch(wiring, MethodSpec.methodBuilder("dependencies")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(INDEXES), dependencies);
+    addDispatch(wiring, MethodSpec.methodBuilder("closure")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addJavadoc("The indexes of a bean and of every bean it transitively depends on, a char per index.\n")
+        .returns(String.class), closures);
+    wiring.addMethod(MethodSpec.methodBuilder("bean")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(Object.class)
+        .addParameter(int.class, "index")
+        .addStatement("$T bean = $N.get(index)", Object.class, BEANS)
+        .beginControlFlow("if (bean == null)")
+        .beginControlFlow("if ($N == null)", LOCKS)
+        .addStatement("throw new $T($S + $N.get(index) + $S)", IllegalStateException.class, "Bean ", NAMES,
+            " is not constructed")
+        .endControlFlow()
+        .addComment("locks are taken from a bean to the beans it depends on, which are acyclic, so can not deadlock")
+        .beginControlFlow("synchronized ($N[index])", LOCKS)
+        .addStatement("bean = $N.get(index)", BEANS)
+        .beginControlFlow("if (bean == null)")
+        .addStatement("bean = store(index, construct(index))")
+        .endControlFlow()
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("return bean == $N ? null : bean", NULL)
+        .build());
+    wiring.addMethod(MethodSpec.methodBuilder("store")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(Object.class)
+        .addParameter(int.class, "index")
+        .addParameter(Object.class, "bean")
+        .addStatement("$T stored = bean == null ? $N : bean", Object.class, NULL)
+        .addStatement("$N.set(index, stored)", BEANS)
+        .addStatement("return stored")
+        .build());
+    wiring.addMethod(construct(failure));
+    wiring.addMethod(schedule(failure));
+    wiring.addMethod(failure(failure));
+    write(name.packageName(), wiring.build(), root);
+  }
+  
+  /**
+   * A string literal of a char per set bit, far more compact in a class file than an int array of the same indexes.
+   */
+  private static String indexString(BitSet indexes) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (int index = indexes.nextSetBit(0); index >= 0; index = indexes.nextSetBit(index + 1)) {
+      if (index > Character.MAX_VALUE) {
+        throw new IllegalStateException("More than " + (Character.MAX_VALUE + 1) + " beans can not be wired");
+      }
+      //unicode escapes are translated before the source is parsed, these would end or escape the literal.
+      switch (index) {
+        case '\n': literal.append("\\n");
+          break;
+        case '\r': literal.append("\\r");
+          break;
+        case '"': literal.append("\\\"");
+          break;
+        case '\\': literal.append("\\\\");
+          break;
+        default: literal.append(String.format("\\u%04x", index));
+      }
+    }
+    return literal.append('"').toString();
+  }
+  
+  private static MethodSpec getter(BeanInstantiation instantiation, int index, NameAllocator getters) {
+    InstanceModel instance = instantiation.getInstance();
+    MethodSpec.Builder getter = MethodSpec.methodBuilder(getters.newName("get" + upperCamel(instance.getIdentity())))
+        .addModifiers(Modifier.PUBLIC)
+        .returns(instantiation.getType())
+        .addStatement("return ($T) bean($L)", instantiation.getType(), index);
+    if (!instantiation.getType().equals(instantiation.getRawType())) {
+      getter.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked")
+          .build());
+    }
+    if (instance.getAliases().isEmpty()) {
+      getter.addJavadoc("@return the bean $S.\n", instance.getIdentity());
+    } else {
+      getter.addJavadoc("@return the bean $S, also named $L.\n", instance.getIdentity(),
+          String.join(", ", instance.getAliases()));
+    }
+    return getter.build();
+  }
+  
+  /**
+   * A method taking an index, returning the statement of that index, split in to methods of {@link #CHUNK} cases.
+   */
+  private static void addDispatch(TypeSpec.Builder type, MethodSpec.Builder template, List<CodeBlock> cases) {
+    MethodSpec prototype = template.build();
+    MethodSpec.Builder dispatch = prototype.toBuilder().addParameter(int.class, "index");
+    if (cases.size() <= CHUNK) {
+      type.addMethod(addCases(dispatch, cases, 0).build());
+      return;
+    }
+    dispatch.beginControlFlow("switch (index / $L)", CHUNK);
+    for (int chunk = 0; chunk * CHUNK < cases.size(); chunk++) {
+      String chunkName = prototype.name + chunk;
+      dispatch.addStatement("case $L: return $N(index)", chunk, chunkName);
+      //setName resets the return type.
+      type.addMethod(addCases(prototype.toBuilder().setName(chunkName).returns(prototype.returnType)
+          .addParameter(int.class, "index"),
+          cases.subList(chunk * CHUNK, Math.min(cases.size(), (chunk + 1) * CHUNK)), chunk * CHUNK).build());
+    }
+    dispatch.addStatement("default: throw new $T(\"No bean \" + index)", IndexOutOfBoundsException.class)
+        .endControlFlow();
+    type.addMethod(dispatch.build());
+  }
+  
+  private static MethodSpec.Builder addCases(MethodSpec.Builder method, List<CodeBlock> cases, int offset) {
+    method.beginControlFlow("switch (index)");
+    for (int i = 0; i < cases.size(); i++) {
+      method.addStatement("case $L: $L", offset + i, cases.get(i));
+    }
+    return method.addStatement("default: throw new $T(\"No bean \" + index)", IndexOutOfBoundsException.class)
+        .endControlFlow();
+  }
+  
+  private static TypeSpec creationException(ClassName failure) {
+    TypeName path = ParameterizedTypeName.get(List.class, String.class);
+    return TypeSpec.classBuilder(failure)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .superclass(RuntimeException.class)
+        .addJavadoc("A bean could not be constructed, as it or one of the beans it depends on failed.\n")
+        .addField(FieldSpec.builder(long.class, "serialVersionUID", Modifier.PRIVATE, Modifier.STATIC,
+            Modifier.FINAL).initializer("1L").build())
+        .addField(path, "path", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(path, "path")
+            .addParameter(Throwable.class, "cause")
+            .addStatement("super($S + $T.join($S, path), cause)", "Could not create bean ", String.class, " -> ")
+            .addStatement("this.path = $T.unmodifiableList(path)", Collections.class)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("getPath")
+            .addJavadoc("@return the names of the beans from the one constructed to the one that failed.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(path)
+            .addStatement("return path")
+            .build())
+        .build();
+  }
+  
+  private static MethodSpec construct(ClassName failure) {
+    return MethodSpec.methodBuilder("construct")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(Object.class)
+        .addParameter(int.class, "index")
+        .beginControlFlow("try")
+        .addStatement("return create(index)")
+        .nextControlFlow("catch ($T ex)", failure)
+        .addStatement("$T path = new $T<>()", ParameterizedTypeName.get(List.class, String.class), ArrayList.class)
+        .addStatement("path.add($N.get(index))", NAMES)
+        .addStatement("path.addAll(ex.getPath())")
+        .addStatement("throw new $T(path, ex.getCause())", failure)
+        .nextControlFlow("catch ($T ex)", Exception.class)
+        .addStatement("throw new $T($T.singletonList($N.get(index)), ex)", failure, Collections.class, NAMES)
+        .endControlFlow()
+        .build();
+  }
+  
+  private static MethodSpec schedule(ClassName failure) {
+    return MethodSpec.methodBuilder("schedule")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(ParameterizedTypeName.get(FUTURE, ClassName.get(Object.class)))
+        .addParameter(int.class, "index")
+        .addParameter(FUTURES, "futures")
+        .addParameter(Executor.class, "executor")
+        .addStatement("$T dependencies = dependencies(index)", INDEXES)
+        .addStatement("$T required = new $T<?>[dependencies.length]", FUTURES, FUTURE)
+        .beginControlFlow("for (int i = 0; i < dependencies.length; i++)")
+        .addStatement("required[i] = futures[dependencies[i]]")
+        .endControlFlow()
+        .addStatement("$T future = new $T<>()", ParameterizedTypeName.get(FUTURE, ClassName.get(Object.class)),
+            FUTURE)
+        .beginControlFlow("$T.allOf(required).whenComplete((ignored, failure) ->", FUTURE)
+        .beginControlFlow("for ($T dependency : required)", ParameterizedTypeName.get(FUTURE,
+            WildcardTypeName.subtypeOf(Object.class)))
+        .beginControlFlow("if (dependency.isCompletedExceptionally())")
+        .addStatement("$T path = new $T<>()", ParameterizedTypeName.get(List.class, String.class), ArrayList.class)
+        .addStatement("path.add($N.get(index))", NAMES)
+        .addStatement("$T cause = failure(dependency)", failure)
+        .addStatement("path.addAll(cause.getPath())")
+        .addStatement("future.completeExceptionally(new $T(path, cause.getCause()))", failure)
+        .addStatement("return")
+        .endControlFlow()
+        .endControlFlow()
+        .beginControlFlow("try")
+        .beginControlFlow("executor.execute(() ->")
+        .beginControlFlow("try")
+        .addStatement("future.complete(store(index, construct(index)))")
+        .nextControlFlow("catch ($T ex)", Throwable.class)
+        .addStatement("future.completeExceptionally(ex)")
+        .endControlFlow()
+        .endControlFlow(")")
+        .nextControlFlow("catch ($T ex)", RuntimeException.class)
+        .addStatement("future.completeExceptionally(new $T($T.singletonList($N.get(index)), ex))", failure,
+            Collections.class, NAMES)
+        .endControlFlow()
+        .endControlFlow(")")
+        .addStatement("return future")
+        .build();
+  }
+  
+  private static MethodSpec failure(ClassName failure) {
+    return MethodSpec.methodBuilder("failure")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(failure)
+        .addParameter(ParameterizedTypeName.get(FUTURE, WildcardTypeName.subtypeOf(Object.class)), "future")
+        .addStatement("$T cause = future.handle((ignored, failure) -> failure).join()", Throwable.class)
+        .beginControlFlow("if (cause instanceof $T)", failure)
+        .addStatement("return ($T) cause", failure)
+        .endControlFlow()
+        .addStatement("return new $T($T.emptyList(), cause)", failure, Collections.class)
+        .build();
+  }
+}
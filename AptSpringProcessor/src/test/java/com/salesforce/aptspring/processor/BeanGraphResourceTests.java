@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.io.IOException;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class BeanGraphResourceTests {
+
+  private JavaFileObject rootConfig = JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true, expectedBeans = \"outside\")",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = {\"name\", \"alias\"})",
+      "    public String name() {",
+      "      return \"name\";",
+      "    }",
+      "",
+      "    @Bean(name = \"message\")",
+      "    public String message(@Qualifier(\"name\") String name, @Qualifier(\"outside\") String outside) {",
+      "      return name + outside;",
+      "    }",
+      "",
+      "}");
+  
+  @Test
+  public void testGraphListsBeansInConstructionOrder() throws IOException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.BEAN_GRAPH_OPTION + "=true")
+        .compile(rootConfig);
+    assertThat(compilation).succeeded();
+    JavaFileObject graph = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "test",
+        "RootConfig_BeanGraph.tsv").get();
+    assertWithMessage("graph").that(graph.getCharContent(true).toString())
+        .endsWith("name\nmessage\tname\toutside\n");
+  }
+  
+  @Test
+  public void testNoGraphWithoutOption() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration()).compile(rootConfig);
+    assertThat(compilation).succeeded();
+    assertWithMessage("graph").that(compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "test",
+        "RootConfig_BeanGraph.tsv").isPresent()).isFalse();
+  }
+}
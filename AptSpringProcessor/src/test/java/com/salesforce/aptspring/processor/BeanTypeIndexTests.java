@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.io.IOException;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class BeanTypeIndexTests {
+
+  private JavaFileObject rootConfig = JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import java.util.ArrayList;",
+      "import java.util.List;",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true)",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = \"name\")",
+      "    public String name() {",
+      "      return \"name\";",
+      "    }",
+      "",
+      "    @Bean(name = \"names\")",
+      "    public ArrayList<String> names() {",
+      "      return new ArrayList<>();",
+      "    }",
+      "",
+      "    @Bean(name = \"count\")",
+      "    public Integer count() {",
+      "      return 1;",
+      "    }",
+      "",
+      "}");
+  
+  @Test
+  public void testIndexListsBeansByEverySupertype() throws IOException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.BEAN_TYPES_OPTION + "=true")
+        .compile(rootConfig);
+    assertThat(compilation).succeeded();
+    String index = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "test", "RootConfig_BeanTypes.tsv")
+        .get().getCharContent(true).toString();
+    assertWithMessage("index").that(index).contains("\njava.lang.CharSequence\tname\n");
+    assertWithMessage("index").that(index).contains("\njava.util.List\tnames\n");
+    assertWithMessage("index").that(index).contains("\njava.lang.Integer\tcount\n");
+    assertWithMessage("index").that(index).contains("\njava.io.Serializable\tcount\tname\tnames\n");
+    assertWithMessage("index").that(index).contains("\njava.lang.Object\tcount\tname\tnames\n");
+  }
+  
+  @Test
+  public void testFactoryBeansAreIndexedByProduct() throws IOException {
+    JavaFileObject factory = JavaFileObjects.forSourceLines(
+        "test.MessageFactory",
+        "package test;",
+        "",
+        "import org.springframework.beans.factory.FactoryBean;",
+        "",
+        "  public class MessageFactory implements FactoryBean<StringBuilder> {",
+        "",
+        "    public StringBuilder getObject() { return new StringBuilder(); }",
+        "",
+        "    public Class<?> getObjectType() { return StringBuilder.class; }",
+        "",
+        "}");
+    JavaFileObject factoryConfig = JavaFileObjects.forSourceLines(
+        "test.RootConfig",
+        "package test;",
+        "",
+        "import org.springframework.context.annotation.Bean;",
+        "",
+        "  @com.salesforce.aptspring.Verified(root = true)",
+        "  public class RootConfig {",
+        "",
+        "    @Bean(name = \"message\")",
+        "    public MessageFactory message() {",
+        "      return new MessageFactory();",
+        "    }",
+        "",
+        "}");
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.BEAN_TYPES_OPTION + "=true")
+        .compile(factory, factoryConfig);
+    assertThat(compilation).succeeded();
+    String index = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "test", "RootConfig_BeanTypes.tsv")
+        .get().getCharContent(true).toString();
+    assertWithMessage("index").that(index).contains("\njava.lang.StringBuilder\tmessage\n");
+    assertWithMessage("index").that(index).contains("\njava.lang.CharSequence\tmessage\n");
+    assertWithMessage("index").that(index).contains("\norg.springframework.beans.factory.FactoryBean\t&message\n");
+    assertWithMessage("index").that(index).contains("\ntest.MessageFactory\t&message\n");
+    assertWithMessage("index").that(index).contains("\njava.lang.Object\t&message\tmessage\n");
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class BundleTests {
+
+  private static final String BUNDLE_OPTION = "-A" + VerifiedSpringConfiguration.BUNDLE_OPTION + "=package";
+  
+  private JavaFileObject otherConfig = JavaFileObjects.forSourceLines(
+      "other.OtherConfig",
+      "package other;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  public class OtherConfig {",
+      "",
+      "    @Bean(name = \"value2\")",
+      "    public String value2() { return \"\";}",
+      "",
+      "}");
+  
+  private JavaFileObject otherConfigCompiled = JavaFileObjects.forSourceLines(
+      "other.OtherConfig",
+      "package other;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "  public class OtherConfig {",
+      "",
+      "    @Bean(name = \"value2\")",
+      "    public String value2() { return \"\";}",
+      "",
+      "}");
+
+  private JavaFileObject otherConfig2 = JavaFileObjects.forSourceLines(
+      "other.OtherConfig2",
+      "package other;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  public class OtherConfig2 {",
+      "",
+      "    @Bean(name = \"value3\")",
+      "    public String value3() { return \"\";}",
+      "",
+      "}");
+  
+  private JavaFileObject testClass = JavaFileObjects.forSourceLines(
+      "test.TestClass1",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Import(other.OtherConfig.class)",
+      "  public class TestClass1 {",
+      "",
+      "    @Bean(name = \"value1\")",
+      "    public String value1(@Qualifier(\"value2\") String x) { return \"\";}",
+      "",
+      "}");
+  
+  @Test
+  public void testModelsOfAPackageAreBundled() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(BUNDLE_OPTION)
+        .compile(otherConfig, otherConfig2);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("other.package_aptSpring")
+        .contentsAsUtf8String().contains("__TOC = \"other.OtherConfig,other.OtherConfig2\"");
+    assertThat(compilation).generatedSourceFile("other.package_aptSpring")
+        .contentsAsUtf8String().contains("__DATA_OtherConfig2");
+    assertWithMessage("per class model").that(compilation.generatedSourceFile("other.OtherConfig_aptSpring").isPresent())
+        .isFalse();
+  }
+  
+  @Test
+  public void testDependenciesAreReadFromBundles() {
+    Compilation bundled = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(BUNDLE_OPTION)
+        .compile(otherConfig);
+    assertThat(bundled).succeeded();
+    
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .compile(bundled.generatedSourceFile("other.package_aptSpring").get(), otherConfigCompiled, testClass);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.TestClass1_aptSpring")
+        .contentsAsUtf8String().contains("other.OtherConfig");
+  }
+  
+  @Test
+  public void testLargeModelsAreSplitAcrossConstants() {
+    Compilation bundled = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(BUNDLE_OPTION)
+        .compile(largeConfig("@com.salesforce.aptspring.Verified"));
+    assertThat(bundled).succeeded();
+    assertThat(bundled).generatedSourceFile("other.package_aptSpring")
+        .contentsAsUtf8String().contains("__DATA_LargeConfig$1 = ");
+    
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .compile(bundled.generatedSourceFile("other.package_aptSpring").get(), largeConfig(""),
+            JavaFileObjects.forSourceLines(
+                "test.TestClass1",
+                "package test;",
+                "",
+                "import org.springframework.beans.factory.annotation.Qualifier;",
+                "import org.springframework.context.annotation.Bean;",
+                "import org.springframework.context.annotation.Import;",
+                "",
+                "  @com.salesforce.aptspring.Verified",
+                "  @Import(other.LargeConfig.class)",
+                "  public class TestClass1 {",
+                "",
+                "    @Bean(name = \"value1\")",
+                "    public String value1(@Qualifier(\"large199\") String x) { return \"\";}",
+                "",
+                "}"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.TestClass1_aptSpring")
+        .contentsAsUtf8String().contains("other.LargeConfig");
+  }
+  
+  private static JavaFileObject largeConfig(String annotation) {
+    List<String> lines = new ArrayList<>(Arrays.asList(
+        "package other;",
+        "",
+        "import org.springframework.context.annotation.Bean;",
+        "",
+        "  " + annotation,
+        "  public class LargeConfig {"));
+    for (int i = 0; i < 200; i++) {
+      lines.add("    @Bean(name = \"large" + i + "\")");
+      lines.add("    public String large" + i + "() { return \"\";}");
+    }
+    lines.add("}");
+    return JavaFileObjects.forSourceLines("other.LargeConfig", lines);
+  }
+  
+}
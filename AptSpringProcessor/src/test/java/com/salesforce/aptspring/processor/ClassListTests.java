@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class ClassListTests {
+
+  private JavaFileObject greeting = JavaFileObjects.forSourceLines(
+      "other.Greeting",
+      "package other;",
+      "",
+      "import java.util.List;",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.stereotype.Component;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Component(\"greeting\")",
+      "  public class Greeting {",
+      "",
+      "    public Greeting(@Qualifier(\"names\") List<String> names) {}",
+      "",
+      "}");
+
+  private JavaFileObject rootConfig = JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import java.util.ArrayList;",
+      "import java.util.Locale;",
+      "import org.springframework.beans.factory.annotation.Value;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "import other.Greeting;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true)",
+      "  @Import(Greeting.class)",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = \"names\")",
+      "    public ArrayList<String> names() {",
+      "      return new ArrayList<>();",
+      "    }",
+      "",
+      "    @Bean(name = \"locale\")",
+      "    public Locale locale(@Value(\"${locales}\") Locale[] locales) {",
+      "      return locales[0];",
+      "    }",
+      "",
+      "}");
+  
+  @Test
+  public void testClassesFollowTheirSupertypesInConstructionOrder() throws IOException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.CLASS_LIST_OPTION + "=true")
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    List<String> classes = Arrays.asList(compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "test",
+        "RootConfig_ClassList.classlist").get().getCharContent(true).toString().split("\n"));
+    assertWithMessage("classes").that(classes).containsNoDuplicates();
+    assertWithMessage("classes").that(classes).containsAtLeast("java/lang/Object", "test/RootConfig",
+        "java/util/List", "java/util/ArrayList", "other/Greeting").inOrder();
+    assertWithMessage("classes").that(classes).contains("java/util/Locale");
+    assertWithMessage("classes").that(classes).containsAtLeast("java/lang/Iterable", "java/util/Collection",
+        "java/util/List").inOrder();
+    assertWithMessage("classes").that(classes).doesNotContain("java/util/Locale[]");
+  }
+}
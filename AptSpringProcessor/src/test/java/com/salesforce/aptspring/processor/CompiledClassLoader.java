@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+
+/**
+ * Loads the classes of a compilation, so that generated code may be run by tests.
+ */
+public class CompiledClassLoader extends ClassLoader {
+
+  private final Compilation compilation;
+  
+  public CompiledClassLoader(Compilation compilation) {
+    super(CompiledClassLoader.class.getClassLoader());
+    this.compilation = compilation;
+  }
+  
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    Optional<JavaFileObject> compiled = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+        name.replace('.', '/') + ".class");
+    if (!compiled.isPresent()) {
+      throw new ClassNotFoundException(name);
+    }
+    try (InputStream stream = compiled.get().openInputStream()) {
+      byte[] bytes = ByteStreams.toByteArray(stream);
+      return defineClass(name, bytes, 0, bytes.length);
+    } catch (IOException ex) {
+      throw new ClassNotFoundException(name, ex);
+    }
+  }
+  
+  /**
+   * Create an instance of a compiled class with its default constructor.
+   * 
+   * @param name of the class.
+   * @param type the instance is expected to be.
+   * @return the instance.
+   * @throws ReflectiveOperationException if the class can not be loaded or instantiated.
+   */
+  public <T> T newInstance(String name, Class<T> type) throws ReflectiveOperationException {
+    return type.cast(loadClass(name).getConstructor().newInstance());
+  }
+}
@@ -173,6 +173,16 @@ public class ConfigurationTests {
             .onLine(11);
   }
   
+  @Test
+  public void testUnknownDigestIsAnError() {
+    assertAbout(javaSources())
+            .that(Arrays.asList(definitionClass2NotVerified))
+            .withCompilerOptions("-A" + VerifiedSpringConfiguration.DIGEST_OPTION + "=NO-SUCH-DIGEST")
+            .processedWith(new VerifiedSpringConfiguration())
+            .failsToCompile()
+            .withErrorContaining("Unknown aptspring.digest NO-SUCH-DIGEST, using SHA-256");
+  }
+  
   //TODO A test with the bottom half of a diamond shape between configuration classes.
   //SHA checking logic was over eager trying to validate the shas of files that had yet to be written.
   
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class EntryPointTests {
+
+  private JavaFileObject greeting = JavaFileObjects.forSourceLines(
+      "other.Greeting",
+      "package other;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.stereotype.Component;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Component(\"greeting\")",
+      "  public class Greeting {",
+      "",
+      "    public Greeting(@Qualifier(\"name\") String name) { }",
+      "",
+      "}");
+  
+  private JavaFileObject rootConfig(String entryPoints) {
+    return JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.beans.factory.annotation.Value;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "import other.Greeting;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true, entryPoints = " + entryPoints + ")",
+      "  @Import(Greeting.class)",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = \"name\")",
+      "    public String name(@Value(\"${name}\") String name) { return name; }",
+      "",
+      "    @Bean(name = \"message\")",
+      "    public StringBuilder message(@Qualifier(\"greeting\") Greeting greeting) { return new StringBuilder(); }",
+      "",
+      "    @Bean(name = \"first\")",
+      "    public String first(@Qualifier(\"message\") StringBuilder message) { return \"\"; }",
+      "",
+      "    @Bean(name = \"unused\")",
+      "    public Integer unused(@Qualifier(\"name\") String name) { return 0; }",
+      "",
+      "}");
+  }
+  
+  @Test
+  public void testUnreachableBeansAreReported() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .compile(greeting, rootConfig("\"message\""));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningContaining("Beans unreachable from the entry points of test.RootConfig: "
+        + "first, unused");
+  }
+  
+  @Test
+  public void testEveryBeanReachable() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .compile(greeting, rootConfig("{\"first\", \"unused\"}"));
+    assertThat(compilation).succeeded();
+    assertWithMessage("warnings").that(compilation.warnings().stream()
+        .anyMatch(warning -> warning.getMessage(null).contains("unreachable"))).isFalse();
+  }
+  
+  @Test
+  public void testPrunedBeansAreLeftOutOfGeneratedCode() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.PRUNE_UNREACHABLE_OPTION + "=true",
+            "-A" + VerifiedSpringConfiguration.REGISTRAR_OPTION + "=true",
+            "-A" + VerifiedSpringConfiguration.WIRING_OPTION + "=true")
+        .compile(greeting, rootConfig("\"message\""));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadNoteContaining("Beans unreachable from the entry points of test.RootConfig, "
+        + "left out of generated code: first, unused");
+    assertThat(compilation).generatedSourceFile("test.RootConfig_BeanRegistrar").contentsAsUtf8String()
+        .contains("rootConfig.message(");
+    assertThat(compilation).generatedSourceFile("test.RootConfig_BeanRegistrar").contentsAsUtf8String()
+        .doesNotContain("rootConfig.unused(");
+    assertThat(compilation).generatedSourceFile("test.RootConfig_Wiring").contentsAsUtf8String()
+        .contains("Arrays.asList(\"name\", \"greeting\", \"message\")");
+  }
+  
+  @Test
+  public void testEntryPointMustBeABean() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .compile(greeting, rootConfig("\"missing\""));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("Entry point missing is not a bean of test.RootConfig");
+  }
+  
+  @Test
+  public void testEntryPointsOnlyOnRoots() {
+    JavaFileObject library = JavaFileObjects.forSourceLines(
+        "test.Library",
+        "package test;",
+        "",
+        "import org.springframework.context.annotation.Bean;",
+        "",
+        "  @com.salesforce.aptspring.Verified(entryPoints = \"value\")",
+        "  public class Library {",
+        "",
+        "    @Bean(name = \"value\")",
+        "    public String value() { return \"\"; }",
+        "",
+        "}");
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration()).compile(library);
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("Only @Verified(root=true) classes may list entryPoints");
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class IncrementalTests {
+
+  private JavaFileObject importing = JavaFileObjects.forSourceLines(
+      "test.A",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "",
+      "@com.salesforce.aptspring.Verified",
+      "@Import(B.class)",
+      "public class A {",
+      "",
+      "  @Bean(name = \"value1\")",
+      "  public String value1(@Qualifier(\"value2\") String value2) { return value2;}",
+      "",
+      "}");
+  
+  private JavaFileObject imported = JavaFileObjects.forSourceLines(
+      "test.B",
+      "package test;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "@com.salesforce.aptspring.Verified",
+      "public class B {",
+      "",
+      "  @Bean(name = \"value2\")",
+      "  public String value2() { return \"\";}",
+      "",
+      "}");
+  
+  private JavaFileObject changedImported = JavaFileObjects.forSourceLines(
+      "test.B",
+      "package test;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "@com.salesforce.aptspring.Verified",
+      "public class B {",
+      "",
+      "  @Bean(name = \"value2\")",
+      "  public String value2() { return \"\";}",
+      "",
+      "  @Bean(name = \"value3\")",
+      "  public Integer value3() { return 3;}",
+      "",
+      "}");
+  
+  @Test
+  public void testProcessorsAreRegisteredForGradle() throws IOException {
+    String registered;
+    try (InputStream in = VerifiedSpringConfiguration.class.getResourceAsStream(
+          "/META-INF/gradle/incremental.annotation.processors");
+        Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+      registered = scanner.useDelimiter("\\A").next();
+    }
+    List<String> lines = Arrays.asList(registered.trim().split("\\R"));
+    assertThat(lines).containsExactly(
+        VerifiedDefinitionProcessor.class.getName() + ",isolating",
+        VerifiedSpringConfiguration.class.getName() + ",aggregating");
+  }
+  
+  @Test
+  public void testIsolatingProcessorOnlyWritesDefinitions() {
+    Compilation compilation = javac().withProcessors(new VerifiedDefinitionProcessor()).compile(importing, imported);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.A_aptSpringDefinition");
+    assertThat(compilation).generatedSourceFile("test.B_aptSpringDefinition");
+    assertWithMessage("the verified model needs the imported models")
+        .that(compilation.generatedSourceFile("test.A_aptSpring").isPresent()).isFalse();
+  }
+  
+  @Test
+  public void testDefinitionOnlyDependsOnOriginatingType() throws IOException {
+    Compilation before = compile(imported);
+    Compilation after = compile(changedImported);
+    assertWithMessage("the definition of A should not change with B")
+        .that(contents(after, "test.A_aptSpringDefinition"))
+        .isEqualTo(contents(before, "test.A_aptSpringDefinition"));
+    assertWithMessage("the definition of B should change with B")
+        .that(contents(after, "test.B_aptSpringDefinition"))
+        .isNotEqualTo(contents(before, "test.B_aptSpringDefinition"));
+    assertWithMessage("the verified model of A embeds B, so is written by the aggregating processor")
+        .that(contents(after, "test.A_aptSpring"))
+        .isNotEqualTo(contents(before, "test.A_aptSpring"));
+  }
+  
+  private Compilation compile(JavaFileObject importedSource) {
+    Compilation compilation = javac()
+        .withProcessors(new VerifiedDefinitionProcessor(), new VerifiedSpringConfiguration())
+        .compile(importing, importedSource);
+    assertThat(compilation).succeeded();
+    return compilation;
+  }
+  
+  private String contents(Compilation compilation, String className) throws IOException {
+    return compilation.generatedSourceFile(className).get().getCharContent(true).toString();
+  }
+  
+}
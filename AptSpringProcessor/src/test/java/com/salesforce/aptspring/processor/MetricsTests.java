@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class MetricsTests {
+
+  private JavaFileObject otherConfig = JavaFileObjects.forSourceLines(
+      "test.OtherConfig",
+      "package test;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  public class OtherConfig {",
+      "",
+      "    @Bean(name = \"value2\")",
+      "    public String value2() { return \"\";}",
+      "",
+      "}");
+
+  private JavaFileObject testClass = JavaFileObjects.forSourceLines(
+      "test.TestClass1",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Import(OtherConfig.class)",
+      "  public class TestClass1 {",
+      "",
+      "    @Bean(name = \"value1\")",
+      "    public String value1(@Qualifier(\"value2\") String x) { return \"\";}",
+      "",
+      "}");
+  
+  @Test
+  public void testMetricsAreReported() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.METRICS_OPTION + "=true")
+        .compile(otherConfig, testClass);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadNoteContaining("AptSpring metrics: parse");
+    assertThat(compilation).hadNoteContaining("edges 1, cycles 0");
+    assertThat(compilation)
+        .generatedFile(StandardLocation.CLASS_OUTPUT, "", VerifiedSpringConfiguration.METRICS_REPORT)
+        .contentsAsUtf8String().contains("\"graph_inspect\"");
+  }
+  
+  @Test
+  public void testNoMetricsByDefault() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration()).compile(otherConfig);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadNoteCount(0);
+  }
+  
+}
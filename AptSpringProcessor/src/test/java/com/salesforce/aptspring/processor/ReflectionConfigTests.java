@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.io.IOException;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class ReflectionConfigTests {
+
+  private JavaFileObject greeting = JavaFileObjects.forSourceLines(
+      "other.Greeting",
+      "package other;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.stereotype.Component;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Component(\"greeting\")",
+      "  public class Greeting {",
+      "",
+      "    public Greeting(@Qualifier(\"name\") CharSequence name) {}",
+      "",
+      "}");
+
+  private JavaFileObject rootConfig = JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.beans.factory.annotation.Value;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "import other.Greeting;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true)",
+      "  @Import(Greeting.class)",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = \"name\")",
+      "    public String name(@Value(\"${target}\") String target, @Value(\"${counts}\") int[] counts) {",
+      "      return target;",
+      "    }",
+      "",
+      "    @Bean(name = \"message\")",
+      "    public StringBuilder message(@Qualifier(\"greeting\") Greeting greeting) {",
+      "      return new StringBuilder();",
+      "    }",
+      "",
+      "}");
+  
+  @Test
+  public void testConfigRegistersConstructorsAndBeanMethods() throws IOException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.NATIVE_IMAGE_OPTION + "=true")
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    String json = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+        "META-INF/native-image/test/RootConfig/reflect-config.json").get().getCharContent(true).toString();
+    JsonArray config = new JsonParser().parse(json).getAsJsonArray();
+    assertWithMessage("types").that(config.size()).isEqualTo(2);
+    
+    JsonObject greetingType = config.get(0).getAsJsonObject();
+    assertWithMessage("greeting").that(greetingType.get("name").getAsString()).isEqualTo("other.Greeting");
+    assertWithMessage("greeting").that(greetingType.get("methods").toString())
+        .isEqualTo("[{\"name\":\"<init>\",\"parameterTypes\":[\"java.lang.CharSequence\"]}]");
+    
+    JsonObject rootType = config.get(1).getAsJsonObject();
+    assertWithMessage("root").that(rootType.get("name").getAsString()).isEqualTo("test.RootConfig");
+    assertWithMessage("root").that(rootType.get("methods").toString())
+        .isEqualTo("[{\"name\":\"<init>\",\"parameterTypes\":[]},"
+            + "{\"name\":\"name\",\"parameterTypes\":[\"java.lang.String\",\"int[]\"]},"
+            + "{\"name\":\"message\",\"parameterTypes\":[\"other.Greeting\"]}]");
+  }
+  
+  @Test
+  public void testConfigRegistersLifecycleMethods() throws IOException {
+    JavaFileObject worker = JavaFileObjects.forSourceLines(
+        "other.Worker",
+        "package other;",
+        "",
+        "  public class Worker {",
+        "",
+        "    public void start() {}",
+        "",
+        "    public void stop(boolean force) {}",
+        "",
+        "    public void close() {}",
+        "",
+        "}");
+    JavaFileObject closeable = JavaFileObjects.forSourceLines(
+        "other.Connection",
+        "package other;",
+        "",
+        "  public class Connection extends Worker {",
+        "",
+        "    public void shutdown() {}",
+        "",
+        "}");
+    JavaFileObject lifecycleConfig = JavaFileObjects.forSourceLines(
+        "test.RootConfig",
+        "package test;",
+        "",
+        "import org.springframework.context.annotation.Bean;",
+        "import other.Connection;",
+        "import other.Worker;",
+        "",
+        "  @com.salesforce.aptspring.Verified(root = true)",
+        "  public class RootConfig {",
+        "",
+        "    @Bean(name = \"worker\", initMethod = \"start\", destroyMethod = \"stop\")",
+        "    public Worker worker() { return new Worker(); }",
+        "",
+        "    @Bean(name = \"connection\")",
+        "    public Connection connection() { return new Connection(); }",
+        "",
+        "    @Bean(name = \"undestroyed\", destroyMethod = \"\")",
+        "    public StringBuilder undestroyed() { return new StringBuilder(); }",
+        "",
+        "}");
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.NATIVE_IMAGE_OPTION + "=true")
+        .compile(worker, closeable, lifecycleConfig);
+    assertThat(compilation).succeeded();
+    String json = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+        "META-INF/native-image/test/RootConfig/reflect-config.json").get().getCharContent(true).toString();
+    JsonArray config = new JsonParser().parse(json).getAsJsonArray();
+    assertWithMessage("types").that(config.size()).isEqualTo(2);
+    
+    JsonObject workerType = config.get(0).getAsJsonObject();
+    assertWithMessage("worker").that(workerType.get("name").getAsString()).isEqualTo("other.Worker");
+    assertWithMessage("worker").that(workerType.get("methods").toString())
+        .isEqualTo("[{\"name\":\"close\",\"parameterTypes\":[]},"
+            + "{\"name\":\"start\",\"parameterTypes\":[]},"
+            + "{\"name\":\"stop\",\"parameterTypes\":[\"boolean\"]}]");
+    
+    JsonObject rootType = config.get(1).getAsJsonObject();
+    assertWithMessage("root").that(rootType.get("name").getAsString()).isEqualTo("test.RootConfig");
+    assertWithMessage("root").that(rootType.get("methods").getAsJsonArray().size()).isEqualTo(4);
+  }
+  
+  @Test
+  public void testNoConfigWithoutOption() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration()).compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    assertWithMessage("config").that(compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+        "META-INF/native-image/test/RootConfig/reflect-config.json").isPresent()).isFalse();
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class RegistrarTests {
+
+  private static final String REGISTRAR_OPTION = "-A" + VerifiedSpringConfiguration.REGISTRAR_OPTION + "=true";
+  
+  private static final String REGISTRAR = "test.RootConfig_BeanRegistrar";
+  
+  private JavaFileObject greeting = JavaFileObjects.forSourceLines(
+      "other.Greeting",
+      "package other;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.stereotype.Component;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Component(\"greeting\")",
+      "  public class Greeting {",
+      "",
+      "    private final String name;",
+      "",
+      "    public Greeting(@Qualifier(\"name\") String name) { this.name = name; }",
+      "",
+      "    public String getText() { return \"hello \" + name; }",
+      "",
+      "}");
+  
+  private JavaFileObject hiddenGreeting = JavaFileObjects.forSourceLines(
+      "other.Greeting",
+      "package other;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.stereotype.Component;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Component(\"greeting\")",
+      "  public class Greeting {",
+      "",
+      "    Greeting(@Qualifier(\"name\") String name) { }",
+      "",
+      "    public String getText() { return \"\"; }",
+      "",
+      "}");
+
+  private JavaFileObject rootConfig = JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import java.util.List;",
+      "import java.util.Collections;",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.beans.factory.annotation.Value;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "import other.Greeting;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true)",
+      "  @Import(Greeting.class)",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = {\"name\", \"alias\"})",
+      "    public String name(@Value(\"${greeting.target:world}\") String target) { return target; }",
+      "",
+      "    @Bean(name = \"messages\")",
+      "    public List<String> messages(@Qualifier(\"greeting\") Greeting greeting) {",
+      "      return Collections.singletonList(greeting.getText());",
+      "    }",
+      "",
+      "    @Bean(name = \"first\")",
+      "    public String first(@Qualifier(\"messages\") List<String> messages) { return messages.get(0); }",
+      "",
+      "}");
+  
+  @Test
+  public void testRegistrarCallsFactoriesDirectly() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile(REGISTRAR).contentsAsUtf8String()
+        .contains("final RootConfig rootConfig = new RootConfig();");
+    assertThat(compilation).generatedSourceFile(REGISTRAR).contentsAsUtf8String()
+        .contains("BeanDefinitionBuilder.genericBeanDefinition(Greeting.class, () -> "
+            + "new Greeting(beanFactory.getBean(\"name\", String.class)))");
+    assertThat(compilation).generatedSourceFile(REGISTRAR).contentsAsUtf8String()
+        .contains("rootConfig.first((List<String>) beanFactory.getBean(\"messages\", List.class))");
+    assertThat(compilation).generatedSourceFile(REGISTRAR).contentsAsUtf8String()
+        .contains("registry.registerAlias(\"name\", \"alias\");");
+  }
+  
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testInitializerRegistersAllBeans() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    try (GenericApplicationContext context = new GenericApplicationContext()) {
+      new CompiledClassLoader(compilation).newInstance(REGISTRAR, ApplicationContextInitializer.class)
+          .initialize(context);
+      context.refresh();
+      assertWithMessage("first").that(context.getBean("first")).isEqualTo("hello world");
+      assertWithMessage("alias").that(context.getBean("alias")).isEqualTo("world");
+      assertWithMessage("bean count").that(context.getBeanDefinitionCount()).isEqualTo(4);
+    }
+  }
+  
+  @Test
+  public void testPostProcessorRegistersAllBeans() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    try (GenericApplicationContext context = new GenericApplicationContext()) {
+      context.addBeanFactoryPostProcessor(new CompiledClassLoader(compilation)
+          .newInstance(REGISTRAR, BeanDefinitionRegistryPostProcessor.class));
+      context.getEnvironment().getPropertySources().addFirst(
+          new MapPropertySource("test", Collections.singletonMap("greeting.target", "registry")));
+      context.refresh();
+      assertWithMessage("first").that(context.getBean("first")).isEqualTo("hello registry");
+    }
+  }
+  
+  @Test
+  public void testRegistrarCopiesDefinitionAnnotations() throws ReflectiveOperationException {
+    JavaFileObject annotated = JavaFileObjects.forSourceLines(
+        "test.RootConfig",
+        "package test;",
+        "",
+        "import org.springframework.beans.factory.annotation.Qualifier;",
+        "import org.springframework.context.annotation.Bean;",
+        "import org.springframework.context.annotation.DependsOn;",
+        "import org.springframework.context.annotation.Import;",
+        "import org.springframework.context.annotation.Lazy;",
+        "import org.springframework.context.annotation.Primary;",
+        "import org.springframework.context.annotation.Scope;",
+        "import other.Greeting;",
+        "",
+        "  @com.salesforce.aptspring.Verified(root = true)",
+        "  @Import(Greeting.class)",
+        "  @Lazy",
+        "  public class RootConfig {",
+        "",
+        "    @Bean(name = \"name\")",
+        "    @Lazy(false)",
+        "    public String name() { return \"world\"; }",
+        "",
+        "    @Bean(name = \"message\")",
+        "    @Scope(\"prototype\")",
+        "    @Primary",
+        "    @DependsOn(\"name\")",
+        "    public StringBuilder message(@Qualifier(\"greeting\") Greeting greeting) {",
+        "      return new StringBuilder(greeting.getText());",
+        "    }",
+        "",
+        "}");
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(greeting, annotated);
+    assertThat(compilation).succeeded();
+    try (GenericApplicationContext context = new GenericApplicationContext()) {
+      new CompiledClassLoader(compilation).newInstance(REGISTRAR, ApplicationContextInitializer.class)
+          .initialize(context);
+      context.refresh();
+      BeanDefinition message = context.getBeanDefinition("message");
+      assertWithMessage("prototype").that(message.isPrototype()).isTrue();
+      assertWithMessage("primary").that(message.isPrimary()).isTrue();
+      assertWithMessage("depends on").that(message.getDependsOn()).asList().containsExactly("name");
+      assertWithMessage("lazy from class").that(message.isLazyInit()).isTrue();
+      assertWithMessage("eager name").that(context.getBeanDefinition("name").isLazyInit()).isFalse();
+      assertWithMessage("component").that(context.getBeanDefinition("greeting").isSingleton()).isTrue();
+      assertWithMessage("new message").that(context.getBean("message") != context.getBean("message")).isTrue();
+    }
+  }
+  
+  @Test
+  public void testScopedProxyIsAnError() {
+    JavaFileObject proxied = JavaFileObjects.forSourceLines(
+        "test.RootConfig",
+        "package test;",
+        "",
+        "import org.springframework.context.annotation.Bean;",
+        "import org.springframework.context.annotation.Scope;",
+        "import org.springframework.context.annotation.ScopedProxyMode;",
+        "",
+        "  @com.salesforce.aptspring.Verified(root = true)",
+        "  public class RootConfig {",
+        "",
+        "    @Bean(name = \"name\")",
+        "    @Scope(value = \"prototype\", proxyMode = ScopedProxyMode.TARGET_CLASS)",
+        "    public StringBuilder name() { return new StringBuilder(); }",
+        "",
+        "}");
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(proxied);
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("asks for a scoped proxy");
+  }
+  
+  @Test
+  public void testLargeGraphsAreRegisteredInChunks() throws ReflectiveOperationException {
+    //registering two thousand beans in a single method is more than the 64KB of code a method may hold.
+    List<JavaFileObject> sources = new ArrayList<>();
+    List<String> imports = new ArrayList<>();
+    for (int config = 0; config < 20; config++) {
+      sources.add(config("test.Config" + config, "c" + config, 100));
+      imports.add("Config" + config + ".class");
+    }
+    sources.add(JavaFileObjects.forSourceLines(
+        "test.RootConfig",
+        "package test;",
+        "",
+        "  @com.salesforce.aptspring.Verified(root = true)",
+        "  @org.springframework.context.annotation.Import({" + String.join(", ", imports) + "})",
+        "  public class RootConfig {",
+        "",
+        "}"));
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(sources);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile(REGISTRAR).contentsAsUtf8String()
+        .contains("register1(registry, beanFactory, ");
+    try (GenericApplicationContext context = new GenericApplicationContext()) {
+      new CompiledClassLoader(compilation).newInstance(REGISTRAR, ApplicationContextInitializer.class)
+          .initialize(context);
+      context.refresh();
+      assertWithMessage("bean count").that(context.getBeanDefinitionCount()).isEqualTo(2000);
+      assertWithMessage("last").that(context.getBean("c19b99")).isEqualTo(99);
+    }
+  }
+  
+  @Test
+  public void testNoRegistrarWithoutOption() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    assertWithMessage("registrar").that(compilation.generatedSourceFile(REGISTRAR).isPresent()).isFalse();
+    assertWithMessage("non root registrar")
+        .that(compilation.generatedSourceFile("other.Greeting_BeanRegistrar").isPresent()).isFalse();
+  }
+  
+  @Test
+  public void testInaccessibleConstructorIsAnError() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(REGISTRAR_OPTION)
+        .compile(hiddenGreeting, rootConfig);
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("is not accessible from package test");
+  }
+  
+  /**
+   * A configuration of beans each one more than the previous.
+   */
+  private static JavaFileObject config(String name, String prefix, int beans) {
+    List<String> lines = new ArrayList<>(Arrays.asList(
+        "package test;",
+        "",
+        "import org.springframework.beans.factory.annotation.Qualifier;",
+        "import org.springframework.context.annotation.Bean;",
+        "",
+        "  @com.salesforce.aptspring.Verified",
+        "  public class " + name.substring(name.lastIndexOf('.') + 1) + " {",
+        "",
+        "    @Bean(name = \"" + prefix + "b0\")",
+        "    public Integer b0() { return 0; }"));
+    for (int bean = 1; bean < beans; bean++) {
+      lines.add("    @Bean(name = \"" + prefix + "b" + bean + "\")");
+      lines.add("    public Integer b" + bean + "(@Qualifier(\"" + prefix + "b" + (bean - 1) + "\") Integer previous) {"
+          + " return previous + 1; }");
+    }
+    lines.add("}");
+    return JavaFileObjects.forSourceLines(name, lines);
+  }
+}
@@ -27,6 +27,8 @@
 package com.salesforce.aptspring.processor;
 
 import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
 import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
 
 import java.io.IOException;
@@ -36,6 +38,7 @@ import javax.tools.JavaFileObject;
 
 import org.junit.Test;
 
+import com.google.testing.compile.Compilation;
 import com.google.testing.compile.JavaFileObjects;
 
 public class TypeCheckingTests {
@@ -178,6 +181,54 @@ public class TypeCheckingTests {
       "",
       "}");
   
+  private JavaFileObject definitionClass2ProvidesArrayListString = JavaFileObjects.forSourceLines(
+      "test.TestClass2",
+      "package test;",
+      "",
+      "import org.springframework.context.annotation.Bean;",
+      "import java.util.ArrayList;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  public class TestClass2 {",
+      "",
+      "    @Bean(name = \"value3\")",
+      "    public ArrayList<String> value3() { return new ArrayList<String>();}",
+      "",
+      "}");
+  
+  private static final String TABLE_OPTION = "-A" + VerifiedSpringConfiguration.ASSIGNABILITY_OPTION + "=table";
+  
+  @Test
+  public void testTypeHierarchyTableMatchesSupertypes() throws IOException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(TABLE_OPTION)
+        .compile(definitionClassExpectingListString, definitionClass2ProvidesArrayListString);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.TestClass2_aptSpring").contentsAsUtf8String()
+        .contains("\\\"typeHierarchy\\\": {");
+    assertThat(compilation).generatedSourceFile("test.TestClass2_aptSpring").contentsAsUtf8String()
+        .contains("\\\"java.util.AbstractList\\\\u003cjava.lang.String\\\\u003e\\\",");
+  }
+  
+  @Test
+  public void testTypeHierarchyTableMisMatchParameter() throws IOException {
+    assertAbout(javaSources())
+            .that(Arrays.asList(definitionClassExpectingListInteger, definitionClass2ProvidesArrayListString))
+            .withCompilerOptions(TABLE_OPTION)
+            .processedWith(new VerifiedSpringConfiguration())
+            .failsToCompile()
+            .withErrorContaining("Unmatched types value3 found in test.TestClass2.value3()");
+  }
+  
+  @Test
+  public void testTypeHierarchyTableFallsBackForWildcards() throws IOException {
+    assertAbout(javaSources())
+            .that(Arrays.asList(definitionClassExpectingComplex, definitionClass2Complex))
+            .withCompilerOptions(TABLE_OPTION)
+            .processedWith(new VerifiedSpringConfiguration())
+            .compilesWithoutError();
+  }
+  
   @Test
   public void testTypesMatchExactly() throws IOException {
     assertAbout(javaSources())
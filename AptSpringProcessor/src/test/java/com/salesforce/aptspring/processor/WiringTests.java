@@ -0,0 +1,384 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+public class WiringTests {
+
+  private static final String WIRING_OPTION = "-A" + VerifiedSpringConfiguration.WIRING_OPTION + "=true";
+  
+  private static final String VERIFIED = "@com.salesforce.aptspring.Verified";
+  
+  private JavaFileObject greeting = JavaFileObjects.forSourceLines(
+      "other.Greeting",
+      "package other;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.stereotype.Component;",
+      "",
+      "  @com.salesforce.aptspring.Verified",
+      "  @Component(\"greeting\")",
+      "  public class Greeting {",
+      "",
+      "    private final CharSequence name;",
+      "",
+      "    public Greeting(@Qualifier(\"name\") CharSequence name) { this.name = name; }",
+      "",
+      "    public String getText() { return \"hello \" + name; }",
+      "",
+      "}");
+
+  private JavaFileObject rootConfig = JavaFileObjects.forSourceLines(
+      "test.RootConfig",
+      "package test;",
+      "",
+      "import org.springframework.beans.factory.annotation.Qualifier;",
+      "import org.springframework.beans.factory.annotation.Value;",
+      "import org.springframework.context.annotation.Bean;",
+      "import org.springframework.context.annotation.Import;",
+      "import other.Greeting;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true)",
+      "  @Import(Greeting.class)",
+      "  public class RootConfig {",
+      "",
+      "    @Bean(name = \"name\")",
+      "    public String name(@Value(\"${target}\") String target, @Value(\"${count}\") int count) {",
+      "      if (count < 0) {",
+      "        throw new IllegalArgumentException(\"negative count\");",
+      "      }",
+      "      return target + count;",
+      "    }",
+      "",
+      "    @Bean(name = \"message\")",
+      "    public StringBuilder message(@Qualifier(\"greeting\") Greeting greeting) {",
+      "      return new StringBuilder(greeting.getText());",
+      "    }",
+      "",
+      "}");
+  
+  private JavaFileObject expectingRoot = JavaFileObjects.forSourceLines(
+      "test.ExpectingRoot",
+      "package test;",
+      "",
+      "import org.springframework.context.annotation.Import;",
+      "import other.Greeting;",
+      "",
+      "  @com.salesforce.aptspring.Verified(root = true, expectedBeans = \"name\")",
+      "  @Import(Greeting.class)",
+      "  public class ExpectingRoot {",
+      "",
+      "}");
+  
+  @Test
+  public void testWiringConstructsBeansInOrder() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.RootConfig_Wiring").contentsAsUtf8String()
+        .contains("case 0: return this.rootConfig.name((String) this.values.apply(\"${target}\"), "
+            + "(Integer) this.values.apply(\"${count}\"));\n"
+            + "      case 1: return new Greeting((CharSequence) bean(0));\n"
+            + "      case 2: return this.rootConfig.message((Greeting) bean(1));");
+    assertThat(compilation).generatedSourceFile("test.RootConfig_Wiring").contentsAsUtf8String()
+        .contains("public StringBuilder getMessage()");
+  }
+  
+  @Test
+  public void testWiringCompilesWithoutLintWarnings() {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION, "-Xlint:all")
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    for (Diagnostic<? extends JavaFileObject> warning : compilation.warnings()) {
+      assertWithMessage("warning %s", warning).that(warning.getSource() != null
+          && warning.getSource().getName().endsWith("_Wiring.java")).isFalse();
+    }
+  }
+  
+  @Test
+  public void testWiringRunsWithoutSpring() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.RootConfig_Wiring");
+    Function<String, ?> values = expression -> "${count}".equals(expression) ? (Object) 2 : "world";
+    Object wiring = wiringClass.getConstructor(Function.class).newInstance(values);
+    assertWithMessage("message").that(wiringClass.getMethod("getMessage").invoke(wiring).toString())
+        .isEqualTo("hello world2");
+  }
+  
+  @Test
+  public void testExpectedBeansAreConstructorParameters() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, expectingRoot);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.ExpectingRoot_Wiring");
+    Object wiring = wiringClass.getConstructor(CharSequence.class).newInstance("there");
+    Object greeting = wiringClass.getMethod("getGreeting").invoke(wiring);
+    assertWithMessage("greeting").that(greeting.getClass().getMethod("getText").invoke(greeting))
+        .isEqualTo("hello there");
+  }
+  
+  @Test
+  public void testNamesCollidingWithGeneratedLocals() throws ReflectiveOperationException {
+    JavaFileObject path = JavaFileObjects.forSourceLines(
+        "test.Path",
+        "package test;",
+        "",
+        "import org.springframework.beans.factory.annotation.Qualifier;",
+        "import org.springframework.context.annotation.Bean;",
+        "",
+        "  " + VERIFIED + "(root = true, expectedBeans = {\"index\", \"ex\"})",
+        "  public class Path {",
+        "",
+        "    @Bean(name = \"future\")",
+        "    public String future(@Qualifier(\"index\") String index, @Qualifier(\"ex\") String ex) {",
+        "      return index + ex;",
+        "    }",
+        "",
+        "}");
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(path);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.Path_Wiring");
+    //expected beans are parameters in the order of their names, ex then index.
+    Object wiring = wiringClass.getConstructor(Executor.class, String.class, String.class)
+        .newInstance(ForkJoinPool.commonPool(), "!", "hi");
+    assertWithMessage("future").that(wiringClass.getMethod("getFuture").invoke(wiring)).isEqualTo("hi!");
+  }
+  
+  @Test
+  public void testWiringConstructsBeansOnExecutor() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.RootConfig_Wiring");
+    Function<String, ?> values = expression -> "${count}".equals(expression) ? (Object) 3 : "pool";
+    Object wiring = wiringClass.getConstructor(Executor.class, Function.class)
+        .newInstance(ForkJoinPool.commonPool(), values);
+    assertWithMessage("message").that(wiringClass.getMethod("getMessage").invoke(wiring).toString())
+        .isEqualTo("hello pool3");
+  }
+  
+  @Test
+  public void testFailuresCarryTheBeanPath() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.RootConfig_Wiring");
+    Function<String, ?> values = expression -> "${count}".equals(expression) ? (Object) (-1) : "world";
+    
+    RuntimeException sequential = creationFailure(() -> wiringClass.getConstructor(Function.class)
+        .newInstance(values));
+    assertWithMessage("sequential path").that(sequential.getClass().getMethod("getPath").invoke(sequential))
+        .isEqualTo(Arrays.asList("name"));
+    
+    RuntimeException parallel = creationFailure(() -> wiringClass.getConstructor(Executor.class, Function.class)
+        .newInstance(ForkJoinPool.commonPool(), values));
+    List<?> path = (List<?>) parallel.getClass().getMethod("getPath").invoke(parallel);
+    assertWithMessage("parallel path").that(path).containsExactly("message", "greeting", "name").inOrder();
+    assertWithMessage("message").that(parallel).hasMessageThat()
+        .isEqualTo("Could not create bean message -> greeting -> name");
+    assertWithMessage("cause").that(parallel).hasCauseThat().hasMessageThat().isEqualTo("negative count");
+  }
+  
+  @Test
+  public void testLazyWiringConstructsRequestedBeansOnce() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.RootConfig_Wiring");
+    List<String> resolved = new CopyOnWriteArrayList<>();
+    Function<String, ?> values = expression -> {
+      resolved.add(expression);
+      return "${count}".equals(expression) ? (Object) 1 : "lazily";
+    };
+    Object wiring = wiringClass.getMethod("lazy", Function.class).invoke(null, values);
+    assertWithMessage("resolved before any request").that(resolved).isEmpty();
+    Object greeting = wiringClass.getMethod("getGreeting").invoke(wiring);
+    assertWithMessage("greeting").that(greeting.getClass().getMethod("getText").invoke(greeting))
+        .isEqualTo("hello lazily1");
+    assertWithMessage("greeting again").that(wiringClass.getMethod("getGreeting").invoke(wiring)).isSameInstanceAs(
+        greeting);
+    assertWithMessage("name").that(wiringClass.getMethod("getName").invoke(wiring)).isEqualTo("lazily1");
+    assertWithMessage("resolved once").that(resolved).containsExactly("${target}", "${count}");
+  }
+  
+  @Test
+  public void testLazyFailuresCarryTheBeanPath() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.RootConfig_Wiring");
+    Function<String, ?> values = expression -> "${count}".equals(expression) ? (Object) (-1) : "world";
+    Object wiring = wiringClass.getMethod("lazy", Function.class).invoke(null, values);
+    RuntimeException failure = creationFailure(() -> wiringClass.getMethod("getMessage").invoke(wiring));
+    assertWithMessage("path").that(failure.getClass().getMethod("getPath").invoke(failure))
+        .isEqualTo(Arrays.asList("message", "greeting", "name"));
+  }
+  
+  @Test
+  public void testSliceConstructsOnlyTheClosureOfNamedBeans() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.RootConfig_Wiring");
+    Function<String, ?> values = expression -> "${count}".equals(expression) ? (Object) 5 : "slice";
+    Object wiring = wiringClass.getMethod("slice", Collection.class, Function.class)
+        .invoke(null, Collections.singleton("greeting"), values);
+    assertWithMessage("name").that(wiringClass.getMethod("getName").invoke(wiring)).isEqualTo("slice5");
+    try {
+      wiringClass.getMethod("getMessage").invoke(wiring);
+      throw new AssertionError("message is outside the slice");
+    } catch (InvocationTargetException ex) {
+      assertWithMessage("outside the slice").that(ex.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+    try {
+      wiringClass.getMethod("slice", Collection.class, Function.class)
+          .invoke(null, Collections.singleton("missing"), values);
+      throw new AssertionError("missing is not a bean");
+    } catch (InvocationTargetException ex) {
+      assertWithMessage("unknown bean").that(ex.getCause()).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+  
+  @Test
+  public void testEveryDefinitionMayBeSlicedWithStubs() throws ReflectiveOperationException {
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions("-A" + VerifiedSpringConfiguration.WIRING_OPTION + "=all")
+        .compile(greeting, rootConfig);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("other.Greeting_Wiring");
+    Object wiring = wiringClass.getMethod("slice", Collection.class, CharSequence.class)
+        .invoke(null, Collections.singleton("greeting"), "stub");
+    Object greeting = wiringClass.getMethod("getGreeting").invoke(wiring);
+    assertWithMessage("greeting").that(greeting.getClass().getMethod("getText").invoke(greeting))
+        .isEqualTo("hello stub");
+  }
+  
+  @Test
+  public void testLargeGraphsAreWired() throws ReflectiveOperationException {
+    //the models of the first links are long enough to be stored in several constants, and read back.
+    List<JavaFileObject> links = new ArrayList<>();
+    for (int link = 0; link < 4; link++) {
+      links.add(chain("test.Chain" + link, link == 0 ? null : "test.Chain" + (link - 1), VERIFIED, link * 60));
+    }
+    Compilation stored = javac().withProcessors(new VerifiedSpringConfiguration()).compile(links);
+    assertThat(stored).succeeded();
+    assertThat(stored).generatedSourceFile("test.Chain3_aptSpring").contentsAsUtf8String().contains("__DATA_FIELD_1");
+    
+    List<JavaFileObject> sources = new ArrayList<>();
+    for (int link = 0; link < 4; link++) {
+      sources.add(chain("test.Chain" + link, link == 0 ? null : "test.Chain" + (link - 1), "", link * 60));
+      sources.add(stored.generatedSourceFile("test.Chain" + link + "_aptSpring").get());
+    }
+    sources.add(chain("test.ChainConfig", "test.Chain3", VERIFIED + "(root = true)", 240));
+    Compilation compilation = javac().withProcessors(new VerifiedSpringConfiguration())
+        .withOptions(WIRING_OPTION)
+        .compile(sources);
+    assertThat(compilation).succeeded();
+    Class<?> wiringClass = new CompiledClassLoader(compilation).loadClass("test.ChainConfig_Wiring");
+    Object wiring = wiringClass.getConstructor().newInstance();
+    assertWithMessage("last").that(wiringClass.getMethod("getB299").invoke(wiring)).isEqualTo(299);
+    Object slice = wiringClass.getMethod("slice", Collection.class).invoke(null, Collections.singleton("b260"));
+    assertWithMessage("sliced").that(wiringClass.getMethod("getB260").invoke(slice)).isEqualTo(260);
+    try {
+      wiringClass.getMethod("getB261").invoke(slice);
+      throw new AssertionError("b261 is outside the slice");
+    } catch (InvocationTargetException ex) {
+      assertWithMessage("outside the slice").that(ex.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+  }
+  
+  /**
+   * A link of sixty beans of a chain, each bean one more than the previous.
+   */
+  private static JavaFileObject chain(String name, String imported, String annotation, int from) {
+    List<String> lines = new ArrayList<>(Arrays.asList(
+        "package test;",
+        "",
+        "import org.springframework.beans.factory.annotation.Qualifier;",
+        "import org.springframework.context.annotation.Bean;",
+        "",
+        "  " + annotation,
+        imported == null ? "" : "  @org.springframework.context.annotation.Import(" + imported + ".class)",
+        "  public class " + name.substring(name.lastIndexOf('.') + 1) + " {"));
+    for (int i = from; i < from + 60; i++) {
+      lines.add("    @Bean(name = \"b" + i + "\")");
+      lines.add(i == 0 ? "    public Integer b0() { return 0; }" : "    public Integer b" + i + "(@Qualifier(\"b"
+          + (i - 1) + "\") Integer previous) { return previous + 1; }");
+    }
+    lines.add("}");
+    return JavaFileObjects.forSourceLines(name, lines);
+  }
+  
+  private interface Construction {
+    Object construct() throws ReflectiveOperationException;
+  }
+  
+  private static RuntimeException creationFailure(Construction construction) throws ReflectiveOperationException {
+    try {
+      construction.construct();
+    } catch (InvocationTargetException ex) {
+      assertWithMessage("failure").that(ex.getCause().getClass().getSimpleName()).isEqualTo("CreationException");
+      return (RuntimeException) ex.getCause();
+    }
+    throw new AssertionError("construction did not fail");
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.salesforce.aptspring.processor.VerifiedSpringConfiguration;
+
+/**
+ * Compiles synthetic source trees of increasing size in process, with and without the processor, to measure what the
+ * processor costs a real build: rounds, Filer writes and Elements lookups included.  Reports the median wall time,
+ * the rounds, and the peak heap of each step.
+ * <p>
+ * Run from the test class path, for instance with
+ * {@code mvn -pl AptSpringProcessor test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.salesforce.aptspring.processor.benchmark.CompileBenchmark -Dexec.args="10 100 1000"}.
+ * The arguments are the number of configurations of each step, each configuration comes with a component.
+ * </p>
+ */
+public class CompileBenchmark {
+
+  private static final int WARMUPS = 1;
+  
+  private static final int MEASUREMENTS = 3;
+  
+  /**
+   * The measurements of compiling one source tree.
+   */
+  public static final class Result {
+    private final int configurations;
+    private final boolean processed;
+    private final long wallMillis;
+    private final int rounds;
+    private final long peakHeapBytes;
+    private final List<Diagnostic<? extends JavaFileObject>> errors;
+    
+    private Result(int configurations, boolean processed, long wallMillis, int rounds, long peakHeapBytes,
+        List<Diagnostic<? extends JavaFileObject>> errors) {
+      this.configurations = configurations;
+      this.processed = processed;
+      this.wallMillis = wallMillis;
+      this.rounds = rounds;
+      this.peakHeapBytes = peakHeapBytes;
+      this.errors = errors;
+    }
+    
+    public long getWallMillis() {
+      return wallMillis;
+    }
+    
+    public int getRounds() {
+      return rounds;
+    }
+    
+    public long getPeakHeapBytes() {
+      return peakHeapBytes;
+    }
+    
+    public List<Diagnostic<? extends JavaFileObject>> getErrors() {
+      return errors;
+    }
+    
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%8d %-9s %10d %6d %12d", configurations, processed ? "processor" : "javac",
+          wallMillis, rounds, peakHeapBytes / (1024 * 1024));
+    }
+  }
+  
+  /**
+   * Counts the rounds of the processor it delegates to.
+   */
+  private static final class CountingProcessor implements Processor {
+    
+    private final Processor delegate;
+    
+    private int rounds = 0;
+    
+    private CountingProcessor(Processor delegate) {
+      this.delegate = delegate;
+    }
+    
+    @Override
+    public Set<String> getSupportedOptions() {
+      return delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+      delegate.init(processingEnv);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      rounds++;
+      return delegate.process(annotations, roundEnv);
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+        ExecutableElement member, String userText) {
+      return delegate.getCompletions(element, annotation, member, userText);
+    }
+  }
+  
+  /**
+   * Compile a synthetic source tree once.
+   * 
+   * @param configurations in the source tree.
+   * @param processed whether to run the processor.
+   * @return the measurements of the compilation.
+   * @throws IOException if the source tree or classes could not be written.
+   */
+  public static Result compile(int configurations, boolean processed) throws IOException {
+    Path root = Files.createTempDirectory("aptspring-compile-benchmark");
+    try {
+      Path sources = root.resolve("src");
+      Path classes = Files.createDirectories(root.resolve("classes"));
+      List<File> files = new SyntheticSources(configurations).write(sources).stream().map(Path::toFile)
+          .collect(Collectors.toList());
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null)) {
+        List<String> options = new ArrayList<>(Arrays.asList("-classpath", System.getProperty("java.class.path"),
+            "-d", classes.toString(), "-s", classes.toString()));
+        CountingProcessor processor = new CountingProcessor(new VerifiedSpringConfiguration());
+        if (!processed) {
+          options.add("-proc:none");
+        }
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+            fileManager.getJavaFileObjectsFromFiles(files));
+        if (processed) {
+          task.setProcessors(Collections.singletonList(processor));
+        }
+        System.gc();
+        List<MemoryPoolMXBean> heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP).collect(Collectors.toList());
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long start = System.nanoTime();
+        task.call();
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long peakHeapBytes = heap.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new Result(configurations, processed, wallMillis, processor.rounds, peakHeapBytes,
+            diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+              .collect(Collectors.toList()));
+      }
+    } finally {
+      delete(root);
+    }
+  }
+  
+  /**
+   * Compile each step after warming up, and keep the median run.
+   * 
+   * @param configurations in the source tree.
+   * @param processed whether to run the processor.
+   * @return the median run by wall time.
+   * @throws IOException if the source tree or classes could not be written.
+   */
+  public static Result measure(int configurations, boolean processed) throws IOException {
+    for (int i = 0; i < WARMUPS; i++) {
+      compile(configurations, processed);
+    }
+    List<Result> results = new ArrayList<>();
+    for (int i = 0; i < MEASUREMENTS; i++) {
+      Result result = compile(configurations, processed);
+      if (!result.getErrors().isEmpty()) {
+        throw new IllegalStateException("Synthetic sources failed to compile: " + result.getErrors());
+      }
+      results.add(result);
+    }
+    results.sort(Comparator.comparingLong(Result::getWallMillis));
+    return results.get(results.size() / 2);
+  }
+  
+  private static void delete(Path root) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      });
+    }
+  }
+  
+  /**
+   * Measure each scale step.
+   * 
+   * @param args number of configurations of each step, 10, 100 and 500 by default.
+   * @throws IOException if a source tree or classes could not be written.
+   */
+  public static void main(String[] args) throws IOException {
+    List<Integer> steps = args.length == 0 ? Arrays.asList(10, 100, 500)
+        : Stream.of(args).map(Integer::valueOf).collect(Collectors.toList());
+    System.out.println(String.format(Locale.ROOT, "%8s %-9s %10s %6s %12s", "configs", "compiler", "wall ms", "rounds",
+        "peak heap mb"));
+    for (int step : steps) {
+      System.out.println(measure(step, false));
+      System.out.println(measure(step, true));
+    }
+  }
+  
+}
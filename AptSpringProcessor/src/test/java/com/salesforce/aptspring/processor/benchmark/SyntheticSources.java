@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.processor.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes a synthetic source tree of @Verified configurations and components.
+ * <p>
+ * Each configuration imports its own component, the configuration before it and the configuration at half its index,
+ * so that imports form a deep graph with diamonds, as in real applications.  Each configuration provides one bean,
+ * which depends on its component and on the beans of the configurations it imports.  Fifty configurations share a
+ * package.
+ * </p>
+ */
+public class SyntheticSources {
+
+  private static final int PER_PACKAGE = 50;
+  
+  private final int configurations;
+  
+  public SyntheticSources(int configurations) {
+    this.configurations = configurations;
+  }
+  
+  /**
+   * Write the source tree.
+   * 
+   * @param root directory to write sources under.
+   * @return all source files written.
+   * @throws IOException if a source file could not be written.
+   */
+  public List<Path> write(Path root) throws IOException {
+    List<Path> output = new ArrayList<>();
+    for (int i = 0; i < configurations; i++) {
+      output.add(write(root, packageName(i), "Component" + i, component(i)));
+      output.add(write(root, packageName(i), "Config" + i, configuration(i)));
+    }
+    return output;
+  }
+  
+  private static Path write(Path root, String packageName, String className, String source) throws IOException {
+    Path directory = root.resolve(packageName.replace('.', '/'));
+    Files.createDirectories(directory);
+    Path file = directory.resolve(className + ".java");
+    Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+  
+  private static String packageName(int index) {
+    return "bench.p" + index / PER_PACKAGE;
+  }
+  
+  private static String qualifiedName(String simpleName, int index) {
+    return packageName(index) + "." + simpleName + index;
+  }
+  
+  private static Set<Integer> imports(int index) {
+    Set<Integer> output = new LinkedHashSet<>();
+    if (index > 0) {
+      output.add(index - 1);
+      output.add(index / 2);
+    }
+    output.remove(index);
+    return output;
+  }
+  
+  private static String component(int index) {
+    return "package " + packageName(index) + ";\n"
+        + "\n"
+        + "@com.salesforce.aptspring.Verified\n"
+        + "@org.springframework.stereotype.Component(\"component" + index + "\")\n"
+        + "public class Component" + index + " {\n"
+        + "\n"
+        + "  public Component" + index + "() { }\n"
+        + "\n"
+        + "}\n";
+  }
+  
+  private static String configuration(int index) {
+    StringBuilder imports = new StringBuilder("Component" + index + ".class");
+    StringBuilder parameters = new StringBuilder("@org.springframework.beans.factory.annotation.Qualifier(\"component"
+        + index + "\") Component" + index + " component");
+    for (int imported : imports(index)) {
+      imports.append(", ").append(qualifiedName("Config", imported)).append(".class");
+      parameters.append(", @org.springframework.beans.factory.annotation.Qualifier(\"bean").append(imported)
+          .append("\") String bean").append(imported);
+    }
+    return "package " + packageName(index) + ";\n"
+        + "\n"
+        + "@com.salesforce.aptspring.Verified\n"
+        + "@org.springframework.context.annotation.Import({" + imports + "})\n"
+        + "public class Config" + index + " {\n"
+        + "\n"
+        + "  @org.springframework.context.annotation.Bean(name = \"bean" + index + "\")\n"
+        + "  public String bean" + index + "(" + parameters + ") {\n"
+        + "    return \"\";\n"
+        + "  }\n"
+        + "\n"
+        + "}\n";
+  }
+  
+}
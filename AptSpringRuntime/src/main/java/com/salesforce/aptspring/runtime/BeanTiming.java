@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import java.util.Locale;
+
+/**
+ * The time spent creating a bean, excluding the beans created meanwhile, summed over every creation of the bean.
+ */
+public final class BeanTiming {
+
+  private final String name;
+  
+  private final long constructionNanos;
+  
+  private final long initializationNanos;
+  
+  public BeanTiming(String name, long constructionNanos, long initializationNanos) {
+    this.name = name;
+    this.constructionNanos = constructionNanos;
+    this.initializationNanos = initializationNanos;
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  public long getConstructionNanos() {
+    return constructionNanos;
+  }
+  
+  public long getInitializationNanos() {
+    return initializationNanos;
+  }
+  
+  public long getTotalNanos() {
+    return constructionNanos + initializationNanos;
+  }
+  
+  /**
+   * The timing of two creations of the same bean.
+   * 
+   * @param other timing of the bean.
+   * @return the sum of both timings.
+   */
+  public BeanTiming plus(BeanTiming other) {
+    return new BeanTiming(name, constructionNanos + other.constructionNanos,
+        initializationNanos + other.initializationNanos);
+  }
+  
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "%s %.3f ms (construction %.3f ms, initialization %.3f ms)", name,
+        getTotalNanos() / 1e6, constructionNanos / 1e6, initializationNanos / 1e6);
+  }
+}
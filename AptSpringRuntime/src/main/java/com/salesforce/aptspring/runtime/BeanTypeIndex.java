@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * The beans of a verified root by the types they may be assigned to, as written beside the root by the processor's
+ * aptspring.beanTypes option: a "Root_BeanTypes.tsv" resource of a line per type, the binary name of the class or
+ * interface followed by the names of the beans assignable to it, tab separated.  Lines starting with '#' are comments.
+ * As in spring, a FactoryBean is named under the types of its product, and under its own types by its name prefixed
+ * with '&amp;'.
+ * <p>
+ * Answers {@link org.springframework.beans.factory.ListableBeanFactory#getBeanNamesForType(Class)} with a single
+ * lookup, rather than resolving the type of every bean definition, for the beans of the root.  Beans registered
+ * other than by the root's verified definitions are not indexed.
+ * </p>
+ */
+public class BeanTypeIndex {
+
+  public static final String SUFFIX = "_BeanTypes.tsv";
+  
+  private final Map<String, List<String>> beanNames;
+  
+  private BeanTypeIndex(Map<String, List<String>> beanNames) {
+    this.beanNames = beanNames;
+  }
+  
+  /**
+   * Read the index written beside a root.
+   * 
+   * @param root the class annotated with @Verified(root=true).
+   * @return the index of the root.
+   * @throws IllegalArgumentException if no index was written beside the root.
+   * @throws UncheckedIOException if the index could not be read.
+   */
+  public static BeanTypeIndex forRoot(Class<?> root) {
+    return new BeanTypeIndex(TabSeparatedResource.forRoot(root, SUFFIX, "bean type index", "aptspring.beanTypes"));
+  }
+  
+  /**
+   * Read an index.
+   * 
+   * @param reader of the index's lines, not closed.
+   * @return the index.
+   * @throws IOException if the index could not be read.
+   */
+  public static BeanTypeIndex read(Reader reader) throws IOException {
+    return new BeanTypeIndex(TabSeparatedResource.read(reader));
+  }
+  
+  /**
+   * The beans assignable to a type.
+   * 
+   * @param type a class or interface.
+   * @return the names of the beans, in construction order, empty if none are.
+   */
+  public List<String> getBeanNamesForType(Class<?> type) {
+    return beanNames.getOrDefault(type.getName(), Collections.emptyList());
+  }
+  
+  /**
+   * The beans assignable to a type, as
+   * {@link org.springframework.beans.factory.ListableBeanFactory#getBeansOfType(Class)} but only looking up the indexed
+   * names.
+   * 
+   * @param <T> the type of the beans.
+   * @param type a class or interface.
+   * @param beanFactory the factory holding the beans of the root, which creates them if need be.
+   * @return the beans by name, in construction order.
+   */
+  public <T> Map<String, T> getBeansOfType(Class<T> type, BeanFactory beanFactory) {
+    List<String> names = getBeanNamesForType(type);
+    Map<String, T> beans = new LinkedHashMap<>(names.size() * 2);
+    for (String name : names) {
+      beans.put(name, beanFactory.getBean(name, type));
+    }
+    return beans;
+  }
+}
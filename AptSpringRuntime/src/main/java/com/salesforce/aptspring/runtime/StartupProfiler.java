@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+/**
+ * Measures the time spent creating each bean, excluding the time spent on the beans it depends on that were created
+ * meanwhile, split in construction, from instantiation to the end of dependency injection, and initialization, the
+ * init callbacks and post processing.  See {@link #report(StoredBeanGraph)}.
+ * <p>
+ * Install it first, before other post processors, with {@link #install(ConfigurableBeanFactory)}, which does nothing
+ * unless the {@value #ENABLED_PROPERTY} system property is "true", so a disabled profiler costs nothing.  Once startup
+ * is over {@link #stop()} leaves a single volatile read per callback.
+ * </p>
+ */
+public class StartupProfiler implements InstantiationAwareBeanPostProcessor {
+
+  public static final String ENABLED_PROPERTY = "aptspring.profile";
+  
+  /**
+   * A bean being created on a thread, with the time spent on beans created while it was.
+   */
+  private static final class Frame {
+    private final String name;
+    private final long start;
+    private long initializing = -1;
+    private long nested;
+    private long nestedWhenInitializing;
+    
+    private Frame(String name, long start) {
+      this.name = name;
+      this.start = start;
+    }
+  }
+  
+  private final ThreadLocal<Deque<Frame>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+  
+  private final Map<String, BeanTiming> timings = new ConcurrentHashMap<>();
+  
+  private volatile boolean running = true;
+  
+  /**
+   * Install a profiler when the {@value #ENABLED_PROPERTY} system property is "true".
+   * 
+   * @param beanFactory whose beans are measured, before any is created.
+   * @return the installed profiler, or null if profiling is disabled.
+   */
+  public static StartupProfiler install(ConfigurableBeanFactory beanFactory) {
+    if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+      return null;
+    }
+    StartupProfiler profiler = new StartupProfiler();
+    beanFactory.addBeanPostProcessor(profiler);
+    return profiler;
+  }
+  
+  /**
+   * Stop measuring, beans created from now on are ignored.
+   */
+  public void stop() {
+    running = false;
+    creating.remove();
+  }
+  
+  @Override
+  public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+    if (running) {
+      creating.get().push(new Frame(beanName, System.nanoTime()));
+    }
+    return null;
+  }
+  
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (running) {
+      Frame frame = creating.get().peek();
+      if (frame != null && frame.name.equals(beanName)) {
+        frame.initializing = System.nanoTime();
+        frame.nestedWhenInitializing = frame.nested;
+      }
+    }
+    return bean;
+  }
+  
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!running) {
+      return bean;
+    }
+    long end = System.nanoTime();
+    Deque<Frame> frames = creating.get();
+    if (frames.stream().noneMatch(frame -> frame.name.equals(beanName))) {
+      //initialized without being created by the factory, as by autowireBean.
+      return bean;
+    }
+    //frames above it are beans whose creation failed.
+    Frame frame = frames.pop();
+    while (!frame.name.equals(beanName)) {
+      frame = frames.pop();
+    }
+    long total = end - frame.start;
+    long initialization = frame.initializing < 0 ? 0
+        : end - frame.initializing - (frame.nested - frame.nestedWhenInitializing);
+    timings.merge(beanName, new BeanTiming(beanName, total - frame.nested - initialization, initialization),
+        BeanTiming::plus);
+    Frame parent = frames.peek();
+    if (parent != null) {
+      parent.nested += total;
+    }
+    return bean;
+  }
+  
+  /**
+   * The time measured for each bean so far.
+   * 
+   * @return timings by bean name.
+   */
+  public Map<String, BeanTiming> getTimings() {
+    return Collections.unmodifiableMap(timings);
+  }
+  
+  /**
+   * Report the beans that took longest, and the critical path of the graph, the chain of dependencies that took
+   * longest to construct.
+   * 
+   * @param graph of the root whose beans were created.
+   * @return the report.
+   */
+  public StartupReport report(StoredBeanGraph graph) {
+    return new StartupReport(timings, graph);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The beans that took longest to create, and the critical path of a verified graph: the chain of dependencies whose
+ * creation took longest, which bounds how fast the graph could start however its beans are scheduled.
+ */
+public class StartupReport {
+
+  private static final int DEFAULT_TOP = 10;
+  
+  private final List<BeanTiming> byTime;
+  
+  private final List<BeanTiming> criticalPath;
+  
+  private final long totalNanos;
+  
+  /**
+   * Join timings to a graph.
+   * 
+   * @param timings of the beans created, by name.
+   * @param graph of the root whose beans were created.
+   */
+  public StartupReport(Map<String, BeanTiming> timings, StoredBeanGraph graph) {
+    byTime = new ArrayList<>(timings.values());
+    byTime.sort(Comparator.comparingLong(BeanTiming::getTotalNanos).reversed()
+        .thenComparing(BeanTiming::getName));
+    totalNanos = byTime.stream().mapToLong(BeanTiming::getTotalNanos).sum();
+    
+    //longest path ending at each bean, the graph is in construction order so dependencies come first.
+    Map<String, Long> longest = new HashMap<>();
+    Map<String, String> previous = new HashMap<>();
+    String end = null;
+    for (String bean : graph.getBeans()) {
+      long before = 0;
+      for (String dependency : graph.getDependencies(bean)) {
+        long path = longest.getOrDefault(dependency, nanos(timings, dependency));
+        if (path > before || previous.get(bean) == null) {
+          before = path;
+          previous.put(bean, dependency);
+        }
+      }
+      longest.put(bean, before + nanos(timings, bean));
+      if (end == null || longest.get(bean) > longest.get(end)) {
+        end = bean;
+      }
+    }
+    List<BeanTiming> path = new ArrayList<>();
+    for (String bean = end; bean != null; bean = previous.get(bean)) {
+      path.add(timings.getOrDefault(bean, new BeanTiming(bean, 0, 0)));
+    }
+    criticalPath = Collections.unmodifiableList(path);
+  }
+  
+  private static long nanos(Map<String, BeanTiming> timings, String bean) {
+    BeanTiming timing = timings.get(bean);
+    return timing == null ? 0 : timing.getTotalNanos();
+  }
+  
+  /**
+   * The beans that took longest to create.
+   * 
+   * @param count of beans to list at most.
+   * @return the beans, longest first.
+   */
+  public List<BeanTiming> getTopContributors(int count) {
+    return Collections.unmodifiableList(byTime.subList(0, Math.min(count, byTime.size())));
+  }
+  
+  /**
+   * The chain of dependencies of the graph whose creation took longest.
+   * 
+   * @return the beans of the chain, from the one depending on the others to the one depending on none of them.
+   */
+  public List<BeanTiming> getCriticalPath() {
+    return criticalPath;
+  }
+  
+  public long getCriticalPathNanos() {
+    return criticalPath.stream().mapToLong(BeanTiming::getTotalNanos).sum();
+  }
+  
+  /**
+   * The time spent creating every bean measured, on all threads.
+   * 
+   * @return the sum of the time of each bean.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+  
+  /**
+   * Write the report as text.
+   * 
+   * @param out where the report is written.
+   * @param top count of beans to list by time.
+   * @throws IOException if the report could not be written.
+   */
+  public void write(Appendable out, int top) throws IOException {
+    out.append(String.format(Locale.ROOT, "AptSpring startup: %d beans, %.3f ms%n", byTime.size(), totalNanos / 1e6));
+    out.append(String.format(Locale.ROOT, "Top %d beans:%n", Math.min(top, byTime.size())));
+    for (BeanTiming timing : getTopContributors(top)) {
+      out.append("  ").append(timing.toString()).append(System.lineSeparator());
+    }
+    out.append(String.format(Locale.ROOT, "Critical path, %.3f ms:%n", getCriticalPathNanos() / 1e6));
+    for (BeanTiming timing : criticalPath) {
+      out.append("  ").append(timing.toString()).append(System.lineSeparator());
+    }
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    try {
+      write(builder, DEFAULT_TOP);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The beans of a verified root, and the beans each depends on, as written beside the root by the processor's
+ * aptspring.beanGraph option: a "Root_BeanGraph.tsv" resource of a line per bean, in construction order, the bean's
+ * name followed by the names of its dependencies, tab separated.  Lines starting with '#' are comments.
+ */
+public class StoredBeanGraph {
+
+  public static final String SUFFIX = "_BeanGraph.tsv";
+  
+  private final Map<String, List<String>> dependencies;
+  
+  private StoredBeanGraph(Map<String, List<String>> dependencies) {
+    this.dependencies = Collections.unmodifiableMap(dependencies);
+  }
+  
+  /**
+   * Read the graph written beside a root.
+   * 
+   * @param root the class annotated with @Verified(root=true).
+   * @return the graph of the root.
+   * @throws IllegalArgumentException if no graph was written beside the root.
+   * @throws UncheckedIOException if the graph could not be read.
+   */
+  public static StoredBeanGraph forRoot(Class<?> root) {
+    return new StoredBeanGraph(TabSeparatedResource.forRoot(root, SUFFIX, "bean graph", "aptspring.beanGraph"));
+  }
+  
+  /**
+   * Read a graph.
+   * 
+   * @param reader of the graph's lines, not closed.
+   * @return the graph.
+   * @throws IOException if the graph could not be read.
+   */
+  public static StoredBeanGraph read(Reader reader) throws IOException {
+    return new StoredBeanGraph(TabSeparatedResource.read(reader));
+  }
+  
+  /**
+   * The beans of the graph, each after the beans it depends on.
+   * 
+   * @return names of the beans, in construction order.
+   */
+  public List<String> getBeans() {
+    return Collections.unmodifiableList(new ArrayList<>(dependencies.keySet()));
+  }
+  
+  /**
+   * The beans a bean depends on, including expected beans that are not part of the graph.
+   * 
+   * @param bean name of a bean.
+   * @return the names of its dependencies, empty if the bean is not part of the graph.
+   */
+  public List<String> getDependencies(String bean) {
+    return dependencies.getOrDefault(bean, Collections.emptyList());
+  }
+  
+  public boolean contains(String bean) {
+    return dependencies.containsKey(bean);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the tab separated resources the processor writes beside a root: a line per key, followed by its values,
+ * tab separated.  Lines starting with '#' are comments.
+ */
+final class TabSeparatedResource {
+
+  private TabSeparatedResource() {
+  }
+  
+  /**
+   * Read the resource written beside a root.
+   * 
+   * @param root the class annotated with @Verified(root=true).
+   * @param suffix of the resource's name, after the root's simple name.
+   * @param description of the resource, for errors.
+   * @param option the processor option that writes the resource, for errors.
+   * @return the values of each key, in the order of the lines.
+   * @throws IllegalArgumentException if no resource was written beside the root.
+   * @throws UncheckedIOException if the resource could not be read.
+   */
+  static Map<String, List<String>> forRoot(Class<?> root, String suffix, String description, String option) {
+    String name = root.getName().substring(root.getName().lastIndexOf('.') + 1).replace('$', '_') + suffix;
+    InputStream stream = root.getResourceAsStream(name);
+    if (stream == null) {
+      throw new IllegalArgumentException("No " + description + " " + name + " beside " + root.getName()
+          + ", was it compiled with -A" + option + "=true?");
+    }
+    try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+      return read(reader);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Could not read " + name, ex);
+    }
+  }
+  
+  /**
+   * Read a resource.
+   * 
+   * @param reader of the resource's lines, not closed.
+   * @return the unmodifiable values of each key, in the order of the lines.
+   * @throws IOException if the resource could not be read.
+   */
+  static Map<String, List<String>> read(Reader reader) throws IOException {
+    Map<String, List<String>> values = new LinkedHashMap<>();
+    BufferedReader lines = new BufferedReader(reader);
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\t");
+      values.put(fields[0], Collections.unmodifiableList(new ArrayList<>(Arrays.asList(fields)
+          .subList(1, fields.length))));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class TestBeanTypeIndex {
+
+  private static final String INDEX = "# type\tbeans\n"
+      + "java.io.Serializable\tname\tcount\n"
+      + "java.lang.CharSequence\tname\n"
+      + "java.lang.Integer\tcount\n"
+      + "java.lang.Object\tname\tcount\n"
+      + "java.lang.String\tname\n";
+  
+  @Test
+  public void namesForType() throws IOException {
+    BeanTypeIndex index = BeanTypeIndex.read(new StringReader(INDEX));
+    assertThat(index.getBeanNamesForType(CharSequence.class)).containsExactly("name");
+    assertThat(index.getBeanNamesForType(Serializable.class)).containsExactly("name", "count");
+    assertThat(index.getBeanNamesForType(Runnable.class)).isEmpty();
+  }
+  
+  @Test
+  public void beansOfType() throws IOException {
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerBeanDefinition("name", BeanDefinitionBuilder.genericBeanDefinition(String.class,
+        () -> "name").getBeanDefinition());
+    beanFactory.registerBeanDefinition("count", BeanDefinitionBuilder.genericBeanDefinition(Integer.class,
+        () -> 3).getBeanDefinition());
+    BeanTypeIndex index = BeanTypeIndex.read(new StringReader(INDEX));
+    Map<String, Serializable> beans = index.getBeansOfType(Serializable.class, beanFactory);
+    assertThat(beans.keySet()).containsExactly("name", "count");
+    assertThat(beans).isEqualTo(beanFactory.getBeansOfType(Serializable.class));
+  }
+  
+  @Test
+  public void factoryBeansByProductAndFactory() throws IOException {
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerBeanDefinition("message", BeanDefinitionBuilder.genericBeanDefinition(MessageFactory.class)
+        .getBeanDefinition());
+    BeanTypeIndex index = BeanTypeIndex.read(new StringReader("java.lang.CharSequence\tmessage\n"
+        + "org.springframework.beans.factory.FactoryBean\t&message\n"));
+    assertThat(index.getBeansOfType(CharSequence.class, beanFactory))
+        .isEqualTo(beanFactory.getBeansOfType(CharSequence.class));
+    assertThat(index.getBeansOfType(FactoryBean.class, beanFactory))
+        .isEqualTo(beanFactory.getBeansOfType(FactoryBean.class));
+  }
+  
+  public static class MessageFactory implements FactoryBean<StringBuilder> {
+    
+    private final StringBuilder message = new StringBuilder("message");
+    
+    @Override
+    public StringBuilder getObject() {
+      return message;
+    }
+    
+    @Override
+    public Class<?> getObjectType() {
+      return StringBuilder.class;
+    }
+  }
+  
+  @Test
+  public void missingIndex() {
+    assertThatThrownBy(() -> BeanTypeIndex.forRoot(TestBeanTypeIndex.class))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("aptspring.beanTypes");
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017, Salesforce.com, Inc
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.aptspring.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+public class TestStartupProfiler {
+
+  private static final String GRAPH = "# bean\tdependencies\n"
+      + "fast\n"
+      + "slow\n"
+      + "middle\tslow\n"
+      + "top\tmiddle\tfast\n";
+  
+  private static Supplier<String> sleeping(long millis, Supplier<String> value) {
+    return () -> {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      return value.get();
+    };
+  }
+  
+  private static DefaultListableBeanFactory beanFactory() {
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerBeanDefinition("slow", BeanDefinitionBuilder.genericBeanDefinition(String.class,
+        sleeping(60, () -> "slow")).getBeanDefinition());
+    beanFactory.registerBeanDefinition("middle", BeanDefinitionBuilder.genericBeanDefinition(String.class,
+        sleeping(5, () -> beanFactory.getBean("slow", String.class) + " middle")).getBeanDefinition());
+    beanFactory.registerBeanDefinition("top", BeanDefinitionBuilder.genericBeanDefinition(String.class,
+        () -> beanFactory.getBean("middle", String.class) + beanFactory.getBean("fast", String.class))
+        .getBeanDefinition());
+    //created last, the first bean created pays for warming up the factory.
+    beanFactory.registerBeanDefinition("fast", BeanDefinitionBuilder.genericBeanDefinition(String.class,
+        () -> "fast").getBeanDefinition());
+    return beanFactory;
+  }
+  
+  @Test
+  public void timesExcludeNestedBeans() {
+    DefaultListableBeanFactory beanFactory = beanFactory();
+    StartupProfiler profiler = new StartupProfiler();
+    beanFactory.addBeanPostProcessor(profiler);
+    beanFactory.preInstantiateSingletons();
+    
+    assertThat(profiler.getTimings()).containsOnlyKeys("fast", "slow", "middle", "top");
+    long slow = profiler.getTimings().get("slow").getTotalNanos();
+    long middle = profiler.getTimings().get("middle").getTotalNanos();
+    assertThat(slow).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(60));
+    assertThat(middle).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5)).isLessThan(slow);
+  }
+  
+  @Test
+  public void reportFollowsTheCriticalPath() throws IOException {
+    DefaultListableBeanFactory beanFactory = beanFactory();
+    StartupProfiler profiler = new StartupProfiler();
+    beanFactory.addBeanPostProcessor(profiler);
+    beanFactory.preInstantiateSingletons();
+    
+    StartupReport report = profiler.report(StoredBeanGraph.read(new StringReader(GRAPH)));
+    assertThat(report.getCriticalPath()).extracting(BeanTiming::getName).containsExactly("top", "middle", "slow");
+    assertThat(report.getTopContributors(1)).extracting(BeanTiming::getName).containsExactly("slow");
+    assertThat(report.toString()).contains("Critical path").contains("slow");
+  }
+  
+  @Test
+  public void stoppedProfilerIgnoresBeans() {
+    DefaultListableBeanFactory beanFactory = beanFactory();
+    StartupProfiler profiler = new StartupProfiler();
+    beanFactory.addBeanPostProcessor(profiler);
+    beanFactory.getBean("fast");
+    profiler.stop();
+    beanFactory.getBean("top");
+    assertThat(profiler.getTimings()).containsOnlyKeys("fast");
+  }
+  
+  @Test
+  public void disabledProfilerIsNotInstalled() {
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    assertThat(StartupProfiler.install(beanFactory)).isNull();
+    assertThat(beanFactory.getBeanPostProcessorCount()).isZero();
+  }
+  
+  @Test
+  public void graphsAreReadBesideTheirRoot() {
+    assertThatThrownBy(() -> StoredBeanGraph.forRoot(TestStartupProfiler.class))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("TestStartupProfiler_BeanGraph.tsv");
+  }
+}